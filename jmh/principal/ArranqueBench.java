@@ -0,0 +1,63 @@
+package principal;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo de 'convertir USD EUR 100' en un proceso nuevo, desde el snapshot en disco (sin
+ * red), como lo usan los scripts. Cada invocación es un arranque completo de la JVM hija;
+ * -Dconversor.bench.jvm="..." (vía -jvmArgsAppend) le agrega opciones, p. ej. un archivo CDS.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArranqueBench {
+    private Path dir;
+    private Path snapshot;
+    private ProcessBuilder pb;
+
+    @Setup
+    public void preparar() throws Exception {
+        dir = Files.createTempDirectory("bench-arranque");
+        snapshot = dir.resolve("cache").resolve("snapshot-USD.bin");
+        new AlmacenSnapshots(snapshot).guardar(LectorTasasJson.leer(DatosBench.LATEST).aMatriz("USD"));
+        List<String> comando = new ArrayList<>();
+        comando.add(ProcessHandle.current().info().command().orElse("java"));
+        String extra = System.getProperty("conversor.bench.jvm", "");
+        if (!extra.isBlank()) comando.addAll(List.of(extra.trim().split("\\s+")));
+        // la hija corre en el directorio temporal: el classpath tiene que ser absoluto
+        StringJoiner classpath = new StringJoiner(File.pathSeparator);
+        for (String entrada : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classpath.add(Path.of(entrada).toAbsolutePath().toString());
+        }
+        comando.addAll(List.of("-cp", classpath.toString(), "principal.Principal", "convertir", "USD", "EUR", "100"));
+        pb = new ProcessBuilder(comando).directory(dir.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+    }
+
+    @TearDown
+    public void limpiar() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(snapshot.getParent());
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int convertir() throws Exception {
+        int salida = pb.start().waitFor();
+        if (salida != 0) throw new IOException("convertir terminó con código " + salida);
+        return salida;
+    }
+}
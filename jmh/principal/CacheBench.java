@@ -0,0 +1,55 @@
+package principal;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* SimpleCache: lecturas con uno y con todos los núcleos, y escrituras concurrentes */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheBench {
+    private static final String[] BASES = {"USD", "EUR", "GBP", "JPY", "MXN", "CRC", "COP", "BRL"};
+
+    private SimpleCache cache;
+
+    @State(Scope.Thread)
+    public static class Indice {
+        int i;
+    }
+
+    @Setup
+    public void preparar() {
+        cache = new SimpleCache(3600).iniciar();
+        for (String b : BASES) for (String t : BASES) cache.put(b, t, 1.5);
+    }
+
+    @TearDown
+    public void cerrar() {
+        cache.cerrar();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double lookup(Indice x) {
+        int i = x.i++;
+        return cache.lookup(BASES[i & 7], BASES[(i >>> 3) & 7]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public double lookupConcurrente(Indice x) {
+        int i = x.i++;
+        return cache.lookup(BASES[i & 7], BASES[(i >>> 3) & 7]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void putConcurrente(Indice x) {
+        int i = x.i++;
+        cache.put(BASES[i & 7], BASES[(i >>> 3) & 7], i);
+    }
+}
@@ -0,0 +1,73 @@
+package principal;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Datos grabados y servidor de prueba compartidos por los benchmarks JMH: una respuesta
+ * /latest con 161 monedas, una /pair y un servidor local que las devuelve con las rutas de
+ * la API (no consume cuota).
+ */
+final class DatosBench {
+    // códigos ISO de una respuesta /latest real (161 monedas)
+    static final String[] CODIGOS = ("USD AED AFN ALL AMD ANG AOA ARS AUD AWG AZN BAM BBD BDT BGN BHD BIF BMD "
+            + "BND BOB BRL BSD BTN BWP BYN BZD CAD CDF CHF CLP CNY COP CRC CUP CVE CZK DJF DKK DOP DZD EGP ERN ETB "
+            + "EUR FJD FKP FOK GBP GEL GGP GHS GIP GMD GNF GTQ GYD HKD HNL HRK HTG HUF IDR ILS IMP INR IQD IRR ISK "
+            + "JEP JMD JOD JPY KES KGS KHR KID KMF KRW KWD KYD KZT LAK LBP LKR LRD LSL LYD MAD MDL MGA MKD MMK MNT "
+            + "MOP MRU MUR MVR MWK MXN MYR MZN NAD NGN NIO NOK NPR NZD OMR PAB PEN PGK PHP PKR PLN PYG QAR RON RSD "
+            + "RUB RWF SAR SBD SCR SDG SEK SGD SHP SLE SLL SOS SRD SSP STN SYP SZL THB TJS TMT TND TOP TRY TTD TVD "
+            + "TWD TZS UAH UGX UYU UZS VES VND VUV WST XAF XCD XDR XOF XPF YER ZAR ZMW ZWL").split(" ");
+
+    static final byte[] LATEST = respuestaLatest().getBytes(StandardCharsets.UTF_8);
+    static final byte[] PAIR = ("{\"result\":\"success\",\"documentation\":\"https://www.exchangerate-api.com/docs\","
+            + "\"terms_of_use\":\"https://www.exchangerate-api.com/terms\",\"time_last_update_unix\":1700006401,"
+            + "\"time_last_update_utc\":\"Wed, 15 Nov 2023 00:00:01 +0000\",\"time_next_update_unix\":1700092801,"
+            + "\"time_next_update_utc\":\"Thu, 16 Nov 2023 00:00:01 +0000\",\"base_code\":\"USD\",\"target_code\":\"EUR\","
+            + "\"conversion_rate\":0.9187}").getBytes(StandardCharsets.UTF_8);
+
+    private DatosBench() {
+    }
+
+    private static String respuestaLatest() {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("{\"result\":\"success\",\"documentation\":\"https://www.exchangerate-api.com/docs\",")
+          .append("\"terms_of_use\":\"https://www.exchangerate-api.com/terms\",\"time_last_update_unix\":1700006401,")
+          .append("\"time_last_update_utc\":\"Wed, 15 Nov 2023 00:00:01 +0000\",\"time_next_update_unix\":1700092801,")
+          .append("\"time_next_update_utc\":\"Thu, 16 Nov 2023 00:00:01 +0000\",\"base_code\":\"USD\",")
+          .append("\"conversion_rates\":{\n");
+        for (int i = 0; i < CODIGOS.length; i++) {
+            // valores con la forma típica de la API: 1 a 5 enteros y 4 decimales
+            double tasa = i == 0 ? 1 : Math.round(Math.pow(10, (i * 37 % 50) / 10.0) * (1 + i % 7) * 10_000) / 10_000.0;
+            sb.append("  \"").append(CODIGOS[i]).append("\":").append(i == 0 ? "1" : Double.toString(tasa));
+            sb.append(i + 1 < CODIGOS.length ? ",\n" : "\n");
+        }
+        return sb.append(" }\n}").toString();
+    }
+
+    /* Imita /v6/{key}/latest/{base} y /v6/{key}/pair/{base}/{target} con respuestas grabadas */
+    static HttpServer servidorStub() throws IOException {
+        // sin TCP_NODELAY el servidor del JDK espera el ACK retrasado (~40 ms) en cada respuesta
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v6/", ex -> {
+            byte[] body = ex.getRequestURI().getPath().contains("/pair/") ? PAIR : LATEST;
+            ex.getResponseHeaders().set("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4, r -> {
+            Thread t = new Thread(r, "stub-api");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+        return server;
+    }
+}
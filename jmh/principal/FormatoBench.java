@@ -0,0 +1,39 @@
+package principal;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/* Formateo de montos; DecimalFormat es la línea base (lo que hacía Conversor.formatear) */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormatoBench {
+    private final Formateador formato = Formateador.consola();
+    private final StringBuilder reutilizado = new StringBuilder(64);
+    private int i;
+
+    @Benchmark
+    public String decimalFormat() {
+        DecimalFormat df = (DecimalFormat) NumberFormat.getNumberInstance(Locale.US);
+        df.applyPattern("#,##0.00");
+        return df.format(i++ * 1.37);
+    }
+
+    @Benchmark
+    public String formateador() {
+        return formato.formatear(i++ * 1.37);
+    }
+
+    @Benchmark
+    public StringBuilder formateadorAnexar() {
+        reutilizado.setLength(0);
+        return formato.anexar(reutilizado, i++ * 1.37, 2);
+    }
+}
@@ -0,0 +1,60 @@
+package principal;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/* Aritmética exacta de montos y normalización de códigos ingresados por el usuario */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MonedaBench {
+    // tasa cruzada real (GBP -> EUR derivada de /latest/USD): 16 dígitos, el producto pasa de 64 bits
+    private static final double CRUZADA = 0.8589310982910635;
+    private final TasaFija tasaCorta = TasaFija.de(0.9187);
+    private final TasaFija tasaCruzada = TasaFija.de(CRUZADA);
+    private final String[] ingresados = new String[64];
+    private int i;
+
+    @Setup
+    public void preparar() {
+        for (int k = 0; k < ingresados.length; k++) ingresados[k] = " " + DatosBench.CODIGOS[k * 2].toLowerCase() + " ";
+    }
+
+    /* tasa de 4 dígitos: el producto cabe en 64 bits */
+    @Benchmark
+    public long convertirFija() {
+        return tasaCorta.convertir(i++ * 37L, 2, 2, Moneda.REDONDEO_DEFECTO);
+    }
+
+    @Benchmark
+    public long convertirFijaCruzada() {
+        return tasaCruzada.convertir(10_050 + (i++ & 1023), 2, 2, Moneda.REDONDEO_DEFECTO);
+    }
+
+    /* línea base: double redondeado, sin exactitud */
+    @Benchmark
+    public long convertirDouble() {
+        return Math.round((10_050 + (i++ & 1023)) * CRUZADA);
+    }
+
+    @Benchmark
+    public long parsear() {
+        return Moneda.parsearUnidades("12345.678", 2, Moneda.REDONDEO_DEFECTO);
+    }
+
+    /* línea base: lo que hacían el menú y los lotes antes de RegistroMonedas */
+    @Benchmark
+    public void codigoTrimUpperCase(Blackhole bh) {
+        bh.consume(ingresados[i++ & 63].trim().toUpperCase());
+    }
+
+    @Benchmark
+    public int codigoRegistro() {
+        return RegistroMonedas.ordinal(ingresados[i++ & 63]);
+    }
+}
@@ -0,0 +1,24 @@
+package principal;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Parseo de respuestas /latest y /pair grabadas */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseoBench {
+
+    @Benchmark
+    public LectorTasasJson latest() throws Exception {
+        return LectorTasasJson.leer(DatosBench.LATEST);
+    }
+
+    @Benchmark
+    public double pair() throws Exception {
+        return LectorTasasJson.leer(DatosBench.PAIR).conversionRate;
+    }
+}
@@ -0,0 +1,55 @@
+package principal;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/* Conversión de punta a punta contra el servidor local que imita a la API */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PuntaAPuntaBench {
+    private HttpServer stub;
+    private ExchangeRateApiClient cliente;
+    private ServicioTasas servicio;
+
+    @State(Scope.Thread)
+    public static class Indice {
+        int i;
+    }
+
+    @Setup
+    public void preparar() throws Exception {
+        stub = DatosBench.servidorStub();
+        cliente = new ExchangeRateApiClient("bench", "http://localhost:" + stub.getAddress().getPort() + "/v6");
+        servicio = new ServicioTasas(cliente, null, null);
+    }
+
+    @TearDown
+    public void cerrar() {
+        servicio.cerrar();
+        stub.stop(0);
+    }
+
+    @Benchmark
+    public double fetchPairRate() throws Exception {
+        return cliente.fetchPairRate("USD", "EUR").orElse(0.0);
+    }
+
+    @Benchmark
+    public int fetchLatestMatrix() throws Exception {
+        return cliente.fetchLatestMatrix("USD").map(MatrizTasas::tamanio).orElse(0);
+    }
+
+    /* matriz caliente: cualquier par cruzado se resuelve sin I/O */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public double obtenerTasaCruzada(Indice x) throws Exception {
+        int i = x.i++;
+        return servicio.obtenerTasa(DatosBench.CODIGOS[1 + (i % 40)], DatosBench.CODIGOS[41 + (i % 40)]);
+    }
+}
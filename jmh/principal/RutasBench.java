@@ -0,0 +1,37 @@
+package principal;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* Rutas de varios saltos: matriz grabada más cotizaciones /pair fuera de ella */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RutasBench {
+    private RutasTasas rutas;
+    private int i;
+
+    @Setup
+    public void preparar() throws Exception {
+        rutas = new RutasTasas(RutasTasas.Criterio.MENOS_SALTOS, 3600);
+        rutas.actualizarMatriz(LectorTasasJson.leer(DatosBench.LATEST).aMatriz("USD"));
+        rutas.registrarPar("EUR", "XAU", 0.00055);
+        rutas.registrarPar("XAU", "XPT", 2.1);
+        rutas.precalcular(List.of("USD", "EUR", "CRC", "XPT"));
+    }
+
+    @Benchmark
+    public double precalculada() {
+        return rutas.tasa("CRC", "XPT");
+    }
+
+    @Benchmark
+    public double busqueda() {
+        return rutas.tasa(DatosBench.CODIGOS[1 + (i++ % 100)], "XPT");
+    }
+}
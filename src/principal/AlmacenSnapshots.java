@@ -0,0 +1,162 @@
+package principal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Persistencia de snapshots /latest en un archivo binario de formato fijo:
+ *
+ * <pre>
+ * int    MAGIA ("TSNP")
+ * int    VERSION
+ * long   obtenida (epoch millis)
+ * int    base (código empaquetado)
+ * int    n
+ * int[n]    códigos empaquetados, en orden de ordinal
+ * double[n] tasas, mismo orden
+ * </pre>
+ *
+ * Al arrancar el archivo se mapea con FileChannel.map, así las tasas están disponibles
+ * en microsegundos y se comparten entre procesos del mismo equipo. Cada escritura va a
+ * un archivo temporal que luego reemplaza al anterior de forma atómica.
+ */
+public class AlmacenSnapshots {
+    private static final int MAGIA = 0x54534E50; // "TSNP"
+    private static final int VERSION = 1;
+    private static final int CABECERA = 4 + 4 + 8 + 4 + 4;
+
+    private final Path archivo;
+
+    public AlmacenSnapshots(Path archivo) {
+        this.archivo = archivo;
+    }
+
+    /* Archivo por defecto para una base: cache/snapshot-USD.bin */
+    public static AlmacenSnapshots paraBase(String base) {
+        return new AlmacenSnapshots(Path.of("cache", "snapshot-" + base.toUpperCase() + ".bin"));
+    }
+
+    /**
+     * Carga el snapshot persistido; null si no existe o no es válido.
+     */
+    public MatrizTasas leer() {
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long largo = ch.size();
+            if (largo < CABECERA) return null;
+            MappedByteBuffer mapa = ch.map(FileChannel.MapMode.READ_ONLY, 0, largo);
+            return decodificar(mapa);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Snapshot de tasas ilegible (" + archivo + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Época del snapshot persistido leyendo solo la cabecera; -1 si no hay uno válido.
+     * Sirve para saber si otro proceso ya dejó un snapshot más nuevo sin cargarlo entero.
+     */
+    public long obtenidaEpochMillis() {
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            if (ch.size() < CABECERA) return -1;
+            ByteBuffer cabecera = ch.map(FileChannel.MapMode.READ_ONLY, 0, CABECERA);
+            if (cabecera.getInt() != MAGIA || cabecera.getInt() != VERSION) return -1;
+            return cabecera.getLong();
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Escribe el snapshot y reemplaza el archivo anterior de forma atómica.
+     */
+    public void guardar(MatrizTasas m) throws IOException {
+        ByteBuffer datos = ByteBuffer.allocate(tamanio(m));
+        codificar(m, datos);
+        datos.flip();
+
+        Path dir = archivo.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temporal = Files.createTempFile(dir, archivo.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                while (datos.hasRemaining()) ch.write(datos);
+                ch.force(true);
+            }
+            try {
+                Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /* Bytes que ocupa la matriz en este formato */
+    static int tamanio(MatrizTasas m) {
+        return CABECERA + m.tamanio() * (4 + 8);
+    }
+
+    /* Escribe la matriz en el formato del archivo a partir de la posición actual del buffer */
+    static void codificar(MatrizTasas m, ByteBuffer datos) {
+        int n = m.tamanio();
+        datos.putInt(MAGIA).putInt(VERSION)
+             .putLong(m.getObtenidaEpochMillis())
+             .putInt(Utilidades.empaquetarCodigo(m.getBase()))
+             .putInt(n);
+        for (int i = 0; i < n; i++) datos.putInt(m.codigoEmpaquetado(i));
+        for (int i = 0; i < n; i++) datos.putDouble(m.tasaDesdeBase(i));
+    }
+
+    /**
+     * Lee una matriz desde la posición actual hasta el límite del buffer (archivo mapeado
+     * o datagrama del cluster); null si no tiene el formato o trae códigos que no son de
+     * tres letras o tasas que no son positivas y finitas. Con el cluster sin HMAC esto
+     * llega tal cual de la red: nada inválido debe llegar a la matriz.
+     */
+    static MatrizTasas decodificar(ByteBuffer datos) {
+        int inicio = datos.position();
+        int largo = datos.remaining();
+        if (largo < CABECERA) return null;
+        if (datos.getInt() != MAGIA || datos.getInt() != VERSION) return null;
+        long obtenida = datos.getLong();
+        int base = datos.getInt();
+        int n = datos.getInt();
+        if (n < 0 || largo != CABECERA + (long) n * (4 + 8)) return null;
+        if (obtenida <= 0 || !codigoValido(base)) return null;
+
+        int[] claves = new int[n];
+        double[] tasas = new double[n];
+        datos.asIntBuffer().get(claves);
+        datos.position(inicio + CABECERA + n * 4);
+        datos.asDoubleBuffer().get(tasas);
+        for (int i = 0; i < n; i++) {
+            if (!codigoValido(claves[i]) || !(tasas[i] > 0) || Double.isInfinite(tasas[i])) return null;
+        }
+        return MatrizTasas.desde(Utilidades.desempaquetarCodigo(base), claves, tasas, n, obtenida);
+    }
+
+    /* Código empaquetado por Utilidades.empaquetarCodigo: tres letras de 5 bits entre A (1) y Z (26) */
+    private static boolean codigoValido(int clave) {
+        if (clave < 0 || clave >= 1 << 15) return false;
+        for (int k = 0; k < 3; k++, clave >>>= 5) {
+            int letra = clave & 0x1F;
+            if (letra < 1 || letra > 26) return false;
+        }
+        return true;
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+}
@@ -0,0 +1,369 @@
+package principal;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Conversión por lotes sin interfaz: lee filas (monto, origen, destino) de un CSV o NDJSON,
+ * las convierte en paralelo y escribe el resultado en streaming.
+ *
+ * El archivo se procesa en bloques de tamaño fijo, así la memoria no depende del tamaño
+ * de la entrada. Cada par distinto se resuelve una sola vez (cache o matriz /latest) y
+ * el cálculo y formateo de cada bloque se reparte entre todos los núcleos.
+ *
+ * Montos, tasas y totales son decimales exactos en long (ver {@link Moneda} y
+ * {@link TasaFija}): el resultado de cada fila y el total por moneda no acumulan
+ * error de redondeo binario.
+ */
+public class ConversionPorLotes {
+    public static final int FILAS_POR_BLOQUE = 65_536;
+
+    private final ServicioTasas servicio;
+    private final int filasPorBloque;
+
+    // tasa ya resuelta por par empaquetado (NaN = par sin tasa); solo la toca el hilo lector
+    private final Map<Integer, Double> tasasPorPar = new HashMap<>();
+    private final Map<Integer, TasaFija> tasasFijas = new HashMap<>();
+    // total convertido por moneda destino empaquetada, en unidades menores
+    private final Map<Integer, long[]> totales = new HashMap<>();
+    private final RoundingMode redondeo;
+
+    private long filas;
+    private long errores;
+    private final LongAdder conversiones = Metricas.global().contador("conversor_conversiones_total{modo=\"lotes\"}");
+
+    public ConversionPorLotes(ServicioTasas servicio) {
+        this(servicio, FILAS_POR_BLOQUE);
+    }
+
+    public ConversionPorLotes(ServicioTasas servicio, int filasPorBloque) {
+        this(servicio, filasPorBloque, Moneda.REDONDEO_DEFECTO);
+    }
+
+    public ConversionPorLotes(ServicioTasas servicio, int filasPorBloque, RoundingMode redondeo) {
+        this.servicio = servicio;
+        this.filasPorBloque = filasPorBloque;
+        this.redondeo = redondeo;
+    }
+
+    /**
+     * Uso: lotes &lt;entrada.csv|entrada.ndjson&gt; &lt;salida&gt; [HALF_EVEN|HALF_UP|DOWN|...]
+     * La salida usa el mismo formato que la entrada.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Uso: lotes <entrada.csv|entrada.ndjson> <salida> [modoRedondeo]");
+            System.exit(2);
+        }
+        RoundingMode redondeo = args.length > 2 ? RoundingMode.valueOf(args[2].toUpperCase()) : Moneda.REDONDEO_DEFECTO;
+        ServicioTasas servicio = ServicioTasas.desdeConfiguracion();
+        ConversionPorLotes lotes = new ConversionPorLotes(servicio, FILAS_POR_BLOQUE, redondeo);
+        try {
+            long inicio = System.nanoTime();
+            lotes.procesar(Path.of(args[0]), Path.of(args[1]));
+            long ms = (System.nanoTime() - inicio) / 1_000_000;
+            System.out.printf("Filas: %d | Errores: %d | Pares distintos: %d | Tiempo: %d ms%n",
+                    lotes.getFilas(), lotes.getErrores(), lotes.getParesDistintos(), ms);
+            lotes.getTotales().forEach((moneda, total) -> System.out.println("Total " + moneda + ": " + total.toPlainString()));
+        } catch (IOException e) {
+            System.err.println("Error en la conversión por lotes: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            servicio.cerrar();
+        }
+    }
+
+    public void procesar(Path entrada, Path salida) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(entrada, StandardCharsets.UTF_8);
+             BufferedWriter out = Files.newBufferedWriter(salida, StandardCharsets.UTF_8)) {
+            procesar(in, out, esNdjson(entrada));
+        }
+    }
+
+    public void procesar(BufferedReader in, BufferedWriter out, boolean ndjson) throws IOException {
+        String[] lineas = new String[filasPorBloque];
+        Bloque bloque = new Bloque(filasPorBloque, redondeo);
+        boolean primera = true;
+
+        if (!ndjson) {
+            out.write("amount,from,to,rate,result");
+            out.newLine();
+        }
+
+        String linea;
+        int n = 0;
+        while ((linea = in.readLine()) != null) {
+            if (linea.isBlank()) continue;
+            if (primera) {
+                primera = false;
+                if (!ndjson && esEncabezado(linea)) continue;
+            }
+            lineas[n++] = linea;
+            if (n == filasPorBloque) {
+                procesarBloque(lineas, n, bloque, ndjson, out);
+                n = 0;
+            }
+        }
+        if (n > 0) procesarBloque(lineas, n, bloque, ndjson, out);
+    }
+
+    private void procesarBloque(String[] lineas, int n, Bloque b, boolean ndjson, BufferedWriter out) throws IOException {
+        // 1) parsear en paralelo
+        IntStream.range(0, n).parallel().forEach(i -> b.parsear(i, lineas[i], ndjson));
+
+        // 2) resolver cada par nuevo una sola vez (secuencial: pocas claves distintas)
+        for (int i = 0; i < n; i++) {
+            int clave = b.claves[i];
+            if (clave < 0) continue;
+            Double tasa = tasasPorPar.get(clave);
+            if (tasa == null) {
+                tasa = resolver(b.origenes[i], b.destinos[i]);
+                tasasPorPar.put(clave, tasa);
+                if (!Double.isNaN(tasa)) tasasFijas.put(clave, TasaFija.de(tasa));
+            }
+            b.tasasFijas[i] = tasasFijas.get(clave);
+        }
+
+        // 3) convertir y formatear en paralelo
+        IntStream.range(0, n).parallel().forEach(i -> b.salidas[i] = b.formatear(i, ndjson));
+
+        // 4) escribir en orden, acumular totales exactos y liberar el bloque
+        int convertidas = 0;
+        for (int i = 0; i < n; i++) {
+            out.write(b.salidas[i]);
+            out.newLine();
+            if (b.valida(i)) {
+                acumular(b.claves[i] & 0x7FFF, b.resultados[i]);
+                convertidas++;
+            } else {
+                errores++;
+            }
+            b.salidas[i] = null;
+            b.tasasFijas[i] = null;
+            lineas[i] = null;
+        }
+        filas += n;
+        conversiones.add(convertidas);
+    }
+
+    /* Suma exacta en 128 bits: total[1] cuenta los desbordes (en múltiplos de 2^64) de total[0] */
+    private void acumular(int destino, long unidades) {
+        long[] total = totales.computeIfAbsent(destino, k -> new long[2]);
+        long suma = total[0] + unidades;
+        if (((total[0] ^ suma) & (unidades ^ suma)) < 0) total[1] += Long.signum(unidades);
+        total[0] = suma;
+    }
+
+    private double resolver(String origen, String destino) {
+        try {
+            return servicio.obtenerTasa(origen, destino);
+        } catch (Exception e) {
+            System.err.println("Sin tasa para " + origen + "->" + destino + ": " + e.getMessage());
+            return Double.NaN;
+        }
+    }
+
+    private static boolean esNdjson(Path p) {
+        String nombre = p.getFileName().toString().toLowerCase();
+        return nombre.endsWith(".ndjson") || nombre.endsWith(".jsonl");
+    }
+
+    private static boolean esEncabezado(String linea) {
+        int coma = linea.indexOf(',');
+        String primero = (coma < 0 ? linea : linea.substring(0, coma)).trim();
+        try {
+            Double.parseDouble(primero);
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public long getFilas() {
+        return filas;
+    }
+
+    public long getErrores() {
+        return errores;
+    }
+
+    public int getParesDistintos() {
+        return tasasPorPar.size();
+    }
+
+    /* Total exacto convertido por moneda destino, en unidades de la moneda (no menores) */
+    public Map<String, BigDecimal> getTotales() {
+        Map<String, BigDecimal> r = new TreeMap<>();
+        totales.forEach((destino, total) -> {
+            String codigo = Utilidades.desempaquetarCodigo(destino);
+            BigDecimal unidades = new BigDecimal(BigInteger.valueOf(total[1]).shiftLeft(64))
+                    .add(BigDecimal.valueOf(total[0]));
+            r.put(codigo, unidades.movePointLeft(Moneda.decimales(codigo)));
+        });
+        return r;
+    }
+
+    /* Columnas primitivas reutilizadas entre bloques */
+    private static class Bloque {
+        final long[] unidades;      // monto en unidades menores de la moneda origen
+        final String[] origenes;
+        final String[] destinos;
+        final int[] claves;         // par empaquetado, -1 si la fila no es válida
+        final TasaFija[] tasasFijas;
+        final long[] resultados;    // unidades menores de la moneda destino
+        final String[] salidas;
+        final RoundingMode redondeo;
+
+        Bloque(int capacidad, RoundingMode redondeo) {
+            unidades = new long[capacidad];
+            origenes = new String[capacidad];
+            destinos = new String[capacidad];
+            claves = new int[capacidad];
+            tasasFijas = new TasaFija[capacidad];
+            resultados = new long[capacidad];
+            salidas = new String[capacidad];
+            this.redondeo = redondeo;
+        }
+
+        void parsear(int i, String linea, boolean ndjson) {
+            claves[i] = -1;
+            unidades[i] = 0;
+            origenes[i] = null;
+            destinos[i] = null;
+            try {
+                String monto;
+                String from;
+                String to;
+                if (ndjson) {
+                    JsonObject obj = JsonParser.parseString(linea).getAsJsonObject();
+                    monto = obj.get("amount").getAsString(); // texto original del número, sin pasar por double
+                    from = obj.get("from").getAsString();
+                    to = obj.get("to").getAsString();
+                    origenes[i] = RegistroMonedas.normalizar(from);
+                    destinos[i] = RegistroMonedas.normalizar(to);
+                } else {
+                    int c1 = linea.indexOf(',');
+                    int c2 = linea.indexOf(',', c1 + 1);
+                    if (c1 < 0 || c2 < 0) return;
+                    monto = linea.substring(0, c1);
+                    // sin copiar la columna: el registro devuelve su propia instancia del código
+                    origenes[i] = RegistroMonedas.normalizar(linea, c1 + 1, c2);
+                    destinos[i] = RegistroMonedas.normalizar(linea, c2 + 1, linea.length());
+                    from = origenes[i] == null ? linea.substring(c1 + 1, c2) : null;
+                    to = destinos[i] == null ? linea.substring(c2 + 1) : null;
+                }
+                if (origenes[i] == null || destinos[i] == null) {
+                    // moneda desconocida: la fila sale con error y el código tal como vino
+                    if (origenes[i] == null) origenes[i] = from.trim();
+                    if (destinos[i] == null) destinos[i] = to.trim();
+                    return;
+                }
+                int clave = SimpleCache.clave(origenes[i], destinos[i]);
+                unidades[i] = Moneda.parsearUnidades(monto, Moneda.decimales(origenes[i]), redondeo);
+                claves[i] = clave;
+            } catch (RuntimeException e) {
+                claves[i] = -1; // fila mal formada: se reporta como error en la salida
+            }
+        }
+
+        boolean valida(int i) {
+            return claves[i] >= 0 && tasasFijas[i] != null;
+        }
+
+        String formatear(int i, boolean ndjson) {
+            boolean ok = valida(i);
+            int decOrigen = origenes[i] == null ? 2 : Moneda.decimales(origenes[i]);
+            if (ok) {
+                try {
+                    resultados[i] = tasasFijas[i].convertir(unidades[i], decOrigen, Moneda.decimales(destinos[i]), redondeo);
+                } catch (ArithmeticException e) {
+                    tasasFijas[i] = null; // resultado fuera de rango: error de la fila
+                    ok = false;
+                }
+            }
+            StringBuilder sb = new StringBuilder(64);
+            if (ndjson) {
+                sb.append("{\"amount\":");
+                if (claves[i] >= 0) Moneda.anexar(sb, unidades[i], decOrigen);
+                else sb.append("null");
+                // un código desconocido vuelve tal como vino: se escapa
+                anexarJson(sb.append(",\"from\":"), origenes[i]);
+                anexarJson(sb.append(",\"to\":"), destinos[i]);
+                if (ok) {
+                    tasasFijas[i].anexar(sb.append(",\"rate\":")).append(",\"result\":");
+                    Moneda.anexar(sb, resultados[i], Moneda.decimales(destinos[i]));
+                } else {
+                    sb.append(",\"error\":\"sin tasa o fila inválida\"");
+                }
+                sb.append('}');
+            } else {
+                if (claves[i] >= 0) Moneda.anexar(sb, unidades[i], decOrigen);
+                anexarCsv(sb.append(','), origenes[i]);
+                anexarCsv(sb.append(','), destinos[i]);
+                sb.append(',');
+                if (ok) {
+                    tasasFijas[i].anexar(sb).append(',');
+                    Moneda.anexar(sb, resultados[i], Moneda.decimales(destinos[i]));
+                } else {
+                    sb.append("ERROR,");
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /* Cadena JSON entre comillas con ", \ y los caracteres de control escapados; null sale como "" */
+    static StringBuilder anexarJson(StringBuilder sb, String texto) {
+        sb.append('"');
+        if (texto != null) {
+            for (int k = 0; k < texto.length(); k++) {
+                char c = texto.charAt(k);
+                switch (c) {
+                    case '"' -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\t' -> sb.append("\\t");
+                    default -> {
+                        if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                        else sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"');
+    }
+
+    /* Campo CSV (RFC 4180): entre comillas, duplicándolas, si trae coma, comillas o salto de línea */
+    static StringBuilder anexarCsv(StringBuilder sb, String texto) {
+        if (texto == null) return sb;
+        boolean citar = false;
+        for (int k = 0; k < texto.length() && !citar; k++) {
+            char c = texto.charAt(k);
+            citar = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!citar) return sb.append(texto);
+        sb.append('"');
+        for (int k = 0; k < texto.length(); k++) {
+            char c = texto.charAt(k);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+}
@@ -0,0 +1,70 @@
+package principal;
+
+import java.io.IOException;
+
+/**
+ * Conversión de una sola vez para scripts: convertir USD EUR 100 imprime "100.00 USD = 91.87 EUR".
+ *
+ * En cada llamada se paga el arranque de la JVM, así que aquí se carga lo mínimo: si el
+ * snapshot persistido (cache/snapshot-USD.bin) no pasó el TTL duro, la tasa sale de él sin
+ * crear el servicio, el cliente HTTP ni Gson. Solo si no hay snapshot utilizable o no trae
+ * el par se arma el ServicioTasas completo (cache, rutas, /pair).
+ *
+ * Sale con 0 si convirtió, 1 si no hubo tasa y 2 si los argumentos no son válidos.
+ */
+public final class ConversionRapida {
+
+    private ConversionRapida() {
+    }
+
+    /** Uso: convertir &lt;origen&gt; &lt;destino&gt; &lt;monto&gt; */
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Uso: convertir <origen> <destino> <monto>   (p. ej. convertir USD EUR 100)");
+            System.exit(2);
+        }
+        // el snapshot se lee primero: sus monedas también cuentan como conocidas
+        MatrizTasas snapshot = snapshotVigente();
+        RegistroMonedas.aprender(snapshot);
+        String origen = RegistroMonedas.normalizar(args[0]);
+        String destino = RegistroMonedas.normalizar(args[1]);
+        if (origen == null || destino == null) {
+            System.err.println("Código de moneda desconocido: " + (origen == null ? args[0] : args[1]));
+            System.exit(2);
+        }
+        Moneda monto;
+        try {
+            monto = Moneda.parsear(origen, args[2]);
+        } catch (RuntimeException e) {
+            System.err.println("Monto inválido: " + args[2]);
+            System.exit(2);
+            return;
+        }
+
+        double tasa = snapshot == null ? Double.NaN : snapshot.tasa(origen, destino);
+        if (Double.isNaN(tasa)) tasa = tasaDelServicio(origen, destino);
+        if (Double.isNaN(tasa)) System.exit(1);
+
+        Moneda resultado = monto.convertir(TasaFija.de(tasa), destino, Moneda.REDONDEO_DEFECTO);
+        System.out.println(monto + " " + origen + " = " + resultado + " " + destino);
+    }
+
+    /* Snapshot en disco si no pasó el TTL duro; null si no sirve */
+    static MatrizTasas snapshotVigente() {
+        MatrizTasas m = AlmacenSnapshots.paraBase(MotorTasas.BASE_REFERENCIA).leer();
+        return m == null || m.edadNanos() >= ServicioTasas.TTL_DURO_SEGUNDOS * 1_000_000_000L ? null : m;
+    }
+
+    /* Camino completo: cache, /latest, rutas y /pair */
+    private static double tasaDelServicio(String origen, String destino) {
+        ServicioTasas servicio = ServicioTasas.desdeConfiguracion();
+        try {
+            return servicio.obtenerTasa(origen, destino);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("No se pudo obtener la tasa " + origen + " -> " + destino + ": " + e.getMessage());
+            return Double.NaN;
+        } finally {
+            servicio.cerrar();
+        }
+    }
+}
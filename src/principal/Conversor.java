@@ -1,11 +1,16 @@
 package principal;
 
+import java.math.RoundingMode;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Conversor {
-    private final ExchangeRateApiClient apiClient;
-    private final SimpleCache cache;
+    private final ProveedorTasas proveedor;
+    private final ServicioTasas servicio;
     private final Scanner scanner;
+    private final LongAdder conversiones = Metricas.global().contador("conversor_conversiones_total{modo=\"menu\"}");
+    private final RoundingMode redondeo = Moneda.REDONDEO_DEFECTO;
+    private final Formateador formato = Formateador.consola();
 
     // Lista de pares rápidos: {base, target, etiqueta}
     private final List<String[]> quickPairs = Arrays.asList(
@@ -25,15 +30,17 @@ public class Conversor {
     );
 
     public Conversor() {
-        String key = ExchangeRateApiClient.loadApiKeyOrNull();
-        if (key == null || key.isBlank()) {
-            System.err.println("⚠️  API Key no encontrada. Configure EXR_API_KEY (env) o config/config.properties");
-            this.apiClient = null;
-        } else {
-            this.apiClient = new ExchangeRateApiClient(key);
-        }
-        this.cache = new SimpleCache(3600); // cache 1 hora
+        this(ServicioTasas.desdeConfiguracion());
+    }
+
+    public Conversor(ServicioTasas servicio) {
+        this.servicio = servicio;
+        this.proveedor = servicio.getProveedor();
         this.scanner = new Scanner(System.in);
+        // rutas entre las monedas recomendadas listas de antemano (pares sin cotización directa)
+        servicio.getRutas().precalcular(monedasInteres);
+        // refrescar los pares más usados antes de que venza su TTL blando
+        servicio.programarRefrescoAnticipado(quickPairs, monedasInteres);
     }
 
     // Punto de entrada del conversor
@@ -55,6 +62,7 @@ public class Conversor {
                 case 3 -> procesoInteractivoOrigenDestino();
                 case 4 -> mostrarMonedasFiltradas();
                 case 5 -> listarMonedasInteres();
+                case 6 -> System.out.print(Metricas.global().prometheus());
                 default -> System.out.println("Opción inválida. Intenta nuevamente.");
             }
         }
@@ -67,6 +75,7 @@ public class Conversor {
         System.out.println("3) Conversión interactiva (elige origen y destino desde menú)");
         System.out.println("4) Ver tasas filtradas desde /latest");
         System.out.println("5) Listar monedas recomendadas");
+        System.out.println("6) Ver métricas");
         System.out.println("0) Salir");
         System.out.println("----------------------------");
     }
@@ -106,8 +115,8 @@ public class Conversor {
             System.out.println("\n" + prompt);
             for (int i = 0; i < monedasInteres.size(); i++) {
                 String code = monedasInteres.get(i);
-                if (exclude != null && exclude.equalsIgnoreCase(code)) continue;
-                System.out.printf("%2d) %s%n", i + 1, code);
+                if (code.equals(exclude)) continue;
+                System.out.printf("%2d) %s  %s%n", i + 1, code, RegistroMonedas.nombre(RegistroMonedas.ordinal(code)));
             }
             System.out.println(" 0) Ingresar otro código manualmente");
             System.out.println("-1) Volver");
@@ -116,9 +125,9 @@ public class Conversor {
             if (sel == -1) return null; // volver
             if (sel == 0) {
                 System.out.print("Ingresa el código de la moneda (ej: USD): ");
-                String manual = scanner.nextLine().trim().toUpperCase();
-                if (manual.isBlank() || (exclude != null && manual.equalsIgnoreCase(exclude))) {
-                    System.out.println("Código inválido o igual al excluido. Intenta nuevamente.");
+                String manual = RegistroMonedas.normalizar(scanner.nextLine());
+                if (manual == null || manual.equals(exclude)) {
+                    System.out.println("Código desconocido o igual al excluido. Intenta nuevamente.");
                     continue;
                 }
                 return manual;
@@ -126,7 +135,7 @@ public class Conversor {
                 // mapear índice a moneda (considerar que excluidos cambian índices visuales)
                 int idx = 1;
                 for (String code : monedasInteres) {
-                    if (exclude != null && exclude.equalsIgnoreCase(code)) continue;
+                    if (code.equals(exclude)) continue;
                     if (idx == sel) return code;
                     idx++;
                 }
@@ -138,15 +147,15 @@ public class Conversor {
     // Procesa un par personalizado simple (sin submenús)
     private void procesarParPersonalizado() {
         System.out.print("Ingresa moneda base (ej: USD): ");
-        String base = scanner.nextLine().trim().toUpperCase();
-        if (base.isBlank()) {
-            System.out.println("Código inválido.");
+        String base = RegistroMonedas.normalizar(scanner.nextLine());
+        if (base == null) {
+            System.out.println("Código de moneda desconocido.");
             return;
         }
         System.out.print("Ingresa moneda destino (ej: EUR): ");
-        String destino = scanner.nextLine().trim().toUpperCase();
-        if (destino.isBlank()) {
-            System.out.println("Código inválido.");
+        String destino = RegistroMonedas.normalizar(scanner.nextLine());
+        if (destino == null) {
+            System.out.println("Código de moneda desconocido.");
             return;
         }
         procesarConversion(base, destino, base + " -> " + destino);
@@ -163,41 +172,36 @@ public class Conversor {
 
         if (opt == 3) return;
 
-        double monto;
-        try {
-            monto = leerDouble("Ingresa el monto a convertir (ej: 100.50)");
-        } catch (IllegalArgumentException e) {
-            System.err.println("Monto inválido. Abortando esta operación.");
-            return;
-        }
+        String textoMonto = leerTexto("Ingresa el monto a convertir (ej: 100.50)");
 
         try {
             if (opt == 1) {
+                Moneda monto = leerMonto(textoMonto, base);
+                if (monto == null) return;
                 Double rate = obtenerTasaConCache(base, destino);
                 if (rate == null) {
                     System.err.println("No se pudo obtener la tasa para " + base + " -> " + destino);
                     return;
                 }
-                double resultado = convertir(monto, rate);
-                System.out.printf("%n%s %s = %s %s (tasa=%.6f)%n",
-                        formatear(monto), base, formatear(resultado), destino, rate);
+                Moneda resultado = convertir(monto, TasaFija.de(rate), destino);
+                imprimirResultado(monto, resultado, " (tasa=", rate);
             } else if (opt == 2) {
+                Moneda monto = leerMonto(textoMonto, destino);
+                if (monto == null) return;
                 // intentar tasa directa destino->base
                 Double rateDirect = obtenerTasaConCache(destino, base);
                 if (rateDirect != null) {
-                    double resultado = convertir(monto, rateDirect);
-                    System.out.printf("%n%s %s = %s %s (tasa directa %s->%s=%.6f)%n",
-                            formatear(monto), destino, formatear(resultado), base, destino, base, rateDirect);
+                    Moneda resultado = convertir(monto, TasaFija.de(rateDirect), base);
+                    imprimirResultado(monto, resultado, " (tasa directa " + destino + "->" + base + "=", rateDirect);
                 } else {
                     Double rate = obtenerTasaConCache(base, destino);
                     if (rate == null || rate == 0.0) {
                         System.err.println("No se pudo obtener la tasa para calcular la inversa.");
                         return;
                     }
-                    double resultado = convertirInverso(monto, rate);
-                    double inverse = 1.0 / rate;
-                    System.out.printf("%n%s %s = %s %s (tasa inversa=%.6f)%n",
-                            formatear(monto), destino, formatear(resultado), base, inverse);
+                    Moneda resultado = convertirInverso(monto, TasaFija.de(rate), base);
+                    // 1/rate solo se muestra; el cálculo divide entre la tasa
+                    imprimirResultado(monto, resultado, " (tasa inversa=", 1.0 / rate);
                 }
             } else {
                 System.out.println("Opción no válida en este submenú.");
@@ -207,32 +211,25 @@ public class Conversor {
         }
     }
 
+    // "\n100.00 USD = 91.87 EUR (tasa=0.918700)"
+    private void imprimirResultado(Moneda monto, Moneda resultado, String etiquetaTasa, double tasa) {
+        StringBuilder sb = new StringBuilder(96).append(System.lineSeparator());
+        formato.anexar(sb, monto.getUnidades(), monto.getDecimales()).append(' ').append(monto.getCodigo()).append(" = ");
+        formato.anexar(sb, resultado.getUnidades(), resultado.getDecimales()).append(' ').append(resultado.getCodigo());
+        formato.anexarTasa(sb.append(etiquetaTasa), tasa).append(')');
+        System.out.println(sb);
+    }
+
     /**
-     * Obtiene la tasa consultando primero la cache y si no busca en la API.
+     * Obtiene la tasa consultando primero la cache, luego la matriz de /latest
+     * y solo como último recurso el endpoint /pair de la API.
      */
     private Double obtenerTasaConCache(String base, String destino) {
-        // 1) intentar cache
-        Double rate = cache.get(base, destino);
-        if (rate != null) {
-            System.out.println("(Usando cache para " + base + "->" + destino + ")");
-            return rate;
-        }
-
-        // 2) intentar API si existe
-        if (apiClient == null) {
-            System.err.println("API client no configurado.");
-            return null;
-        }
-
         try {
-            Optional<Double> opt = apiClient.fetchPairRate(base, destino);
-            if (opt.isPresent()) {
-                rate = opt.get();
-                cache.put(base, destino, rate);
-                return rate;
-            } else {
-                return null;
-            }
+            return servicio.obtenerTasa(base, destino);
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            return null;
         } catch (Exception e) {
             System.err.println("Error al obtener tasa desde API: " + e.getMessage());
             return null;
@@ -241,60 +238,64 @@ public class Conversor {
 
     // ====================== Métodos utilitarios de conversión y formato ======================
 
-    private double convertir(double cantidad, double tasa) {
-        return cantidad * tasa;
-    }
-
-    private double convertirInverso(double cantidad, double tasa) {
-        if (tasa == 0.0) throw new IllegalArgumentException("Tasa no puede ser cero para cálculo inverso.");
-        return cantidad * (1.0 / tasa);
+    private Moneda convertir(Moneda cantidad, TasaFija tasa, String destino) {
+        conversiones.increment();
+        return cantidad.convertir(tasa, destino, redondeo);
     }
 
-    private String formatear(double valor) {
-        java.text.DecimalFormat df = (java.text.DecimalFormat) java.text.NumberFormat.getNumberInstance(Locale.US);
-        df.applyPattern("#,##0.00");
-        return df.format(valor);
+    private Moneda convertirInverso(Moneda cantidad, TasaFija tasa, String destino) {
+        conversiones.increment();
+        return cantidad.convertirInverso(tasa, destino, redondeo);
     }
 
     // ====================== Mostrar tasas filtradas (paso 8) ======================
     private void mostrarMonedasFiltradas() {
-        if (apiClient == null) {
+        if (proveedor == null) {
             System.out.println("API Key no configurada.");
             return;
         }
 
         System.out.print("Ingresa moneda base (ej: USD): ");
-        String base = scanner.nextLine().trim().toUpperCase();
-        if (base.isBlank()) {
-            System.out.println("Código inválido.");
+        String base = RegistroMonedas.normalizar(scanner.nextLine());
+        if (base == null) {
+            System.out.println("Código de moneda desconocido.");
             return;
         }
 
-        Optional<Map<String, Double>> optRates = apiClient.fetchLatestRates(base);
-
-        if (optRates.isEmpty()) {
-            System.out.println("No se pudieron obtener las tasas.");
-            return;
+        // si la base está en el snapshot vigente, todas las tasas salen de la matriz;
+        // si no, se pide /latest/{base} directamente
+        MatrizTasas matriz = servicio.matrizActual();
+        if (matriz == null || !matriz.contiene(base)) {
+            Optional<MatrizTasas> optRates = proveedor.fetchLatestMatrix(base);
+            if (optRates.isEmpty()) {
+                System.out.println("No se pudieron obtener las tasas.");
+                return;
+            }
+            matriz = optRates.get();
         }
 
-        Map<String, Double> rates = optRates.get();
-
-        System.out.println("\n=== Monedas filtradas para base " + base + " ===");
+        int iBase = matriz.indice(base);
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("\n=== Monedas filtradas para base ").append(base).append(" ===\n");
         for (String moneda : monedasInteres) {
-            if (rates.containsKey(moneda)) {
-                System.out.printf("%s: %.6f%n", moneda, rates.get(moneda));
+            int i = matriz.indice(moneda);
+            sb.append(moneda).append(": ");
+            if (i >= 0 && iBase >= 0) {
+                formato.anexarTasa(sb, matriz.tasa(iBase, i));
             } else {
-                System.out.printf("%s: (no disponible)%n", moneda);
+                sb.append("(no disponible)");
             }
+            sb.append('\n');
         }
-        System.out.println("============================================\n");
+        sb.append("============================================\n");
+        System.out.println(sb);
     }
 
     // Muestra la lista de monedas recomendadas para ayudar al usuario
     private void listarMonedasInteres() {
         System.out.println("\nMonedas recomendadas:");
         for (String m : monedasInteres) {
-            System.out.println("- " + m);
+            System.out.println("- " + m + "  " + RegistroMonedas.nombre(RegistroMonedas.ordinal(m)));
         }
     }
 
@@ -309,13 +310,18 @@ public class Conversor {
         }
     }
 
-    private double leerDouble(String prompt) {
+    private String leerTexto(String prompt) {
         System.out.print(prompt + ": ");
+        return scanner.nextLine().trim();
+    }
+
+    // monto exacto en unidades menores de la moneda; null si el texto no es un número
+    private Moneda leerMonto(String texto, String codigo) {
         try {
-            String line = scanner.nextLine().trim();
-            return Double.parseDouble(line);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Número inválido");
+            return Moneda.parsear(codigo, texto, redondeo);
+        } catch (NumberFormatException | ArithmeticException e) {
+            System.err.println("Monto inválido. Abortando esta operación.");
+            return null;
         }
     }
 }
@@ -0,0 +1,115 @@
+package principal;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Corta circuitos para la API: tras N fallos seguidos se abre y las llamadas fallan al
+ * instante (los llamadores siguen con la matriz o la cache que tengan) en lugar de esperar
+ * timeouts. Pasada la pausa deja pasar una sola llamada de prueba: si responde se cierra,
+ * si falla vuelve a abrirse. Solo quien tiene la ficha de la prueba la cierra: un fallo tardío
+ * de una llamada admitida antes de abrirse no reinicia la pausa ni libera la prueba.
+ *
+ * Estado en métricas: conversor_circuito_estado{nombre=..} (0 cerrado, 1 abierto, 2 semiabierto).
+ */
+public final class CortaCircuitos {
+    public enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    /* Llamada rechazada sin intentar porque el circuito está abierto */
+    public static final class AbiertoException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public AbiertoException(String nombre) {
+            super("Circuito '" + nombre + "' abierto: API no disponible, se usan las tasas en memoria");
+        }
+    }
+
+    /* Lo que devuelve permitir() para una llamada normal (no es la de prueba) */
+    public static final long SIN_PRUEBA = 0;
+    private static final long CERRADO = Long.MIN_VALUE;
+
+    private final String nombre;
+    private final int umbralFallos;
+    private final long pausaNanos;
+    private final AtomicInteger fallosSeguidos = new AtomicInteger();
+    private final AtomicLong abiertoDesde = new AtomicLong(CERRADO); // nanoTime de la apertura
+    private final AtomicLong prueba = new AtomicLong(SIN_PRUEBA); // ficha de la prueba en curso
+    private final AtomicLong fichas = new AtomicLong();
+    private final LongAdder rechazos;
+    private final LongAdder aperturas;
+
+    public CortaCircuitos(String nombre, int umbralFallos, long pausaMillis) {
+        this.nombre = nombre;
+        this.umbralFallos = umbralFallos;
+        this.pausaNanos = pausaMillis * 1_000_000L;
+        Metricas m = Metricas.global();
+        this.rechazos = m.contador("conversor_circuito_rechazos_total{nombre=\"" + nombre + "\"}");
+        this.aperturas = m.contador("conversor_circuito_aperturas_total{nombre=\"" + nombre + "\"}");
+        m.indicador("conversor_circuito_estado{nombre=\"" + nombre + "\"}", () -> estado().ordinal());
+        m.ayuda("conversor_circuito_estado", "Estado del corta circuitos: 0 cerrado, 1 abierto, 2 semiabierto");
+    }
+
+    /**
+     * Pide permiso para llamar. Con el circuito abierto lanza AbiertoException salvo para
+     * la única llamada de prueba que se deja pasar al vencer la pausa.
+     *
+     * @return SIN_PRUEBA para una llamada normal, o la ficha de la llamada de prueba: termine
+     *         como termine, se pasa a exito(), fallo() o soltarPrueba()
+     */
+    public long permitir() throws AbiertoException {
+        long desde = abiertoDesde.get();
+        if (desde == CERRADO) return SIN_PRUEBA;
+        if (System.nanoTime() - desde >= pausaNanos && prueba.get() == SIN_PRUEBA) {
+            long ficha = fichas.incrementAndGet();
+            if (prueba.compareAndSet(SIN_PRUEBA, ficha)) return ficha;
+        }
+        rechazos.increment();
+        throw new AbiertoException(nombre);
+    }
+
+    /* La llamada de prueba no llegó al servicio (p. ej. sin cupo local): no dice nada de él, se deja pasar otra */
+    public void soltarPrueba(long ficha) {
+        if (ficha != SIN_PRUEBA) prueba.compareAndSet(ficha, SIN_PRUEBA);
+    }
+
+    /* El servicio respondió; con el circuito abierto solo lo cierra la llamada de prueba */
+    public void exito(long ficha) {
+        if (ficha != SIN_PRUEBA) {
+            if (!prueba.compareAndSet(ficha, SIN_PRUEBA)) return;
+            abiertoDesde.set(CERRADO);
+        } else if (abiertoDesde.get() != CERRADO) {
+            return;
+        }
+        fallosSeguidos.set(0);
+    }
+
+    public void fallo(long ficha) {
+        if (ficha != SIN_PRUEBA) {
+            // falló la llamada de prueba: otra pausa completa
+            if (prueba.get() != ficha) return;
+            abiertoDesde.set(System.nanoTime());
+            prueba.set(SIN_PRUEBA);
+            aperturas.increment();
+            return;
+        }
+        // una llamada admitida antes de abrirse que falla tarde no cambia nada
+        if (abiertoDesde.get() != CERRADO) return;
+        int fallos = fallosSeguidos.incrementAndGet();
+        if (fallos >= umbralFallos && abiertoDesde.compareAndSet(CERRADO, System.nanoTime())) {
+            aperturas.increment();
+        }
+    }
+
+    public Estado estado() {
+        long desde = abiertoDesde.get();
+        if (desde == CERRADO) return Estado.CERRADO;
+        return prueba.get() != SIN_PRUEBA || System.nanoTime() - desde >= pausaNanos
+                ? Estado.SEMIABIERTO : Estado.ABIERTO;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+}
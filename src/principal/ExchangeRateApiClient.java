@@ -1,30 +1,115 @@
 package principal;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.*;
-import java.time.Instant;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
-public class ExchangeRateApiClient {
+/**
+ * Cliente de ExchangeRate-API. Todas las llamadas pasan por la misma capa de resiliencia:
+ * timeouts de conexión y de respuesta, un máximo de peticiones simultáneas a la API,
+ * reintentos con espera exponencial y jitter para 5xx/429 y timeouts, y un corta circuitos
+ * que hace fallar al instante mientras la API está caída.
+ *
+ * Antes de cada envío pasan además un token bucket local y el presupuesto de la cuota
+ * mensual; cada llamada real (reintentos incluidos) se anota en el libro de la cuota.
+ */
+public class ExchangeRateApiClient implements ProveedorTasas {
     private static final String BASE_URL = "https://v6.exchangerate-api.com/v6";
-    private final HttpClient http;
-    private final Gson gson;
+    private static final Endpoint PAIR = new Endpoint("pair");
+    private static final Endpoint LATEST = new Endpoint("latest");
+    // espera de cupo cuando ya hay maxConcurrentes llamadas en curso
+    private static final ExecutorService ESPERA_CUPO = Executors.newVirtualThreadPerTaskExecutor();
+    // lectura bloqueante de los cuerpos: fuera del commonPool, que usan las etapas de ConversionPorLotes
+    private static final ExecutorService LECTURA = Executors.newVirtualThreadPerTaskExecutor();
+    // llamadas con cupo tomado, sumando todos los clientes: el indicador se registra una sola vez
+    private static final LongAdder EN_CURSO = new LongAdder();
+
+    static {
+        Metricas.global().indicador("conversor_http_en_curso", EN_CURSO::sum);
+    }
+
+    private volatile HttpClient http; // se crea con la primera petición
     private final String apiKey;
+    private final String baseUrl;
+    private final Opciones opciones;
+    private final Semaphore cupo;
+    private final CortaCircuitos circuito;
+    private final LimitadorTasa limitador; // null = sin límite local
+    private final PresupuestoCuota presupuesto; // null = sin control de cuota
 
+    /**
+     * Parámetros de resiliencia. Los valores por defecto se pueden cambiar con propiedades
+     * del sistema, p. ej. -Dconversor.http.timeoutMs=2000. peticionesPorSegundo <= 0
+     * desactiva el token bucket local.
+     */
+    public record Opciones(Duration timeoutConexion, Duration timeoutPeticion, int maxConcurrentes,
+                           int maxReintentos, Duration esperaBase, Duration esperaMaxima,
+                           int fallosParaAbrir, Duration pausaCircuito,
+                           double peticionesPorSegundo, int rafaga) {
+
+        public static Opciones defecto() {
+            return new Opciones(
+                    Duration.ofMillis(Long.getLong("conversor.http.conexionMs", 3_000)),
+                    Duration.ofMillis(Long.getLong("conversor.http.timeoutMs", 5_000)),
+                    Integer.getInteger("conversor.http.maxConcurrentes", 8),
+                    Integer.getInteger("conversor.http.reintentos", 2),
+                    Duration.ofMillis(Long.getLong("conversor.http.esperaBaseMs", 200)),
+                    Duration.ofMillis(Long.getLong("conversor.http.esperaMaxMs", 2_000)),
+                    Integer.getInteger("conversor.circuito.fallos", 5),
+                    Duration.ofMillis(Long.getLong("conversor.circuito.pausaMs", 30_000)),
+                    Double.parseDouble(System.getProperty("conversor.http.porSegundo", "5")),
+                    Integer.getInteger("conversor.http.rafaga", 10));
+        }
+
+        /* Las mismas opciones sin límite local de llamadas por segundo */
+        public Opciones sinLimitador() {
+            return new Opciones(timeoutConexion, timeoutPeticion, maxConcurrentes, maxReintentos, esperaBase,
+                    esperaMaxima, fallosParaAbrir, pausaCircuito, 0, rafaga);
+        }
+    }
+
+    /**
+     * Cliente de la API real: la cuota se lleva en cache/cuota.bin. -Dconversor.api.url
+     * apunta a otro servidor con las mismas rutas (p. ej. el simulador de ProveedorLocal).
+     */
     public ExchangeRateApiClient(String apiKey) {
-        this.http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
-        this.gson = new Gson();
+        this(apiKey, System.getProperty("conversor.api.url", BASE_URL), Opciones.defecto(), PresupuestoCuota.defecto());
+    }
+
+    /* baseUrl alternativo (servidor local de pruebas o benchmarks), sin libro de cuota ni límite por segundo */
+    public ExchangeRateApiClient(String apiKey, String baseUrl) {
+        this(apiKey, baseUrl, Opciones.defecto().sinLimitador(), null);
+    }
+
+    public ExchangeRateApiClient(String apiKey, String baseUrl, Opciones opciones, PresupuestoCuota presupuesto) {
         this.apiKey = apiKey;
+        this.baseUrl = baseUrl;
+        this.opciones = opciones;
+        this.cupo = new Semaphore(opciones.maxConcurrentes());
+        this.circuito = new CortaCircuitos("api", opciones.fallosParaAbrir(), opciones.pausaCircuito().toMillis());
+        this.limitador = opciones.peticionesPorSegundo() > 0
+                ? new LimitadorTasa(opciones.peticionesPorSegundo(), opciones.rafaga()) : null;
+        this.presupuesto = presupuesto;
     }
 
     /**
@@ -47,94 +132,377 @@ public class ExchangeRateApiClient {
         return null;
     }
 
+    @Override
+    public String getNombre() {
+        return "exchangerate-api";
+    }
+
     /**
      * Obtiene la conversion_rate entre base y target.
      * Retorna Optional<Double> vacio si la respuesta no contiene conversion_rate.
      */
     public Optional<Double> fetchPairRate(String base, String target) throws IOException, InterruptedException {
-        String url = String.format("%s/%s/pair/%s/%s", BASE_URL, apiKey, base, target);
-
-        HttpRequest req = HttpRequest.newBuilder().uri(URI.create(url)).GET().header("Accept", "application/json").build();
-
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+        double rate = esperar(pair(base, target));
+        return Double.isNaN(rate) ? Optional.empty() : Optional.of(rate);
+    }
 
-        if (resp.statusCode() / 100 != 2) {
-            throw new IOException("HTTP error: " + resp.statusCode() + " - " + resp.body());
-        }
+    /**
+     * Asíncrono — devuelve CompletableFuture con la tasa (ó excepción).
+     */
+    @Override
+    public CompletableFuture<Double> fetchPairRateAsync(String base, String target) {
+        return pair(base, target).thenApply(rate -> {
+            if (Double.isNaN(rate)) {
+                throw new RuntimeException("conversion_rate not found in response");
+            }
+            return rate;
+        });
+    }
 
-        JsonObject root = JsonParser.parseString(resp.body()).getAsJsonObject();
-        String result = root.has("result") ? root.get("result").getAsString() : null;
+    /**
+     * Todas las tasas de /latest/{base} como mapa. Se conserva para llamadores que necesitan
+     * un Map; el camino interno usa fetchLatestMatrix, que no crea Double en caja.
+     */
+    public Optional<Map<String, Double>> fetchLatestRates(String base) {
+        Optional<MatrizTasas> matriz = fetchLatestMatrix(base);
+        if (matriz.isEmpty()) return Optional.empty();
 
-        if ("error".equalsIgnoreCase(result)) {
-            String errorType = root.has("error-type") ? root.get("error-type").getAsString() : "unknown-error";
-            throw new IOException("API error: " + errorType);
+        MatrizTasas m = matriz.get();
+        Map<String, Double> rates = new HashMap<>();
+        for (int i = 0; i < m.tamanio(); i++) {
+            rates.put(m.codigo(i), m.tasaDesdeBase(i));
         }
+        return Optional.of(rates);
+    }
 
-        if (root.has("conversion_rate")) {
-            return Optional.of(root.get("conversion_rate").getAsDouble());
-        } else {
+    /**
+     * /latest/{base} leído en streaming directamente a una MatrizTasas.
+     */
+    @Override
+    public Optional<MatrizTasas> fetchLatestMatrix(String base) {
+        try {
+            return Optional.of(esperar(fetchLatestMatrixAsync(base)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (Exception e) {
+            System.err.println("Error al consultar /latest: " + e.getMessage());
             return Optional.empty();
         }
     }
 
     /**
-     * Asíncrono — devuelve CompletableFuture con la tasa (ó excepción).
+     * Asíncrono — devuelve CompletableFuture con la MatrizTasas de /latest/{base} (ó excepción).
      */
-    public CompletableFuture<Double> fetchPairRateAsync(String base, String target) {
-        String url = String.format("%s/%s/pair/%s/%s", BASE_URL, apiKey, base, target);
+    @Override
+    public CompletableFuture<MatrizTasas> fetchLatestMatrixAsync(String base) {
+        return llamar(LATEST, latestRequest(base), resp -> leerMatriz(base, resp));
+    }
 
-        HttpRequest req = HttpRequest.newBuilder().uri(URI.create(url)).GET().header("Accept", "application/json").build();
+    /* Estado del corta circuitos de la API */
+    public CortaCircuitos getCircuito() {
+        return circuito;
+    }
 
-        return http.sendAsync(req, HttpResponse.BodyHandlers.ofString()).thenApply(resp -> {
-            if (resp.statusCode() / 100 != 2) {
-                throw new RuntimeException("HTTP error: " + resp.statusCode());
+    /* Libro de la cuota mensual; null si este cliente no la controla */
+    @Override
+    public PresupuestoCuota getPresupuesto() {
+        return presupuesto;
+    }
+
+    private CompletableFuture<Double> pair(String base, String target) {
+        return llamar(PAIR, pairRequest(base, target), resp -> leerRespuesta(resp, PAIR).conversionRate);
+    }
+
+    // ====================== Resiliencia ======================
+
+    @FunctionalInterface
+    private interface Lector<T> {
+        T leer(HttpResponse<InputStream> resp) throws IOException;
+    }
+
+    /* Una llamada lógica: reintentos incluidos, con latencia y error medidos una sola vez */
+    private <T> CompletableFuture<T> llamar(Endpoint endpoint, HttpRequest req, Lector<T> lector) {
+        return endpoint.medir(System.nanoTime(), intentar(endpoint, req, lector, 0));
+    }
+
+    private <T> CompletableFuture<T> intentar(Endpoint endpoint, HttpRequest req, Lector<T> lector, int intento) {
+        try {
+            if (presupuesto != null) presupuesto.permitir();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (limitador != null && !limitador.intentar()) {
+            // sin token: se espera a que se reponga si es antes del timeout, si no se rechaza
+            long espera = limitador.esperaNanos();
+            if (espera > opciones.timeoutPeticion().toNanos()) {
+                return CompletableFuture.failedFuture(new LimiteLocalException());
             }
-            JsonObject root = JsonParser.parseString(resp.body()).getAsJsonObject();
-            String result = root.has("result") ? root.get("result").getAsString() : null;
-            if ("error".equalsIgnoreCase(result)) {
-                String errorType = root.has("error-type") ? root.get("error-type").getAsString() : "unknown-error";
-                throw new RuntimeException("API error: " + errorType);
+            Executor demora = CompletableFuture.delayedExecutor(Math.max(espera, 1), TimeUnit.NANOSECONDS);
+            return CompletableFuture.runAsync(() -> { }, demora)
+                    .thenCompose(x -> intentar(endpoint, req, lector, intento));
+        }
+        // el circuito va después del limitador: si deja pasar la llamada de prueba, esta se envía
+        long prueba;
+        try {
+            prueba = circuito.permitir();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // se anota ya con el cupo tomado: una llamada rechazada por SinCupoException no gasta cuota
+        // el cuerpo se lee fuera del hilo del HttpClient: leer el InputStream ahí lo bloquearía
+        return conCupo(() -> {
+                    if (presupuesto != null) presupuesto.registrar(endpoint == PAIR);
+                    return http().sendAsync(req, HttpResponse.BodyHandlers.ofInputStream())
+                            .thenApplyAsync(resp -> {
+                                try {
+                                    return lector.leer(resp);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e.getMessage(), e);
+                                }
+                            }, LECTURA);
+                })
+                .handle((valor, error) -> {
+                    if (error == null) {
+                        circuito.exito(prueba);
+                        return CompletableFuture.completedFuture(valor);
+                    }
+                    Throwable causa = causa(error);
+                    if (presupuesto != null && causa instanceof ErrorRespuesta r && "quota-reached".equals(r.tipo)) {
+                        presupuesto.marcarAgotada();
+                    }
+                    if (!esFalloDelServicio(causa)) {
+                        if (causa instanceof SinCupoException || causa instanceof LimiteLocalException) {
+                            // no llegó a la API: el circuito sigue igual, pero la prueba queda libre
+                            circuito.soltarPrueba(prueba);
+                        } else {
+                            // la API respondió (4xx, result:error, cuerpo inesperado): está viva
+                            circuito.exito(prueba);
+                        }
+                        return CompletableFuture.<T>failedFuture(causa);
+                    }
+                    circuito.fallo(prueba);
+                    if (intento < opciones.maxReintentos() && esReintentable(causa)) {
+                        endpoint.reintentos.increment();
+                        Executor demora = CompletableFuture.delayedExecutor(espera(intento), TimeUnit.NANOSECONDS);
+                        return CompletableFuture.runAsync(() -> { }, demora)
+                                .thenCompose(x -> intentar(endpoint, req, lector, intento + 1));
+                    }
+                    return CompletableFuture.<T>failedFuture(causa);
+                })
+                .thenCompose(f -> f);
+    }
+
+    /* Espera exponencial con jitter completo: aleatoria en [0, min(max, base * 2^intento)] */
+    private long espera(int intento) {
+        long tope = Math.min(opciones.esperaMaxima().toNanos(), opciones.esperaBase().toNanos() << Math.min(intento, 20));
+        return ThreadLocalRandom.current().nextLong(tope + 1);
+    }
+
+    /**
+     * HttpClient creado con la primera petición: armarlo (hilos, selector, TLS) cuesta más que
+     * una conversión servida desde el snapshot, que en muchos arranques es lo único que se hace.
+     * HTTP/2 multiplexa todas las peticiones sobre una conexión reutilizada; el semáforo
+     * acota cuántas hay en vuelo a la vez.
+     */
+    private HttpClient http() {
+        HttpClient h = http;
+        if (h != null) return h;
+        synchronized (this) {
+            if (http == null) {
+                http = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_2)
+                        .connectTimeout(opciones.timeoutConexion())
+                        .build();
             }
-            if (root.has("conversion_rate")) {
-                return root.get("conversion_rate").getAsDouble();
-            } else {
-                throw new RuntimeException("conversion_rate not found in response");
+            return http;
+        }
+    }
+
+    /* Ejecuta la llamada con un permiso del semáforo y lo devuelve al terminar */
+    private <T> CompletableFuture<T> conCupo(Supplier<CompletableFuture<T>> llamada) {
+        if (cupo.tryAcquire()) return liberarAlTerminar(llamada);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                if (!cupo.tryAcquire(opciones.timeoutPeticion().toNanos(), TimeUnit.NANOSECONDS)) {
+                    throw new CompletionException(new SinCupoException());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
             }
-        });
+        }, ESPERA_CUPO).thenCompose(x -> liberarAlTerminar(llamada));
     }
 
-    public Optional<Map<String, Double>> fetchLatestRates(String base) {
-        String url = "https://v6.exchangerate-api.com/v6/" + apiKey + "/latest/" + base;
+    private <T> CompletableFuture<T> liberarAlTerminar(Supplier<CompletableFuture<T>> llamada) {
+        EN_CURSO.increment();
+        CompletableFuture<T> futuro;
+        try {
+            futuro = llamada.get();
+        } catch (RuntimeException e) {
+            // como future fallido: así también pasa por el corta circuitos del llamador
+            liberar();
+            return CompletableFuture.failedFuture(e);
+        }
+        return futuro.whenComplete((valor, error) -> liberar());
+    }
+
+    private void liberar() {
+        EN_CURSO.decrement();
+        cupo.release();
+    }
+
+    /* Cuenta para el corta circuitos: 5xx/429, timeouts y errores de red */
+    private static boolean esFalloDelServicio(Throwable causa) {
+        if (causa instanceof ErrorRespuesta r) return r.status >= 500 || r.status == 429;
+        return causa instanceof IOException && !(causa instanceof SinCupoException)
+                && !(causa instanceof LimiteLocalException) && !(causa instanceof CortaCircuitos.AbiertoException)
+                && !(causa instanceof PresupuestoCuota.AgotadaException);
+    }
+
+    private static boolean esReintentable(Throwable causa) {
+        if (causa instanceof ErrorRespuesta r) return r.status >= 500 || r.status == 429;
+        return causa instanceof HttpTimeoutException;
+    }
+
+    private static Throwable causa(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof UncheckedIOException
+                || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
 
+    /* Espera el future y devuelve su valor con la excepción original (IOException si es de I/O) */
+    private static <T> T esperar(CompletableFuture<T> futuro) throws IOException, InterruptedException {
         try {
-            HttpRequest req = HttpRequest.newBuilder().uri(URI.create(url)).GET().header("Accept", "application/json").build();
+            return futuro.get();
+        } catch (ExecutionException e) {
+            Throwable causa = causa(e);
+            if (causa instanceof IOException io) throw io;
+            if (causa instanceof RuntimeException r) throw r;
+            throw new IOException(causa.getMessage(), causa);
+        }
+    }
+
+    private HttpRequest pairRequest(String base, String target) {
+        String url = String.format("%s/%s/pair/%s/%s", baseUrl, apiKey, base, target);
+        return HttpRequest.newBuilder().uri(URI.create(url)).timeout(opciones.timeoutPeticion())
+                .GET().header("Accept", "application/json").build();
+    }
+
+    private HttpRequest latestRequest(String base) {
+        String url = baseUrl + "/" + apiKey + "/latest/" + base;
+        return HttpRequest.newBuilder().uri(URI.create(url)).timeout(opciones.timeoutPeticion())
+                .GET().header("Accept", "application/json").build();
+    }
 
-            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
+    private MatrizTasas leerMatriz(String base, HttpResponse<InputStream> resp) throws IOException {
+        LectorTasasJson json = leerRespuesta(resp, LATEST);
+        if (json.cantidad == 0) {
+            throw new ErrorRespuesta(resp.statusCode(), null, "JSON no contiene conversion_rates");
+        }
+        return json.aMatriz(base);
+    }
 
-            if (resp.statusCode() != 200) {
-                System.err.println("Error HTTP: " + resp.statusCode());
-                return Optional.empty();
+    /* Valida status y result:error; siempre cierra el cuerpo */
+    private static LectorTasasJson leerRespuesta(HttpResponse<InputStream> resp, Endpoint endpoint) throws IOException {
+        endpoint.status(resp.statusCode());
+        try (InputStream body = endpoint.contarBytes(resp.body())) {
+            if (resp.statusCode() / 100 != 2) {
+                throw new ErrorRespuesta(resp.statusCode(), null, "HTTP error: " + resp.statusCode());
             }
+            LectorTasasJson json = LectorTasasJson.leer(body);
+            if (json.esError()) {
+                String errorType = json.errorType != null ? json.errorType : "unknown-error";
+                throw new ErrorRespuesta(resp.statusCode(), errorType, "API error: " + errorType);
+            }
+            return json;
+        }
+    }
 
-            JsonObject json = gson.fromJson(resp.body(), JsonObject.class);
+    /* La API respondió con un status o un cuerpo de error */
+    private static final class ErrorRespuesta extends IOException {
+        private static final long serialVersionUID = 1L;
 
-            if (!json.has("conversion_rates")) {
-                System.err.println("JSON no contiene conversion_rates");
-                return Optional.empty();
-            }
+        final int status;
+        final String tipo; // error-type de la API (p. ej. quota-reached) o null
 
-            JsonObject ratesObj = json.getAsJsonObject("conversion_rates");
-            Map<String, Double> rates = new HashMap<>();
+        ErrorRespuesta(int status, String tipo, String mensaje) {
+            super(mensaje);
+            this.status = status;
+            this.tipo = tipo;
+        }
+    }
 
-            for (String key : ratesObj.keySet()) {
-                rates.put(key, ratesObj.get(key).getAsDouble());
+    private static final class SinCupoException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        SinCupoException() {
+            super("Demasiadas llamadas simultáneas a la API");
+        }
+    }
+
+    private static final class LimiteLocalException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LimiteLocalException() {
+            super("Límite local de llamadas por segundo a la API excedido");
+        }
+    }
+
+    /* Métricas por endpoint: latencia, códigos de estado, bytes recibidos y errores */
+    private static final class Endpoint {
+        final String nombre;
+        final Histograma latencia;
+        final LongAdder bytes;
+        final LongAdder errores;
+        final LongAdder reintentos;
+        // respuestas por clase de estado: 1xx..5xx y "otro" para lo que quede fuera
+        final LongAdder[] estados = new LongAdder[6];
+
+        Endpoint(String nombre) {
+            this.nombre = nombre;
+            Metricas m = Metricas.global();
+            this.latencia = m.histograma("conversor_http_latencia_nanos{endpoint=\"" + nombre + "\"}");
+            this.bytes = m.contador("conversor_http_bytes_total{endpoint=\"" + nombre + "\"}");
+            this.errores = m.contador("conversor_http_errores_total{endpoint=\"" + nombre + "\"}");
+            this.reintentos = m.contador("conversor_http_reintentos_total{endpoint=\"" + nombre + "\"}");
+            for (int c = 0; c < estados.length; c++) {
+                String clase = c == 0 ? "otro" : c + "xx";
+                estados[c] = m.contador("conversor_http_respuestas_total{endpoint=\"" + nombre
+                        + "\",status=\"" + clase + "\"}");
             }
+        }
 
-            return Optional.of(rates);
+        void status(int codigo) {
+            int clase = codigo / 100;
+            estados[clase >= 1 && clase <= 5 ? clase : 0].increment();
+        }
 
-        } catch (Exception e) {
-            System.err.println("Error al consultar /latest: " + e.getMessage());
-            return Optional.empty();
+        <T> CompletableFuture<T> medir(long inicio, CompletableFuture<T> futuro) {
+            return futuro.whenComplete((valor, error) -> {
+                latencia.registrarDesde(inicio);
+                if (error != null) errores.increment();
+            });
+        }
+
+        InputStream contarBytes(InputStream in) {
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) bytes.increment();
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buf, int off, int len) throws IOException {
+                    int n = super.read(buf, off, len);
+                    if (n > 0) bytes.add(n);
+                    return n;
+                }
+            };
         }
     }
 
@@ -0,0 +1,144 @@
+package principal;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Formateo de montos y tasas sin DecimalFormat en el camino caliente: escribe los dígitos
+ * directamente en un StringBuilder con los separadores del locale.
+ *
+ * Hay una instancia inmutable por locale (se leen sus símbolos una sola vez), así que se
+ * puede compartir entre hilos. El redondeo es HALF_EVEN y da el mismo texto que DecimalFormat,
+ * incluido el "-0.00" de un negativo que redondea a cero. Con más de 2^53 unidades menores
+ * (montos de decenas de billones) los últimos dígitos pueden diferir de los de DecimalFormat.
+ */
+public final class Formateador {
+    public static final int DECIMALES_TASA = 6;
+
+    private static final Map<Locale, Formateador> POR_LOCALE = new ConcurrentHashMap<>();
+    private static final long[] POTENCIAS_10 = TasaFija.POTENCIAS_10;
+    // por debajo de 2^53 el double escalado conserva la parte entera exacta
+    private static final double LIMITE_RAPIDO = 0x1p53;
+
+    private final Locale locale;
+    private final char separadorMiles;
+    private final char separadorDecimal;
+    private final char menos;
+    private final int agrupacion;
+
+    private Formateador(Locale locale) {
+        DecimalFormat df = (DecimalFormat) NumberFormat.getNumberInstance(locale);
+        DecimalFormatSymbols simbolos = df.getDecimalFormatSymbols();
+        this.locale = locale;
+        this.separadorMiles = simbolos.getGroupingSeparator();
+        this.separadorDecimal = simbolos.getDecimalSeparator();
+        this.menos = simbolos.getMinusSign();
+        this.agrupacion = df.isGroupingUsed() ? df.getGroupingSize() : 0;
+    }
+
+    public static Formateador para(Locale locale) {
+        return POR_LOCALE.computeIfAbsent(locale, Formateador::new);
+    }
+
+    /* Formato de la consola: separadores de Locale.US, como el menú siempre mostró */
+    public static Formateador consola() {
+        return para(Locale.US);
+    }
+
+    // ====================== Cómodos (devuelven String) ======================
+
+    /* Monto con 2 decimales y separador de miles, p. ej. "1,234.50" */
+    public String formatear(double valor) {
+        return anexar(new StringBuilder(24), valor, 2).toString();
+    }
+
+    /* Monto exacto con los decimales propios de su moneda (JPY sin decimales, KWD con 3) */
+    public String formatear(Moneda monto) {
+        return anexar(new StringBuilder(24), monto.getUnidades(), monto.getDecimales()).toString();
+    }
+
+    /* Tasa con 6 decimales y sin separador de miles (reemplaza a "%.6f") */
+    public String formatearTasa(double tasa) {
+        return anexarTasa(new StringBuilder(24), tasa).toString();
+    }
+
+    // ====================== Sobre un StringBuilder del llamador ======================
+
+    public StringBuilder anexar(StringBuilder sb, long unidades, int decimales) {
+        return anexarUnidades(sb, unidades, decimales, true);
+    }
+
+    public StringBuilder anexar(StringBuilder sb, double valor, int decimales) {
+        return anexarDouble(sb, valor, decimales, true);
+    }
+
+    public StringBuilder anexarTasa(StringBuilder sb, double tasa) {
+        return anexarDouble(sb, tasa, DECIMALES_TASA, false);
+    }
+
+    private StringBuilder anexarDouble(StringBuilder sb, double valor, int decimales, boolean agrupar) {
+        if (Double.isNaN(valor) || Double.isInfinite(valor)) return sb.append(valor);
+        // el signo va aparte: como DecimalFormat, un negativo que redondea a cero sale "-0.00" (también -0.0)
+        if (Double.doubleToRawLongBits(valor) < 0) {
+            sb.append(menos);
+            valor = -valor;
+        }
+        double escalado = valor * POTENCIAS_10[decimales];
+        if (escalado < LIMITE_RAPIDO) {
+            double piso = Math.floor(escalado);
+            // cerca de ...5 el producto pudo redondearse hacia el otro lado: se decide con el valor exacto
+            if (Math.abs(escalado - piso - 0.5) > 2 * Math.ulp(escalado)) {
+                return anexarUnidades(sb, (long) Math.rint(escalado), decimales, agrupar);
+            }
+        }
+        // como DecimalFormat: se redondea el decimal más corto del double y, si ese texto cae
+        // justo en la mitad, decide el valor binario exacto
+        BigDecimal corto = BigDecimal.valueOf(valor);
+        BigDecimal exacto = corto.setScale(decimales, RoundingMode.HALF_EVEN);
+        if (corto.subtract(exacto).abs().compareTo(BigDecimal.valueOf(5, decimales + 1)) == 0) {
+            exacto = new BigDecimal(valor).setScale(decimales, RoundingMode.HALF_EVEN);
+        }
+        if (exacto.unscaledValue().bitLength() < 63) {
+            return anexarUnidades(sb, exacto.unscaledValue().longValue(), decimales, agrupar);
+        }
+        // más de 18 dígitos: caso raro, se delega en DecimalFormat
+        DecimalFormat df = (DecimalFormat) NumberFormat.getNumberInstance(locale);
+        df.setGroupingUsed(agrupar);
+        df.setMinimumFractionDigits(decimales);
+        df.setMaximumFractionDigits(decimales);
+        return sb.append(df.format(exacto));
+    }
+
+    private StringBuilder anexarUnidades(StringBuilder sb, long unidades, int decimales, boolean agrupar) {
+        if (unidades == Long.MIN_VALUE) {
+            return anexarDouble(sb, BigDecimal.valueOf(unidades, decimales).doubleValue(), decimales, agrupar);
+        }
+        if (unidades < 0) {
+            sb.append(menos);
+            unidades = -unidades;
+        }
+        long potencia = POTENCIAS_10[decimales];
+        anexarEntero(sb, unidades / potencia, agrupar ? agrupacion : 0);
+        if (decimales > 0) {
+            sb.append(separadorDecimal);
+            long fraccion = unidades % potencia;
+            for (long p = potencia / 10; p > 0; p /= 10) sb.append((char) ('0' + fraccion / p % 10));
+        }
+        return sb;
+    }
+
+    private void anexarEntero(StringBuilder sb, long n, int grupo) {
+        int digitos = 1;
+        while (digitos < 19 && n >= POTENCIAS_10[digitos]) digitos++;
+        for (int i = digitos - 1; i >= 0; i--) {
+            sb.append((char) ('0' + n / POTENCIAS_10[i] % 10));
+            if (grupo > 0 && i > 0 && i % grupo == 0) sb.append(separadorMiles);
+        }
+    }
+}
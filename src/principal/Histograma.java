@@ -0,0 +1,83 @@
+package principal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias log-lineal al estilo HDR: cada potencia de 2 se divide en 16
+ * sub-cubetas (error relativo < 6.25 %), cubre de 1 ns a Long.MAX_VALUE con ~1 K contadores
+ * y registrar un valor es un par de operaciones de bits y un incremento atómico.
+ */
+public final class Histograma {
+    private static final int BITS_SUB = 5;
+    private static final int SUB = 1 << BITS_SUB;        // valores < 32 tienen cubeta exacta
+    private static final int MITAD = SUB >>> 1;          // sub-cubetas por potencia de 2
+    private static final int CUBETAS = SUB + (63 - BITS_SUB + 1) * MITAD;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    public void registrar(long valor) {
+        if (valor < 0) valor = 0;
+        cubetas.incrementAndGet(indice(valor));
+        cantidad.increment();
+        suma.add(valor);
+        maximo.accumulate(valor);
+    }
+
+    /* Registra el tiempo transcurrido desde inicioNanos (System.nanoTime) */
+    public void registrarDesde(long inicioNanos) {
+        registrar(System.nanoTime() - inicioNanos);
+    }
+
+    public long cantidad() {
+        return cantidad.sum();
+    }
+
+    public long suma() {
+        return suma.sum();
+    }
+
+    public long maximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Valor aproximado del percentil p (0..100): límite superior de la cubeta donde cae.
+     */
+    public long percentil(double p) {
+        long total = 0;
+        long[] copia = new long[CUBETAS];
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cubetas.get(i);
+            total += copia[i];
+        }
+        if (total == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(total * p / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo());
+        }
+        return maximo();
+    }
+
+    static int indice(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);           // >= BITS_SUB
+        int mantisa = (int) (v >>> (exp - (BITS_SUB - 1)));     // [MITAD, SUB)
+        return SUB + (exp - BITS_SUB) * MITAD + (mantisa - MITAD);
+    }
+
+    static long limiteSuperior(int indice) {
+        if (indice < SUB) return indice;
+        int exp = (indice - SUB) / MITAD + BITS_SUB;
+        long mantisa = (indice - SUB) % MITAD + MITAD;
+        int desplazamiento = exp - (BITS_SUB - 1);
+        long inferior = mantisa << desplazamiento;
+        return inferior + (1L << desplazamiento) - 1;
+    }
+}
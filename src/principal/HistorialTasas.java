@@ -0,0 +1,426 @@
+package principal;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serie histórica de tasas en un almacén columnar de solo anexado.
+ *
+ * Cada fila es un día. dias.bin guarda los días (epoch day, int, orden creciente) y hay un
+ * archivo col-XXX.bin por moneda con un double por fila (tasa respecto a la base; NaN si
+ * ese día no hubo dato). Las consultas mapean los archivos con FileChannel.map: ubicar
+ * una fecha es una búsqueda binaria sobre dias.bin y un rango se recorre secuencialmente,
+ * sin cargar el historial completo en el heap.
+ *
+ * Varios procesos comparten el directorio (servidor, nodos del cluster, convertir): cada
+ * anexado toma el lock de dias.bin y vuelve a leer cuántas filas hay antes de elegir la suya.
+ */
+public class HistorialTasas implements Closeable {
+    private static final String ARCHIVO_DIAS = "dias.bin";
+    // el lock de archivo es por JVM: dos instancias sobre el mismo directorio se turnan aquí
+    private static final Map<Path, Object> CERROJOS = new ConcurrentHashMap<>();
+
+    private final Path directorio;
+    private final String base;
+
+    private FileChannel dias;
+    private final Map<Integer, FileChannel> columnas = new HashMap<>(); // código empaquetado -> canal
+    private int filas;
+
+    // mapas de solo lectura; se rehacen cuando crecen los archivos
+    private MappedByteBuffer mapaDias;
+    private int filasMapeadas = -1;
+    private final Map<Integer, MappedByteBuffer> mapasColumnas = new HashMap<>();
+
+    public HistorialTasas(Path directorio, String base) {
+        this.directorio = directorio;
+        this.base = base.toUpperCase();
+    }
+
+    /* Directorio por defecto: historial/USD */
+    public static HistorialTasas paraBase(String base) {
+        return new HistorialTasas(Path.of("historial", base.toUpperCase()), base);
+    }
+
+    /**
+     * Uso:
+     *   historial importar &lt;archivo.csv&gt;
+     *   historial tasa &lt;origen&gt; &lt;destino&gt; &lt;fecha&gt;
+     *   historial serie &lt;origen&gt; &lt;destino&gt; &lt;desde&gt; &lt;hasta&gt;
+     *   historial promedio &lt;origen&gt; &lt;destino&gt; &lt;desde&gt; &lt;hasta&gt;
+     */
+    public static void main(String[] args) {
+        try (HistorialTasas h = paraBase(MotorTasas.BASE_REFERENCIA)) {
+            String cmd = args.length > 0 ? args[0].toLowerCase() : "";
+            switch (cmd) {
+                case "importar" -> {
+                    if (args.length < 2) break;
+                    System.out.println("Filas importadas: " + h.importarCsv(Path.of(args[1])));
+                    return;
+                }
+                case "tasa" -> {
+                    if (args.length < 4) break;
+                    double t = h.rateAt(args[1], args[2], LocalDate.parse(args[3]));
+                    System.out.printf("%s -> %s al %s: %s%n", args[1].toUpperCase(), args[2].toUpperCase(), args[3],
+                            Double.isNaN(t) ? "(sin datos)" : Formateador.consola().formatearTasa(t));
+                    return;
+                }
+                case "serie" -> {
+                    if (args.length < 5) break;
+                    Serie serie = h.series(args[1], args[2], LocalDate.parse(args[3]), LocalDate.parse(args[4]));
+                    Formateador f = Formateador.consola();
+                    StringBuilder sb = new StringBuilder(serie.tamanio() * 24);
+                    for (int i = 0; i < serie.tamanio(); i++) {
+                        f.anexarTasa(sb.append(serie.fecha(i)).append(' '), serie.tasas()[i]).append('\n');
+                    }
+                    System.out.print(sb);
+                    return;
+                }
+                case "promedio" -> {
+                    if (args.length < 5) break;
+                    double p = h.promedio(args[1], args[2], LocalDate.parse(args[3]), LocalDate.parse(args[4]));
+                    System.out.println(Double.isNaN(p) ? "(sin datos)" : Formateador.consola().formatearTasa(p));
+                    return;
+                }
+                default -> { }
+            }
+            System.err.println("Uso: historial importar <csv> | tasa <origen> <destino> <fecha> | "
+                    + "serie|promedio <origen> <destino> <desde> <hasta>");
+            System.exit(2);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error en el historial: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // ====================== Escritura ======================
+
+    /**
+     * Registra el snapshot en el día (UTC) en que se obtuvo. Si ya hay una fila para ese
+     * día se sobrescribe: queda el último snapshot de cada día.
+     */
+    public synchronized void registrar(MatrizTasas m) throws IOException {
+        int iBase = m.indice(base);
+        if (iBase < 0) return; // snapshot de otra base
+        int dia = (int) Instant.ofEpochMilli(m.getObtenidaEpochMillis()).atZone(ZoneOffset.UTC).toLocalDate().toEpochDay();
+
+        anexar(() -> {
+            int fila = filaParaDia(dia);
+            for (int i = 0; i < m.tamanio(); i++) {
+                escribirCelda(m.codigoEmpaquetado(i), fila, m.tasa(iBase, i));
+            }
+            completarFila(fila);
+            return null;
+        });
+    }
+
+    /* Igual que registrar pero sin propagar errores de disco (para usar como oyente) */
+    public void registrarSilencioso(MatrizTasas m) {
+        try {
+            registrar(m);
+        } catch (IOException e) {
+            System.err.println("No se pudo registrar el historial de tasas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Importa historial en CSV ancho: encabezado "date,EUR,JPY,..." y una fila por día
+     * (fecha ISO, tasas respecto a la base). Las fechas deben venir en orden creciente y
+     * posteriores al último día registrado. Devuelve las filas importadas.
+     */
+    public synchronized int importarCsv(Path csv) throws IOException {
+        return anexar(() -> importar(csv));
+    }
+
+    private int importar(Path csv) throws IOException {
+        int importadas = 0;
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String encabezado = in.readLine();
+            if (encabezado == null) return 0;
+            String[] codigos = encabezado.split(",");
+            int[] claves = new int[codigos.length];
+            for (int c = 1; c < codigos.length; c++) {
+                claves[c] = Utilidades.empaquetarCodigo(codigos[c].trim());
+            }
+
+            String linea;
+            while ((linea = in.readLine()) != null) {
+                if (linea.isBlank()) continue;
+                String[] celdas = linea.split(",");
+                int dia = (int) LocalDate.parse(celdas[0].trim()).toEpochDay();
+                int fila = filaParaDia(dia);
+                for (int c = 1; c < celdas.length && c < claves.length; c++) {
+                    if (claves[c] < 0 || celdas[c].isBlank()) continue;
+                    escribirCelda(claves[c], fila, Double.parseDouble(celdas[c].trim()));
+                }
+                completarFila(fila);
+                importadas++;
+            }
+        }
+        return importadas;
+    }
+
+    // ====================== Consultas ======================
+
+    /**
+     * Tasa origen -> destino vigente en la fecha: la del último día registrado que no
+     * sea posterior. NaN si no hay datos.
+     */
+    public synchronized double rateAt(String origen, String destino, LocalDate fecha) throws IOException {
+        abrir();
+        mapear();
+        int fila = ultimaFilaHasta((int) fecha.toEpochDay());
+        if (fila < 0) return Double.NaN;
+        return tasaEnFila(Utilidades.empaquetarCodigo(origen), Utilidades.empaquetarCodigo(destino), fila);
+    }
+
+    /**
+     * Serie diaria origen -> destino entre dos fechas (inclusive). Solo incluye los días
+     * en que ambas monedas tienen dato.
+     */
+    public synchronized Serie series(String origen, String destino, LocalDate desde, LocalDate hasta) throws IOException {
+        abrir();
+        mapear();
+        int o = Utilidades.empaquetarCodigo(origen);
+        int d = Utilidades.empaquetarCodigo(destino);
+        int inicio = primeraFilaDesde((int) desde.toEpochDay());
+        int fin = ultimaFilaHasta((int) hasta.toEpochDay());
+
+        int n = Math.max(0, fin - inicio + 1);
+        int[] dias = new int[n];
+        double[] tasas = new double[n];
+        int m = 0;
+        for (int fila = inicio; fila <= fin; fila++) {
+            double t = tasaEnFila(o, d, fila);
+            if (Double.isNaN(t)) continue;
+            dias[m] = mapaDias.getInt(fila * 4);
+            tasas[m] = t;
+            m++;
+        }
+        return new Serie(Arrays.copyOf(dias, m), Arrays.copyOf(tasas, m));
+    }
+
+    /* Promedio de la tasa en el periodo sin construir la serie; NaN si no hay datos */
+    public synchronized double promedio(String origen, String destino, LocalDate desde, LocalDate hasta) throws IOException {
+        abrir();
+        mapear();
+        int o = Utilidades.empaquetarCodigo(origen);
+        int d = Utilidades.empaquetarCodigo(destino);
+        int fin = ultimaFilaHasta((int) hasta.toEpochDay());
+        double suma = 0;
+        int n = 0;
+        for (int fila = primeraFilaDesde((int) desde.toEpochDay()); fila <= fin; fila++) {
+            double t = tasaEnFila(o, d, fila);
+            if (Double.isNaN(t)) continue;
+            suma += t;
+            n++;
+        }
+        return n == 0 ? Double.NaN : suma / n;
+    }
+
+    public synchronized int getFilas() throws IOException {
+        abrir();
+        return filas;
+    }
+
+    /* Serie de resultado: días (LocalDate.ofEpochDay) y tasas en arreglos paralelos */
+    public record Serie(int[] dias, double[] tasas) {
+        public int tamanio() {
+            return dias.length;
+        }
+
+        public LocalDate fecha(int i) {
+            return LocalDate.ofEpochDay(dias[i]);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (dias == null) return;
+        dias.close();
+        for (FileChannel ch : columnas.values()) ch.close();
+        columnas.clear();
+        mapasColumnas.clear();
+        mapaDias = null;
+        dias = null;
+    }
+
+    // ====================== Internos ======================
+
+    /* Apertura perezosa: un proceso que nunca consulta el historial no toca el disco */
+    private void abrir() throws IOException {
+        if (dias != null) return;
+        Files.createDirectories(directorio);
+        dias = FileChannel.open(directorio.resolve(ARCHIVO_DIAS),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        releer();
+    }
+
+    /* Filas y columnas tal como están en disco, incluidas las que anexó otro proceso */
+    private void releer() throws IOException {
+        filas = (int) (dias.size() / 4);
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, "col-*.bin")) {
+            for (Path p : archivos) {
+                String nombre = p.getFileName().toString();
+                int clave = Utilidades.empaquetarCodigo(nombre.substring(4, nombre.length() - 4));
+                if (clave < 0 || columnas.containsKey(clave)) continue;
+                columnas.put(clave, FileChannel.open(p, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Anexado<T> {
+        T ejecutar() throws IOException;
+    }
+
+    /* Escritura con el lock de dias.bin tomado y el conteo de filas releído bajo el lock */
+    private <T> T anexar(Anexado<T> anexado) throws IOException {
+        abrir();
+        synchronized (CERROJOS.computeIfAbsent(directorio.toAbsolutePath().normalize(), p -> new Object())) {
+            FileLock lock = dias.lock();
+            try {
+                releer();
+                return anexado.ejecutar();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /* Fila del día: la última si es el mismo día, una nueva al final si es posterior */
+    private int filaParaDia(int dia) throws IOException {
+        if (filas > 0) {
+            int ultimo = leerInt(dias, (long) (filas - 1) * 4);
+            if (dia == ultimo) return filas - 1;
+            if (dia < ultimo) {
+                throw new IOException("El historial es de solo anexado: " + LocalDate.ofEpochDay(dia)
+                        + " es anterior a " + LocalDate.ofEpochDay(ultimo));
+            }
+        }
+        ByteBuffer b = ByteBuffer.allocate(4).putInt(0, dia);
+        dias.write(b, (long) filas * 4);
+        return filas++;
+    }
+
+    private void escribirCelda(int clave, int fila, double valor) throws IOException {
+        if (clave < 0) return;
+        FileChannel col = columna(clave);
+        rellenarHasta(col, fila);
+        col.write(ByteBuffer.allocate(8).putDouble(0, valor), (long) fila * 8);
+    }
+
+    /* Las columnas que no recibieron dato en la fila quedan con NaN */
+    private void completarFila(int fila) throws IOException {
+        for (FileChannel col : columnas.values()) {
+            rellenarHasta(col, fila + 1);
+        }
+    }
+
+    private void rellenarHasta(FileChannel col, int filasObjetivo) throws IOException {
+        long actual = col.size() / 8;
+        if (actual >= filasObjetivo) return;
+        ByteBuffer nan = ByteBuffer.allocate((int) (filasObjetivo - actual) * 8);
+        while (nan.hasRemaining()) nan.putDouble(Double.NaN);
+        nan.flip();
+        col.write(nan, actual * 8);
+    }
+
+    private FileChannel columna(int clave) throws IOException {
+        FileChannel col = columnas.get(clave);
+        if (col == null) {
+            Path p = directorio.resolve("col-" + Utilidades.desempaquetarCodigo(clave) + ".bin");
+            col = FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            columnas.put(clave, col);
+        }
+        return col;
+    }
+
+    private void mapear() throws IOException {
+        if (filasMapeadas == filas) return;
+        mapaDias = dias.map(FileChannel.MapMode.READ_ONLY, 0, (long) filas * 4);
+        mapasColumnas.clear();
+        filasMapeadas = filas;
+    }
+
+    private MappedByteBuffer mapaColumna(int clave) throws IOException {
+        MappedByteBuffer mapa = mapasColumnas.get(clave);
+        if (mapa == null) {
+            FileChannel col = columnas.get(clave);
+            if (col == null) return null;
+            mapa = col.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(col.size(), (long) filas * 8));
+            mapasColumnas.put(clave, mapa);
+        }
+        return mapa;
+    }
+
+    /* Tasa cruzada en una fila; la base del almacén vale 1 */
+    private double tasaEnFila(int origen, int destino, int fila) throws IOException {
+        double o = valorEnFila(origen, fila);
+        double d = valorEnFila(destino, fila);
+        return d / o;
+    }
+
+    private double valorEnFila(int clave, int fila) throws IOException {
+        if (clave < 0) return Double.NaN;
+        if (clave == Utilidades.empaquetarCodigo(base)) return 1.0;
+        MappedByteBuffer mapa = mapaColumna(clave);
+        if (mapa == null || (long) fila * 8 + 8 > mapa.capacity()) return Double.NaN;
+        return mapa.getDouble(fila * 8);
+    }
+
+    /* Búsqueda binaria: última fila con día <= dia, -1 si no hay */
+    private int ultimaFilaHasta(int dia) {
+        int lo = 0, hi = filas - 1, r = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mapaDias.getInt(mid * 4) <= dia) {
+                r = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return r;
+    }
+
+    /* Búsqueda binaria: primera fila con día >= dia, filas si no hay */
+    private int primeraFilaDesde(int dia) {
+        int lo = 0, hi = filas - 1, r = filas;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mapaDias.getInt(mid * 4) >= dia) {
+                r = mid;
+                hi = mid - 1;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return r;
+    }
+
+    private static int leerInt(FileChannel ch, long posicion) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(4);
+        while (b.hasRemaining()) {
+            if (ch.read(b, posicion + b.position()) < 0) throw new IOException("Historial truncado");
+        }
+        return b.getInt(0);
+    }
+}
@@ -0,0 +1,321 @@
+package principal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lector JSON en streaming para las respuestas de /latest y /pair.
+ * Recorre el cuerpo byte a byte desde el InputStream y vuelca conversion_rates
+ * directamente en arreglos primitivos (código empaquetado + tasa), sin String del
+ * cuerpo, sin árbol de Gson y sin Double en caja.
+ *
+ * Solo reconoce los campos que usa el cliente; el resto se salta.
+ */
+final class LectorTasasJson {
+    private static final byte[] CAMPO_RESULT = bytes("result");
+    private static final byte[] CAMPO_ERROR_TYPE = bytes("error-type");
+    private static final byte[] CAMPO_BASE_CODE = bytes("base_code");
+    private static final byte[] CAMPO_RATES = bytes("conversion_rates");
+    private static final byte[] CAMPO_RATE = bytes("conversion_rate");
+
+    private static final double[] POTENCIAS_10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+    private final byte[] buf = new byte[8192];
+    private int pos;
+    private int lim;
+
+    private final byte[] texto = new byte[64]; // nombre de campo o valor de texto corto
+    private int largoTexto;
+    private final byte[] numero = new byte[64]; // copia del número por si hace falta el camino lento
+    private int largoNumero;
+
+    // resultado
+    String result;
+    String errorType;
+    String baseCode;
+    double conversionRate = Double.NaN;
+    int[] claves = new int[192];
+    double[] tasas = new double[192];
+    int cantidad;
+
+    private LectorTasasJson(InputStream in) {
+        this.in = in;
+    }
+
+    /* Lee el objeto JSON completo del stream (sin cerrarlo) */
+    static LectorTasasJson leer(InputStream in) throws IOException {
+        LectorTasasJson lector = new LectorTasasJson(in);
+        lector.leerRaiz();
+        return lector;
+    }
+
+    /* Lee desde un arreglo en memoria (respuestas grabadas, benchmarks) */
+    static LectorTasasJson leer(byte[] json) throws IOException {
+        return leer(new java.io.ByteArrayInputStream(json));
+    }
+
+    boolean esError() {
+        return "error".equalsIgnoreCase(result);
+    }
+
+    MatrizTasas aMatriz(String base) {
+        return MatrizTasas.desde(base, claves, tasas, cantidad);
+    }
+
+    // ====================== Recorrido ======================
+
+    private void leerRaiz() throws IOException {
+        esperar('{');
+        if (saltarEspaciosY('}')) return;
+        do {
+            leerTexto();
+            esperar(':');
+            if (textoEs(CAMPO_RATES)) {
+                leerTasas();
+            } else if (textoEs(CAMPO_RATE)) {
+                conversionRate = leerNumero();
+            } else if (textoEs(CAMPO_RESULT)) {
+                result = leerValorTexto();
+            } else if (textoEs(CAMPO_ERROR_TYPE)) {
+                errorType = leerValorTexto();
+            } else if (textoEs(CAMPO_BASE_CODE)) {
+                baseCode = leerValorTexto();
+            } else {
+                saltarValor();
+            }
+        } while (siguienteMiembro('}'));
+    }
+
+    private void leerTasas() throws IOException {
+        esperar('{');
+        if (saltarEspaciosY('}')) return;
+        do {
+            leerTexto();
+            esperar(':');
+            double valor = leerNumero();
+            int clave = largoTexto == 3 ? empaquetar(texto) : -1;
+            if (clave < 0 || !(valor > 0.0)) continue;
+            if (cantidad == claves.length) {
+                claves = Arrays.copyOf(claves, cantidad * 2);
+                tasas = Arrays.copyOf(tasas, cantidad * 2);
+            }
+            claves[cantidad] = clave;
+            tasas[cantidad] = valor;
+            cantidad++;
+        } while (siguienteMiembro('}'));
+    }
+
+    private String leerValorTexto() throws IOException {
+        int c = saltarEspacios();
+        if (c != '"') {
+            saltarValor();
+            return null;
+        }
+        leerTexto();
+        return new String(texto, 0, largoTexto, StandardCharsets.UTF_8);
+    }
+
+    /* Lee un string JSON en el buffer 'texto' (se trunca si es más largo) */
+    private void leerTexto() throws IOException {
+        esperar('"');
+        largoTexto = 0;
+        while (true) {
+            int c = leerByte();
+            if (c == '"') return;
+            if (c == '\\') {
+                c = leerByte();
+                if (c == 'u') {
+                    for (int i = 0; i < 4; i++) leerByte(); // los campos usados son ASCII
+                    c = '?';
+                }
+            }
+            if (largoTexto < texto.length) texto[largoTexto++] = (byte) c;
+        }
+    }
+
+    /**
+     * Número JSON a double. Camino rápido exacto (mantisa <= 15 dígitos y exponente
+     * decimal |e| <= 22); el resto se delega en Double.parseDouble.
+     */
+    private double leerNumero() throws IOException {
+        int c = saltarEspacios();
+        largoNumero = 0;
+        boolean negativo = false;
+        if (c == '-') {
+            negativo = true;
+            guardarNumero(leerByte());
+            c = mirar();
+        }
+        long mantisa = 0;
+        int digitos = 0;
+        int exponente = 0;
+        boolean exacto = true;
+
+        while (c >= '0' && c <= '9') {
+            guardarNumero(leerByte());
+            if (digitos < 18) {
+                mantisa = mantisa * 10 + (c - '0');
+                if (mantisa != 0) digitos++;
+            } else {
+                exponente++;
+                exacto = false;
+            }
+            c = mirar();
+        }
+        if (c == '.') {
+            guardarNumero(leerByte());
+            c = mirar();
+            while (c >= '0' && c <= '9') {
+                guardarNumero(leerByte());
+                if (digitos < 18) {
+                    mantisa = mantisa * 10 + (c - '0');
+                    if (mantisa != 0) digitos++;
+                    exponente--;
+                } else {
+                    exacto = false;
+                }
+                c = mirar();
+            }
+        }
+        if (c == 'e' || c == 'E') {
+            guardarNumero(leerByte());
+            c = mirar();
+            int signo = 1;
+            if (c == '+' || c == '-') {
+                if (c == '-') signo = -1;
+                guardarNumero(leerByte());
+                c = mirar();
+            }
+            int exp = 0;
+            while (c >= '0' && c <= '9') {
+                guardarNumero(leerByte());
+                if (exp < 10_000) exp = exp * 10 + (c - '0');
+                c = mirar();
+            }
+            exponente += signo * exp;
+        }
+        if (largoNumero == 0 || (negativo && largoNumero == 1)) {
+            throw new IOException("Número JSON inválido");
+        }
+
+        if (exacto && digitos <= 15 && exponente >= -22 && exponente <= 22) {
+            double v = exponente >= 0 ? mantisa * POTENCIAS_10[exponente] : mantisa / POTENCIAS_10[-exponente];
+            return negativo ? -v : v;
+        }
+        if (largoNumero >= numero.length) throw new IOException("Número JSON demasiado largo");
+        return Double.parseDouble(new String(numero, 0, largoNumero, StandardCharsets.ISO_8859_1));
+    }
+
+    private void guardarNumero(int c) {
+        if (largoNumero < numero.length) numero[largoNumero] = (byte) c;
+        largoNumero++;
+    }
+
+    private void saltarValor() throws IOException {
+        int c = saltarEspacios();
+        switch (c) {
+            case '"' -> leerTexto();
+            case '{' -> {
+                leerByte();
+                if (saltarEspaciosY('}')) return;
+                do {
+                    leerTexto();
+                    esperar(':');
+                    saltarValor();
+                } while (siguienteMiembro('}'));
+            }
+            case '[' -> {
+                leerByte();
+                if (saltarEspaciosY(']')) return;
+                do {
+                    saltarValor();
+                } while (siguienteMiembro(']'));
+            }
+            case 't', 'f', 'n' -> {
+                while (c >= 'a' && c <= 'z') {
+                    leerByte();
+                    c = mirar();
+                }
+            }
+            default -> leerNumero();
+        }
+    }
+
+    // ====================== Bytes ======================
+
+    /* Tras un miembro: true si sigue otro (','), false si se cierra con 'cierre' */
+    private boolean siguienteMiembro(char cierre) throws IOException {
+        int c = saltarEspacios();
+        leerByte();
+        if (c == ',') return true;
+        if (c == cierre) return false;
+        throw new IOException("JSON inválido: se esperaba ',' o '" + cierre + "'");
+    }
+
+    /* Consume 'c' si es el siguiente carácter significativo */
+    private boolean saltarEspaciosY(char c) throws IOException {
+        if (saltarEspacios() == c) {
+            leerByte();
+            return true;
+        }
+        return false;
+    }
+
+    private void esperar(char esperado) throws IOException {
+        int c = saltarEspacios();
+        if (c != esperado) throw new IOException("JSON inválido: se esperaba '" + esperado + "'");
+        leerByte();
+    }
+
+    /* Salta espacios y devuelve el siguiente byte sin consumirlo */
+    private int saltarEspacios() throws IOException {
+        while (true) {
+            int c = mirar();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+            pos++;
+        }
+    }
+
+    private int mirar() throws IOException {
+        if (pos == lim && !llenar()) return -1;
+        return buf[pos] & 0xFF;
+    }
+
+    private int leerByte() throws IOException {
+        if (pos == lim && !llenar()) throw new IOException("JSON truncado");
+        return buf[pos++] & 0xFF;
+    }
+
+    private boolean llenar() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) return false;
+        pos = 0;
+        lim = n;
+        return true;
+    }
+
+    private boolean textoEs(byte[] campo) {
+        return Arrays.equals(texto, 0, largoTexto, campo, 0, campo.length);
+    }
+
+    /* Mismo empaquetado que Utilidades.empaquetarCodigo, sobre bytes */
+    private static int empaquetar(byte[] b) {
+        int clave = 0;
+        for (int i = 0; i < 3; i++) {
+            int c = b[i];
+            if ((c < 'A' || c > 'Z') && (c < 'a' || c > 'z')) return -1;
+            clave = (clave << 5) | (c & 0x1F);
+        }
+        return clave;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,40 @@
+package principal;
+
+/**
+ * Token bucket: hasta 'rafaga' llamadas seguidas y luego 'porSegundo' en promedio.
+ * Los tokens se reponen de forma perezosa al pedir uno, sin hilos en segundo plano.
+ */
+public final class LimitadorTasa {
+    private final double porNano;
+    private final double rafaga;
+    private double tokens;
+    private long ultimaRecarga;
+
+    public LimitadorTasa(double porSegundo, int rafaga) {
+        if (porSegundo <= 0 || rafaga < 1) throw new IllegalArgumentException("Límite inválido");
+        this.porNano = porSegundo / 1_000_000_000.0;
+        this.rafaga = rafaga;
+        this.tokens = rafaga;
+        this.ultimaRecarga = System.nanoTime();
+    }
+
+    /* Consume un token si hay; no bloquea */
+    public synchronized boolean intentar() {
+        recargar();
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+
+    /* Nanosegundos hasta que haya un token (0 si ya hay) */
+    public synchronized long esperaNanos() {
+        recargar();
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / porNano);
+    }
+
+    private void recargar() {
+        long ahora = System.nanoTime();
+        tokens = Math.min(rafaga, tokens + (ahora - ultimaRecarga) * porNano);
+        ultimaRecarga = ahora;
+    }
+}
@@ -0,0 +1,165 @@
+package principal;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Snapshot inmutable de /latest/{base}. Guarda las tasas en un double[] denso
+ * indexado por el ordinal de cada moneda, de modo que cualquier par cruzado se
+ * calcula como tasas[destino] / tasas[base] sin tocar la red.
+ */
+public final class MatrizTasas {
+    private final String base;
+    private final int[] codigos;   // códigos empaquetados, ordenados (el índice es el ordinal)
+    private final double[] tasas;  // 1 base = tasas[i] unidades de codigos[i]
+    private final long obtenidaNanos;
+    private final long obtenidaEpochMillis; // hora de reloj, para persistir y comparar entre procesos
+
+    private MatrizTasas(String base, int[] codigos, double[] tasas, long obtenidaEpochMillis) {
+        this.base = base;
+        this.codigos = codigos;
+        this.tasas = tasas;
+        this.obtenidaEpochMillis = obtenidaEpochMillis;
+        // un snapshot cargado de disco conserva su edad real
+        long edadMillis = Math.max(0, System.currentTimeMillis() - obtenidaEpochMillis);
+        this.obtenidaNanos = System.nanoTime() - edadMillis * 1_000_000L;
+    }
+
+    /**
+     * Construye la matriz a partir de un mapa código -> tasa (p. ej. de fetchLatestRates).
+     * Ignora códigos mal formados y tasas no positivas.
+     */
+    public static MatrizTasas desde(String base, Map<String, Double> rates) {
+        int[] claves = new int[rates.size()];
+        double[] valores = new double[rates.size()];
+        int n = 0;
+        for (Map.Entry<String, Double> e : rates.entrySet()) {
+            int clave = Utilidades.empaquetarCodigo(e.getKey());
+            Double valor = e.getValue();
+            if (clave < 0 || valor == null || !(valor > 0.0)) continue;
+            claves[n] = clave;
+            valores[n] = valor;
+            n++;
+        }
+        return desde(base, claves, valores, n);
+    }
+
+    /**
+     * Construye la matriz a partir de arreglos paralelos (códigos empaquetados y tasas)
+     * sin importar su orden. Solo se usan las primeras n posiciones.
+     */
+    static MatrizTasas desde(String base, int[] claves, double[] valores, int n) {
+        return desde(base, claves, valores, n, System.currentTimeMillis());
+    }
+
+    /* Igual que el anterior pero con la hora en que se obtuvieron las tasas (snapshot persistido) */
+    static MatrizTasas desde(String base, int[] claves, double[] valores, int n, long obtenidaEpochMillis) {
+        // ordenar por código llevando la tasa junto: clave en los 32 bits altos, posición en los bajos
+        long[] orden = new long[n];
+        for (int i = 0; i < n; i++) {
+            orden[i] = ((long) claves[i] << 32) | i;
+        }
+        Arrays.sort(orden);
+
+        int[] codigosOrdenados = new int[n];
+        double[] tasasOrdenadas = new double[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            int clave = (int) (orden[i] >>> 32);
+            if (m > 0 && codigosOrdenados[m - 1] == clave) continue; // duplicado
+            codigosOrdenados[m] = clave;
+            tasasOrdenadas[m] = valores[(int) orden[i]];
+            m++;
+        }
+        if (m < n) {
+            codigosOrdenados = Arrays.copyOf(codigosOrdenados, m);
+            tasasOrdenadas = Arrays.copyOf(tasasOrdenadas, m);
+        }
+        return new MatrizTasas(base.toUpperCase(), codigosOrdenados, tasasOrdenadas, obtenidaEpochMillis);
+    }
+
+    /* Ordinal de la moneda en esta matriz, o -1 si no está */
+    public int indice(String codigo) {
+        int clave = Utilidades.empaquetarCodigo(codigo);
+        if (clave < 0) return -1;
+        int i = Arrays.binarySearch(codigos, clave);
+        return i >= 0 ? i : -1;
+    }
+
+    /* Ordinal por código empaquetado, o -1 si no está */
+    int indice(int clave) {
+        int i = Arrays.binarySearch(codigos, clave);
+        return i >= 0 ? i : -1;
+    }
+
+    /**
+     * Ordinales (en esta matriz) de las monedas cuya tasa cambió respecto de 'anterior',
+     * incluidas las que no estaban. Recorre los dos arreglos ordenados a la vez, sin crear
+     * objetos; devuelve cuántos ordinales dejó en 'salida' (de largo al menos tamanio()).
+     */
+    int cambiadas(MatrizTasas anterior, int[] salida) {
+        int n = 0;
+        if (anterior == null || !anterior.base.equals(base)) {
+            for (int i = 0; i < codigos.length; i++) salida[n++] = i;
+            return n;
+        }
+        int[] previos = anterior.codigos;
+        double[] tasasPrevias = anterior.tasas;
+        int j = 0;
+        for (int i = 0; i < codigos.length; i++) {
+            int clave = codigos[i];
+            while (j < previos.length && previos[j] < clave) j++;
+            if (j == previos.length || previos[j] != clave
+                    || Double.doubleToRawLongBits(tasasPrevias[j]) != Double.doubleToRawLongBits(tasas[i])) {
+                salida[n++] = i;
+            }
+        }
+        return n;
+    }
+
+    /* Tasa cruzada por ordinales: cuántas unidades de destino vale 1 unidad de base */
+    public double tasa(int iBase, int iDestino) {
+        return tasas[iDestino] / tasas[iBase];
+    }
+
+    /* Tasa tal como vino en el snapshot: unidades de codigo(i) por 1 unidad de la base */
+    public double tasaDesdeBase(int indice) {
+        return tasas[indice];
+    }
+
+    /* Tasa cruzada por código; NaN si alguna de las monedas no está en el snapshot */
+    public double tasa(String base, String destino) {
+        int b = indice(base);
+        int t = indice(destino);
+        if (b < 0 || t < 0) return Double.NaN;
+        return tasa(b, t);
+    }
+
+    public boolean contiene(String codigo) {
+        return indice(codigo) >= 0;
+    }
+
+    public String getBase() {
+        return base;
+    }
+
+    public int tamanio() {
+        return codigos.length;
+    }
+
+    public String codigo(int indice) {
+        return Utilidades.desempaquetarCodigo(codigos[indice]);
+    }
+
+    int codigoEmpaquetado(int indice) {
+        return codigos[indice];
+    }
+
+    public long edadNanos() {
+        return System.nanoTime() - obtenidaNanos;
+    }
+
+    public long getObtenidaEpochMillis() {
+        return obtenidaEpochMillis;
+    }
+}
@@ -0,0 +1,117 @@
+package principal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro de métricas del proceso: contadores (LongAdder), indicadores calculados al leer
+ * y histogramas de latencia. Los componentes guardan la referencia al contador o histograma
+ * al construirse, así el camino caliente solo hace un incremento.
+ *
+ * Los nombres siguen el formato de Prometheus e incluyen las etiquetas,
+ * p. ej. conversor_http_respuestas_total{endpoint="latest",status="2xx"}.
+ */
+public final class Metricas {
+    private static final Metricas GLOBAL = new Metricas();
+    private static final double[] CUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<String, LongAdder> contadores = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> indicadores = new ConcurrentSkipListMap<>();
+    private final Map<String, Histograma> histogramas = new ConcurrentSkipListMap<>();
+    private final Map<String, String> ayudas = new ConcurrentHashMap<>();
+
+    public static Metricas global() {
+        return GLOBAL;
+    }
+
+    /* Contador con ese nombre (y etiquetas); se crea la primera vez */
+    public LongAdder contador(String nombre) {
+        return contadores.computeIfAbsent(nombre, k -> new LongAdder());
+    }
+
+    public Histograma histograma(String nombre) {
+        return histogramas.computeIfAbsent(nombre, k -> new Histograma());
+    }
+
+    /* Indicador que se evalúa al pedir el snapshot (tamaños, estados); reemplaza al anterior */
+    public void indicador(String nombre, LongSupplier valor) {
+        indicadores.put(nombre, valor);
+    }
+
+    /* Texto HELP para la familia (nombre sin etiquetas) en la salida Prometheus */
+    public Metricas ayuda(String familia, String texto) {
+        ayudas.put(familia, texto);
+        return this;
+    }
+
+    /**
+     * Foto de todas las métricas: contadores e indicadores por nombre y, por cada histograma,
+     * _count, _sum, _max y sus cuantiles.
+     */
+    public Map<String, Double> snapshot() {
+        Map<String, Double> foto = new LinkedHashMap<>();
+        contadores.forEach((k, v) -> foto.put(k, (double) v.sum()));
+        indicadores.forEach((k, v) -> foto.put(k, (double) v.getAsLong()));
+        histogramas.forEach((k, h) -> {
+            foto.put(conSufijo(k, "_count"), (double) h.cantidad());
+            foto.put(conSufijo(k, "_sum"), (double) h.suma());
+            foto.put(conSufijo(k, "_max"), (double) h.maximo());
+            for (double q : CUANTILES) {
+                foto.put(conEtiqueta(k, "quantile", Double.toString(q)), (double) h.percentil(q * 100));
+            }
+        });
+        return foto;
+    }
+
+    /* Volcado en formato de texto de Prometheus (histogramas como summary) */
+    public String prometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        String[] ultimaFamilia = {null};
+        contadores.forEach((k, v) -> {
+            encabezado(sb, k, "counter", ultimaFamilia);
+            sb.append(k).append(' ').append(v.sum()).append('\n');
+        });
+        indicadores.forEach((k, v) -> {
+            encabezado(sb, k, "gauge", ultimaFamilia);
+            sb.append(k).append(' ').append(v.getAsLong()).append('\n');
+        });
+        histogramas.forEach((k, h) -> {
+            encabezado(sb, k, "summary", ultimaFamilia);
+            for (double q : CUANTILES) {
+                sb.append(conEtiqueta(k, "quantile", Double.toString(q))).append(' ').append(h.percentil(q * 100)).append('\n');
+            }
+            sb.append(conSufijo(k, "_sum")).append(' ').append(h.suma()).append('\n');
+            sb.append(conSufijo(k, "_count")).append(' ').append(h.cantidad()).append('\n');
+        });
+        return sb.toString();
+    }
+
+    private void encabezado(StringBuilder sb, String nombre, String tipo, String[] ultimaFamilia) {
+        String familia = familia(nombre);
+        if (familia.equals(ultimaFamilia[0])) return;
+        ultimaFamilia[0] = familia;
+        String ayuda = ayudas.get(familia);
+        if (ayuda != null) sb.append("# HELP ").append(familia).append(' ').append(ayuda).append('\n');
+        sb.append("# TYPE ").append(familia).append(' ').append(tipo).append('\n');
+    }
+
+    private static String familia(String nombre) {
+        int llave = nombre.indexOf('{');
+        return llave < 0 ? nombre : nombre.substring(0, llave);
+    }
+
+    private static String conSufijo(String nombre, String sufijo) {
+        int llave = nombre.indexOf('{');
+        return llave < 0 ? nombre + sufijo : nombre.substring(0, llave) + sufijo + nombre.substring(llave);
+    }
+
+    private static String conEtiqueta(String nombre, String etiqueta, String valor) {
+        String par = etiqueta + "=\"" + valor + "\"";
+        int llave = nombre.indexOf('{');
+        return llave < 0 ? nombre + "{" + par + "}" : nombre.substring(0, nombre.length() - 1) + "," + par + "}";
+    }
+}
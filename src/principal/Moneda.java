@@ -1,19 +1,175 @@
 package principal;
 
-public class Moneda {
-    private String codigo;
-    private double valor;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 
-    public Moneda(String codigo, double valor) {
+/**
+ * Monto exacto en una moneda: un long con las unidades menores (centavos, yenes, fils...)
+ * y los decimales que usa esa moneda según ISO 4217 (JPY 0, USD 2, KWD 3...).
+ *
+ * Sumar, convertir y formatear trabajan sobre el long; BigDecimal solo aparece al parsear
+ * textos con exponente o demasiados dígitos y cuando un cálculo se desborda.
+ */
+public final class Moneda implements Comparable<Moneda> {
+    public static final RoundingMode REDONDEO_DEFECTO = RoundingMode.HALF_EVEN;
+
+    private final String codigo;
+    private final long unidades;
+    private final int decimales;
+
+    private Moneda(String codigo, long unidades, int decimales) {
         this.codigo = codigo;
-        this.valor = valor;
+        this.unidades = unidades;
+        this.decimales = decimales;
+    }
+
+    /* Monto a partir de unidades menores (p. ej. 1050 USD = 10.50) */
+    public static Moneda deUnidades(String codigo, long unidades) {
+        return new Moneda(codigo, unidades, decimales(codigo));
+    }
+
+    /* Monto a partir de un texto decimal ("100.50", "-3", "1e3") redondeado a los decimales de la moneda */
+    public static Moneda parsear(String codigo, CharSequence texto, RoundingMode modo) {
+        int d = decimales(codigo);
+        return new Moneda(codigo, parsearUnidades(texto, d, modo), d);
+    }
+
+    public static Moneda parsear(String codigo, CharSequence texto) {
+        return parsear(codigo, texto, REDONDEO_DEFECTO);
+    }
+
+    /**
+     * Decimales de la moneda según ISO 4217 (ver RegistroMonedas); 2 para los códigos no listados.
+     */
+    public static int decimales(String codigo) {
+        return RegistroMonedas.decimales(codigo);
+    }
+
+    /* Convierte con la tasa codigo -> destino */
+    public Moneda convertir(TasaFija tasa, String destino, RoundingMode modo) {
+        int d = decimales(destino);
+        return new Moneda(destino, tasa.convertir(unidades, decimales, d, modo), d);
+    }
+
+    /* Convierte a destino dividiendo entre la tasa destino -> codigo (sin pasar por 1/tasa) */
+    public Moneda convertirInverso(TasaFija tasa, String destino, RoundingMode modo) {
+        int d = decimales(destino);
+        return new Moneda(destino, tasa.convertirInverso(unidades, decimales, d, modo), d);
+    }
+
+    public Moneda sumar(Moneda otra) {
+        if (!codigo.equals(otra.codigo)) throw new IllegalArgumentException("Monedas distintas: " + codigo + " y " + otra.codigo);
+        return new Moneda(codigo, Math.addExact(unidades, otra.unidades), decimales);
     }
 
     public String getCodigo() {
         return codigo;
     }
 
+    public long getUnidades() {
+        return unidades;
+    }
+
+    public int getDecimales() {
+        return decimales;
+    }
+
+    /* Valor aproximado, solo para mostrar o calcular estadísticas */
     public double getValor() {
-        return valor;
+        return unidades / (double) TasaFija.POTENCIAS_10[decimales];
+    }
+
+    public BigDecimal aBigDecimal() {
+        return BigDecimal.valueOf(unidades, decimales);
+    }
+
+    @Override
+    public int compareTo(Moneda o) {
+        if (!codigo.equals(o.codigo)) return codigo.compareTo(o.codigo);
+        return Long.compare(unidades, o.unidades);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Moneda m && m.unidades == unidades && m.codigo.equals(codigo);
+    }
+
+    @Override
+    public int hashCode() {
+        return codigo.hashCode() * 31 + Long.hashCode(unidades);
+    }
+
+    /* Texto plano exacto, p. ej. "1234.50" */
+    @Override
+    public String toString() {
+        return anexar(new StringBuilder(24), unidades, decimales).toString();
+    }
+
+    // ====================== Primitivas sin asignación ======================
+
+    /**
+     * Parsea un decimal a unidades menores con 'decimales' decimales. Los textos comunes
+     * (signo, hasta 18 dígitos, punto decimal) se leen sin crear objetos.
+     *
+     * @throws NumberFormatException si el texto no es un número o el monto no cabe en un long
+     */
+    static long parsearUnidades(CharSequence texto, int decimales, RoundingMode modo) {
+        int inicio = 0;
+        int fin = texto.length();
+        while (inicio < fin && texto.charAt(inicio) <= ' ') inicio++;
+        while (fin > inicio && texto.charAt(fin - 1) <= ' ') fin--;
+
+        int i = inicio;
+        boolean negativo = false;
+        if (i < fin && (texto.charAt(i) == '-' || texto.charAt(i) == '+')) negativo = texto.charAt(i++) == '-';
+        long mantisa = 0;
+        int digitos = 0;
+        int fraccion = -1; // dígitos tras el punto; -1 = sin punto
+        for (; i < fin; i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digitos > 18) return parsearLento(texto, inicio, fin, decimales, modo);
+                mantisa = mantisa * 10 + (c - '0');
+                if (fraccion >= 0) fraccion++;
+            } else if (c == '.' && fraccion < 0) {
+                fraccion = 0;
+            } else {
+                return parsearLento(texto, inicio, fin, decimales, modo);
+            }
+        }
+        if (digitos == 0) throw new NumberFormatException("Número inválido: \"" + texto + "\"");
+        if (negativo) mantisa = -mantisa;
+        if (fraccion < 0) fraccion = 0;
+
+        if (fraccion > decimales) return TasaFija.dividir(mantisa, TasaFija.POTENCIAS_10[fraccion - decimales], modo);
+        long f = TasaFija.POTENCIAS_10[decimales - fraccion];
+        long unidades = mantisa * f;
+        if (Math.multiplyHigh(mantisa, f) != (unidades >> 63)) throw fueraDeRango(texto);
+        return unidades;
+    }
+
+    private static long parsearLento(CharSequence texto, int inicio, int fin, int decimales, RoundingMode modo) {
+        try {
+            return new BigDecimal(texto.subSequence(inicio, fin).toString())
+                    .movePointRight(decimales).setScale(0, modo).longValueExact();
+        } catch (ArithmeticException e) {
+            throw fueraDeRango(texto);
+        }
+    }
+
+    private static NumberFormatException fueraDeRango(CharSequence texto) {
+        return new NumberFormatException("Monto fuera de rango: \"" + texto + "\"");
+    }
+
+    /* Escribe unidades menores como decimal plano ("-12.05") en sb */
+    static StringBuilder anexar(StringBuilder sb, long unidades, int decimales) {
+        if (decimales == 0) return sb.append(unidades);
+        long potencia = TasaFija.POTENCIAS_10[decimales];
+        long entero = unidades / potencia;
+        long fraccion = Math.abs(unidades % potencia);
+        if (unidades < 0 && entero == 0) sb.append('-');
+        sb.append(entero).append('.');
+        for (long p = potencia / 10; p > fraccion && p > 1; p /= 10) sb.append('0');
+        return sb.append(fraccion);
     }
 }
@@ -0,0 +1,252 @@
+package principal;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Motor de tasas basado en un único snapshot de /latest/{base}.
+ * Una sola llamada HTTP por refresco alimenta todos los pares cruzados.
+ * Con un AlmacenSnapshots el snapshot se persiste en disco: arranca en caliente desde
+ * el archivo, aprovecha los que deje otro proceso y sigue sirviendo si la API no responde.
+ */
+public class MotorTasas {
+    public static final String BASE_REFERENCIA = "USD";
+    // tras un refresco fallido no se reintenta antes de esta espera, que se duplica hasta el tope
+    private static final long ESPERA_INICIAL_NANOS = 1_000_000_000L;
+    private static final long ESPERA_MAXIMA_NANOS = 60_000_000_000L;
+
+    private final ProveedorTasas proveedor;
+    private final String baseReferencia;
+    private final long ttlBlandoNanos;
+    private final long ttlNanos;
+    private final AlmacenSnapshots almacen; // puede ser null
+    private volatile int factorTtl = 1;
+    private final SingleFlight<String, MatrizTasas> vuelos = new SingleFlight<>();
+    private final List<Consumer<MatrizTasas>> oyentes = new CopyOnWriteArrayList<>();
+    private volatile MatrizTasas matriz;
+    private volatile NodoCluster cluster; // null fuera del modo cluster
+    private final AtomicInteger fallosSeguidos = new AtomicInteger();
+    private volatile long reintentarDesde; // nanoTime; válido solo con fallosSeguidos > 0
+
+    public MotorTasas(ProveedorTasas proveedor, long ttlSeconds) {
+        this(proveedor, BASE_REFERENCIA, ttlSeconds, ttlSeconds);
+    }
+
+    public MotorTasas(ProveedorTasas proveedor, long ttlBlandoSeconds, long ttlDuroSeconds) {
+        this(proveedor, BASE_REFERENCIA, ttlBlandoSeconds, ttlDuroSeconds);
+    }
+
+    /**
+     * Pasado el TTL blando el snapshot se sigue usando mientras se descarga otro en segundo
+     * plano; pasado el duro el llamador espera la descarga.
+     */
+    public MotorTasas(ProveedorTasas proveedor, String baseReferencia, long ttlBlandoSeconds, long ttlDuroSeconds) {
+        this(proveedor, baseReferencia, ttlBlandoSeconds, ttlDuroSeconds, null);
+    }
+
+    public MotorTasas(ProveedorTasas proveedor, String baseReferencia, long ttlBlandoSeconds, long ttlDuroSeconds,
+                      AlmacenSnapshots almacen) {
+        this.proveedor = proveedor;
+        this.baseReferencia = baseReferencia;
+        this.ttlBlandoNanos = ttlBlandoSeconds * 1_000_000_000L;
+        this.ttlNanos = ttlDuroSeconds * 1_000_000_000L;
+        this.almacen = almacen;
+        // arranque en caliente: el snapshot persistido conserva su edad, si ya es viejo se refresca al usarlo
+        if (almacen != null) {
+            MatrizTasas persistida = almacen.leer();
+            if (persistida != null && persistida.getBase().equalsIgnoreCase(baseReferencia)) {
+                matriz = persistida;
+            }
+        }
+    }
+
+    /**
+     * Tasa base -> destino derivada del snapshot vigente.
+     * Retorna NaN si no hay snapshot o alguna moneda no aparece en él.
+     */
+    public double tasa(String base, String destino) {
+        MatrizTasas m = matrizActual();
+        return m == null ? Double.NaN : m.tasa(base, destino);
+    }
+
+    /**
+     * Devuelve el snapshot vigente. Si pasó el TTL blando lo devuelve igual y lanza un
+     * refresco asíncrono; si pasó el duro espera el refresco.
+     * Si el refresco falla se sigue usando el snapshot anterior (puede ser null), y durante
+     * la espera tras el fallo se sirve sin volver a intentar ni bloquear.
+     */
+    public MatrizTasas matrizActual() {
+        MatrizTasas m = matriz;
+        if (m != null) {
+            long edad = m.edadNanos();
+            if (edad < ttlBlando()) return m;
+            if (edad < ttlNanos * factorTtl) {
+                if (puedeRefrescar() && !enEspera()) refrescarAsync();
+                return m;
+            }
+        }
+        if (!puedeRefrescar() || enEspera()) return m;
+        try {
+            return refrescarAsync().join();
+        } catch (RuntimeException e) {
+            // ya se anotó en alTerminarRefresco: se sigue con el snapshot viejo
+            return m;
+        }
+    }
+
+    /**
+     * Future con un snapshot que no ha pasado el TTL blando: inmediato si el actual
+     * lo cumple, o el de la descarga en curso.
+     */
+    public CompletableFuture<MatrizTasas> matrizFresca() {
+        MatrizTasas m = matriz;
+        if (m != null && m.edadNanos() < ttlBlando()) return CompletableFuture.completedFuture(m);
+        if (!puedeRefrescar() || (m != null && enEspera())) return CompletableFuture.completedFuture(m);
+        return refrescarAsync();
+    }
+
+    /* Snapshot actual sin refrescar ni bloquear (puede ser null) */
+    public MatrizTasas matrizSinRefrescar() {
+        return matriz;
+    }
+
+    /**
+     * Lanza (o se une a) la descarga de /latest/{base}. Las peticiones concurrentes
+     * comparten un único future y la matriz se reemplaza una sola vez.
+     * Si otro proceso ya dejó en disco un snapshot fresco, se usa ese sin llamar a la API.
+     */
+    public CompletableFuture<MatrizTasas> refrescarAsync() {
+        return vuelos.ejecutar(baseReferencia, () -> refrescar().whenComplete(this::alTerminarRefresco));
+    }
+
+    private CompletableFuture<MatrizTasas> refrescar() {
+        MatrizTasas deDisco = snapshotMasNuevoEnDisco();
+        if (deDisco != null) {
+            publicar(deDisco);
+            return CompletableFuture.completedFuture(matriz);
+        }
+        NodoCluster c = cluster;
+        if (c != null && !c.esLider()) {
+            // seguidor: el líder ya descarga para todos; solo si no responde a tiempo se llama a la API
+            return c.pedirAlLider(matriz).thenCompose(delLider ->
+                    delLider != null ? CompletableFuture.completedFuture(delLider) : descargar());
+        }
+        return descargar();
+    }
+
+    /* Cuenta los refrescos fallidos seguidos; solo el primero de la racha se informa */
+    private void alTerminarRefresco(MatrizTasas nueva, Throwable error) {
+        if (error == null) {
+            fallosSeguidos.set(0);
+            return;
+        }
+        int fallos = fallosSeguidos.incrementAndGet();
+        long espera = ESPERA_INICIAL_NANOS << Math.min(fallos - 1, 6);
+        reintentarDesde = System.nanoTime() + Math.min(espera, ESPERA_MAXIMA_NANOS);
+        Throwable causa = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        // sin API, o con el circuito abierto, no hay nada que avisar
+        if (fallos == 1 && proveedor != null && !(causa instanceof CortaCircuitos.AbiertoException)) {
+            System.err.println("Error al refrescar /latest: " + causa.getMessage());
+        }
+    }
+
+    /* Dentro de la espera tras un refresco fallido */
+    private boolean enEspera() {
+        return fallosSeguidos.get() > 0 && System.nanoTime() - reintentarDesde < 0;
+    }
+
+    private CompletableFuture<MatrizTasas> descargar() {
+        if (proveedor == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Proveedor de tasas no configurado."));
+        }
+        return proveedor.fetchLatestMatrixAsync(baseReferencia)
+                .thenApply(nueva -> {
+                    // una respuesta más vieja que el snapshot vigente no lo reemplaza ni se persiste
+                    if (publicar(nueva)) persistir(nueva);
+                    return matriz;
+                });
+    }
+
+    /**
+     * Adopta un snapshot que llegó de otro nodo del cluster si es de la misma base y más
+     * nuevo que el actual; se persiste y se avisa a los oyentes como uno descargado.
+     */
+    public synchronized boolean adoptar(MatrizTasas nueva) {
+        if (nueva == null || !nueva.getBase().equalsIgnoreCase(baseReferencia) || !publicar(nueva)) {
+            return false;
+        }
+        persistir(nueva);
+        return true;
+    }
+
+    /* Lo llama NodoCluster.iniciar: desde entonces los refrescos de un seguidor pasan por el líder */
+    void unirseACluster(NodoCluster cluster) {
+        this.cluster = cluster;
+    }
+
+    /**
+     * Registra un oyente que recibe cada snapshot nuevo (descargado o tomado de disco).
+     * Se invoca en el hilo del refresco; los errores del oyente no afectan al motor.
+     */
+    public void alRefrescar(Consumer<MatrizTasas> oyente) {
+        oyentes.add(oyente);
+    }
+
+    /* Reemplaza el snapshot y avisa a los oyentes solo si es más nuevo que el actual */
+    private synchronized boolean publicar(MatrizTasas nueva) {
+        MatrizTasas actual = matriz;
+        if (actual != null && nueva.getObtenidaEpochMillis() <= actual.getObtenidaEpochMillis()) return false;
+        matriz = nueva;
+        for (Consumer<MatrizTasas> oyente : oyentes) {
+            try {
+                oyente.accept(nueva);
+            } catch (RuntimeException e) {
+                System.err.println("Error en oyente de tasas: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /* Multiplica ambos TTL del snapshot (1 = normales), p. ej. cuando queda poca cuota de API */
+    public void extenderTtl(int factor) {
+        factorTtl = Math.max(1, factor);
+    }
+
+    private long ttlBlando() {
+        return ttlBlandoNanos * factorTtl;
+    }
+
+    private boolean puedeRefrescar() {
+        return proveedor != null || almacen != null;
+    }
+
+    /* Snapshot del archivo si es más nuevo que el actual y no pasó el TTL blando */
+    private MatrizTasas snapshotMasNuevoEnDisco() {
+        if (almacen == null) return null;
+        long enDisco = almacen.obtenidaEpochMillis();
+        MatrizTasas actual = matriz;
+        if (enDisco < 0 || (actual != null && enDisco <= actual.getObtenidaEpochMillis())) return null;
+        if ((System.currentTimeMillis() - enDisco) * 1_000_000L >= ttlBlando()) return null;
+        MatrizTasas leida = almacen.leer();
+        return leida != null && leida.getBase().equalsIgnoreCase(baseReferencia) ? leida : null;
+    }
+
+    private void persistir(MatrizTasas nueva) {
+        if (almacen == null) return;
+        try {
+            almacen.guardar(nueva);
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar el snapshot de tasas: " + e.getMessage());
+        }
+    }
+
+    /* Contadores de coalescencia para /latest */
+    public SingleFlight<String, MatrizTasas> getVuelos() {
+        return vuelos;
+    }
+}
@@ -0,0 +1,379 @@
+package principal;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Modo cluster opcional: varios procesos comparten el snapshot /latest por UDP para que
+ * solo uno llame a la API. Cada nodo envía un latido periódico; el líder es el nodo vivo
+ * de id más bajo. El líder mantiene su snapshot fresco y lo difunde al cambiar; los demás
+ * lo adoptan y, cuando el suyo vence, se lo piden al líder en lugar de llamar a la API.
+ * Si el líder deja de latir, el siguiente id pasa a ser líder (y, si queda solo, cada
+ * nodo vuelve a descargar por su cuenta).
+ *
+ * Los mensajes van a un grupo multicast o a una lista de pares (unicast, útil en equipos o
+ * redes sin multicast). Con una clave compartida cada datagrama lleva un HMAC y se
+ * descartan los que no la conocen. Formato (big endian):
+ *
+ * <pre>
+ * int   MAGIA ("TCLU")
+ * byte  VERSION
+ * byte  tipo (LATIDO, SNAPSHOT, SOLICITUD)
+ * long  id del nodo
+ * long  época del snapshot del nodo (-1 si no tiene)
+ * ...   SNAPSHOT: la matriz en el formato de AlmacenSnapshots
+ * byte[16] HMAC-SHA256 truncado, solo con clave
+ * </pre>
+ *
+ * Un snapshot de ~160 monedas ocupa unos 2 KB y entra en un solo datagrama.
+ */
+public final class NodoCluster implements AutoCloseable {
+    private static final int MAGIA = 0x54434C55; // "TCLU"
+    private static final byte VERSION = 1;
+    private static final byte LATIDO = 1;
+    private static final byte SNAPSHOT = 2;
+    private static final byte SOLICITUD = 3;
+    private static final int CABECERA = 4 + 1 + 1 + 8 + 8;
+    private static final int LARGO_HMAC = 16;
+    private static final int MAX_DATAGRAMA = 65_507;
+
+    /**
+     * grupo: dirección multicast o null para usar solo 'pares'. latidosParaCaer: latidos
+     * perdidos tras los que un nodo se da por caído. espera: cuánto aguarda un seguidor el
+     * snapshot del líder antes de llamar a la API él mismo.
+     */
+    public record Opciones(InetSocketAddress grupo, int puerto, List<InetSocketAddress> pares,
+                           long latidoMillis, int latidosParaCaer, long esperaMillis, String clave) {
+
+        /**
+         * -Dconversor.cluster.grupo=239.255.42.99:4446 (multicast, por defecto) o
+         * -Dconversor.cluster.pares=host:puerto,... con -Dconversor.cluster.puerto propio (unicast).
+         */
+        public static Opciones defecto() {
+            String pares = System.getProperty("conversor.cluster.pares", "");
+            List<InetSocketAddress> lista = new ArrayList<>();
+            for (String par : pares.split(",")) {
+                if (!par.isBlank()) lista.add(direccion(par.trim()));
+            }
+            // con pares el multicast solo se usa si se pide explícitamente
+            String grupo = System.getProperty("conversor.cluster.grupo", lista.isEmpty() ? "239.255.42.99:4446" : "");
+            InetSocketAddress multicast = grupo.isBlank() ? null : direccion(grupo.trim());
+            int puerto = Integer.getInteger("conversor.cluster.puerto", multicast != null ? multicast.getPort() : 4446);
+            return new Opciones(multicast, puerto, lista,
+                    Long.getLong("conversor.cluster.latidoMs", 1000),
+                    Integer.getInteger("conversor.cluster.latidosParaCaer", 3),
+                    Long.getLong("conversor.cluster.esperaMs", 5000),
+                    System.getProperty("conversor.cluster.clave"));
+        }
+
+        private static InetSocketAddress direccion(String hostPuerto) {
+            int dosPuntos = hostPuerto.lastIndexOf(':');
+            if (dosPuntos <= 0) throw new IllegalArgumentException("Se esperaba host:puerto: " + hostPuerto);
+            return new InetSocketAddress(hostPuerto.substring(0, dosPuntos),
+                    Integer.parseInt(hostPuerto.substring(dosPuntos + 1)));
+        }
+    }
+
+    private record Par(SocketAddress direccion, long vistoNanos, long obtenida) { }
+
+    /* Seguidor esperando un snapshot más nuevo que 'epoca' */
+    private record Espera(long epoca, CompletableFuture<MatrizTasas> llegada) { }
+
+    private final MotorTasas motor;
+    private final Opciones opciones;
+    private final long id = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+    private final MulticastSocket socket;
+    private final Mac hmac; // null sin clave
+    private final Map<Long, Par> pares = new ConcurrentHashMap<>();
+    private final List<Espera> esperando = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService latidos;
+    private final Thread receptor;
+    private final LongAdder enviados = Metricas.global().contador("conversor_cluster_snapshots_enviados_total");
+    private final LongAdder recibidos = Metricas.global().contador("conversor_cluster_snapshots_recibidos_total");
+    private final LongAdder descartados = Metricas.global().contador("conversor_cluster_descartados_total");
+    private volatile boolean cerrado;
+
+    public NodoCluster(MotorTasas motor, Opciones opciones) throws IOException {
+        this.motor = motor;
+        this.opciones = opciones;
+        this.socket = new MulticastSocket(opciones.puerto());
+        if (opciones.grupo() != null) {
+            socket.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true); // varios procesos en un equipo
+            NetworkInterface interfaz = interfazMulticast();
+            if (interfaz != null) socket.setNetworkInterface(interfaz);
+            socket.joinGroup(opciones.grupo(), interfaz);
+        }
+        this.hmac = opciones.clave() == null || opciones.clave().isBlank() ? null : crearHmac(opciones.clave());
+        if (hmac == null) {
+            System.err.println("Cluster sin -Dconversor.cluster.clave: se aceptan snapshots de cualquier equipo de la red");
+        }
+        this.latidos = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cluster-latido");
+            t.setDaemon(true);
+            return t;
+        });
+        this.receptor = new Thread(this::recibir, "cluster-receptor");
+        receptor.setDaemon(true);
+
+        Metricas m = Metricas.global();
+        m.indicador("conversor_cluster_lider", () -> esLider() ? 1 : 0);
+        m.indicador("conversor_cluster_nodos", () -> nodosVivos() + 1);
+        m.ayuda("conversor_cluster_lider", "1 si este nodo descarga /latest para el cluster");
+    }
+
+    /**
+     * Nodo unido al cluster si -Dconversor.cluster=true; null si no está activado o el socket
+     * no se pudo abrir (el proceso sigue solo, descargando por su cuenta).
+     */
+    public static NodoCluster desdeConfiguracion(MotorTasas motor) {
+        if (!Boolean.getBoolean("conversor.cluster")) return null;
+        try {
+            NodoCluster nodo = new NodoCluster(motor, Opciones.defecto());
+            nodo.iniciar();
+            return nodo;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("No se pudo unir al cluster, se sigue sin él: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void iniciar() {
+        motor.unirseACluster(this);
+        motor.alRefrescar(m -> {
+            // solo el líder difunde: los seguidores adoptan y no reenvían
+            if (esLider()) difundir(SNAPSHOT, m);
+        });
+        receptor.start();
+        latidos.scheduleWithFixedDelay(this::latir, 0, opciones.latidoMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /* El nodo vivo de id más bajo; true también si este nodo está solo */
+    public boolean esLider() {
+        long limite = System.nanoTime() - caidoNanos();
+        for (Map.Entry<Long, Par> e : pares.entrySet()) {
+            if (e.getKey() < id && e.getValue().vistoNanos() - limite > 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Pide el snapshot al líder y espera a que llegue uno más nuevo que 'actual'; null si
+     * este nodo es el líder o si no llega a tiempo (el llamador descarga por su cuenta).
+     */
+    public CompletableFuture<MatrizTasas> pedirAlLider(MatrizTasas actual) {
+        Par lider = lider();
+        if (lider == null) return CompletableFuture.completedFuture(null);
+        long epocaActual = actual == null ? -1 : actual.getObtenidaEpochMillis();
+        Espera espera = new Espera(epocaActual, new CompletableFuture<>());
+        esperando.add(espera);
+        enviar(SOLICITUD, null, lider.direccion());
+        return espera.llegada()
+                .completeOnTimeout(null, opciones.esperaMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((m, e) -> esperando.remove(espera));
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int nodosVivos() {
+        long limite = System.nanoTime() - caidoNanos();
+        int vivos = 0;
+        for (Par p : pares.values()) if (p.vistoNanos() - limite > 0) vivos++;
+        return vivos;
+    }
+
+    @Override
+    public void close() {
+        cerrado = true;
+        latidos.shutdownNow();
+        socket.close();
+    }
+
+    // ====================== Ciclo ======================
+
+    private void latir() {
+        try {
+            difundir(LATIDO, null);
+            // los caídos ya no cuentan para líder ni vivos: se olvidan para que el mapa no crezca
+            long limite = System.nanoTime() - caidoNanos();
+            pares.values().removeIf(p -> p.vistoNanos() - limite <= 0);
+            // el líder mantiene el snapshot al día aunque nadie convierta en este nodo;
+            // matrizFresca solo descarga si pasó el TTL blando
+            if (esLider()) motor.matrizFresca().exceptionally(e -> null);
+        } catch (RuntimeException e) {
+            System.err.println("Error en latido del cluster: " + e.getMessage());
+        }
+    }
+
+    private void recibir() {
+        byte[] buffer = new byte[MAX_DATAGRAMA];
+        while (!cerrado) {
+            DatagramPacket paquete = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(paquete);
+                procesar(ByteBuffer.wrap(buffer, 0, paquete.getLength()), paquete.getSocketAddress());
+            } catch (SocketException e) {
+                if (!cerrado) System.err.println("Socket del cluster cerrado: " + e.getMessage());
+                return;
+            } catch (IOException | RuntimeException e) {
+                descartados.increment();
+            }
+        }
+    }
+
+    private void procesar(ByteBuffer datos, SocketAddress origen) {
+        if (!verificar(datos) || datos.remaining() < CABECERA
+                || datos.getInt() != MAGIA || datos.get() != VERSION) {
+            descartados.increment();
+            return;
+        }
+        byte tipo = datos.get();
+        long remitente = datos.getLong();
+        long obtenida = datos.getLong();
+        if (remitente == id) return; // eco propio del multicast
+        pares.put(remitente, new Par(origen, System.nanoTime(), obtenida));
+
+        MatrizTasas actual = motor.matrizSinRefrescar();
+        long epocaActual = actual == null ? -1 : actual.getObtenidaEpochMillis();
+        switch (tipo) {
+            case LATIDO -> {
+                // el líder tiene algo más nuevo (p. ej. nodo recién llegado o datagrama perdido)
+                Par lider = lider();
+                if (lider != null && lider.direccion().equals(origen) && obtenida > epocaActual) {
+                    enviar(SOLICITUD, null, origen);
+                }
+            }
+            case SNAPSHOT -> {
+                MatrizTasas m = AlmacenSnapshots.decodificar(datos.slice());
+                if (m == null) {
+                    descartados.increment();
+                    return;
+                }
+                recibidos.increment();
+                motor.adoptar(m);
+                for (Espera e : esperando) {
+                    if (m.getObtenidaEpochMillis() > e.epoca()) e.llegada().complete(m);
+                }
+            }
+            case SOLICITUD -> {
+                // solo responde el líder: un seguidor con la vista desfasada no debe descargar.
+                // Si el pedido llega justo cuando el snapshot venció, se responde con el que se
+                // está descargando; matrizFresca no llama a la API si el actual sigue fresco
+                if (!esLider()) return;
+                motor.matrizFresca().thenAccept(m -> {
+                    if (m != null && m.getObtenidaEpochMillis() > obtenida) enviar(SNAPSHOT, m, origen);
+                });
+            }
+            default -> descartados.increment();
+        }
+    }
+
+    /* Líder si no es este nodo; null si lo es */
+    private Par lider() {
+        long limite = System.nanoTime() - caidoNanos();
+        long menor = id;
+        Par lider = null;
+        for (Map.Entry<Long, Par> e : pares.entrySet()) {
+            if (e.getKey() < menor && e.getValue().vistoNanos() - limite > 0) {
+                menor = e.getKey();
+                lider = e.getValue();
+            }
+        }
+        return lider;
+    }
+
+    private long caidoNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(opciones.latidoMillis() * opciones.latidosParaCaer());
+    }
+
+    // ====================== Envío ======================
+
+    private void difundir(byte tipo, MatrizTasas m) {
+        if (opciones.grupo() != null) enviar(tipo, m, opciones.grupo());
+        for (InetSocketAddress par : opciones.pares()) enviar(tipo, m, par);
+    }
+
+    private void enviar(byte tipo, MatrizTasas m, SocketAddress destino) {
+        MatrizTasas propia = motor.matrizSinRefrescar();
+        int largo = CABECERA + (m == null ? 0 : AlmacenSnapshots.tamanio(m)) + (hmac == null ? 0 : LARGO_HMAC);
+        ByteBuffer datos = ByteBuffer.allocate(largo);
+        datos.putInt(MAGIA).put(VERSION).put(tipo).putLong(id)
+             .putLong(propia == null ? -1 : propia.getObtenidaEpochMillis());
+        if (m != null) AlmacenSnapshots.codificar(m, datos);
+        if (hmac != null) datos.put(firmar(datos.array(), datos.position()));
+        try {
+            socket.send(new DatagramPacket(datos.array(), largo, destino));
+            if (tipo == SNAPSHOT) enviados.increment();
+        } catch (IOException e) {
+            if (!cerrado) System.err.println("No se pudo enviar al cluster (" + destino + "): " + e.getMessage());
+        }
+    }
+
+    // ====================== Autenticación ======================
+
+    /* Sin clave todo pasa; con clave quita el HMAC del final si es válido */
+    private boolean verificar(ByteBuffer datos) {
+        if (hmac == null) return true;
+        int largo = datos.remaining() - LARGO_HMAC;
+        if (largo < CABECERA) return false;
+        byte[] esperado = firmar(datos.array(), datos.arrayOffset() + datos.position() + largo);
+        byte[] recibido = new byte[LARGO_HMAC];
+        datos.get(datos.position() + largo, recibido);
+        if (!MessageDigest.isEqual(esperado, recibido)) return false;
+        datos.limit(datos.position() + largo);
+        return true;
+    }
+
+    private byte[] firmar(byte[] datos, int largo) {
+        synchronized (hmac) {
+            hmac.update(datos, 0, largo);
+            byte[] completo = hmac.doFinal();
+            byte[] truncado = new byte[LARGO_HMAC];
+            System.arraycopy(completo, 0, truncado, 0, LARGO_HMAC);
+            return truncado;
+        }
+    }
+
+    private static Mac crearHmac(String clave) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(clave.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC no disponible: " + e.getMessage(), e);
+        }
+    }
+
+    /* -Dconversor.cluster.interfaz=lo para probar varios procesos en un equipo; null = la del sistema */
+    private static NetworkInterface interfazMulticast() throws SocketException {
+        String nombre = System.getProperty("conversor.cluster.interfaz");
+        if (nombre == null) return null;
+        NetworkInterface interfaz = NetworkInterface.getByName(nombre);
+        if (interfaz == null) throw new SocketException("No existe la interfaz " + nombre);
+        return interfaz;
+    }
+}
@@ -0,0 +1,227 @@
+package principal;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Libro de la cuota mensual de la API, persistido en un archivo mapeado en memoria para
+ * que sobreviva a reinicios y lo compartan los procesos del mismo equipo:
+ *
+ * <pre>
+ * int  MAGIA ("CUOT")
+ * int  VERSION
+ * int  mes (aaaamm, UTC)
+ * int  reservado
+ * long llamadas del mes
+ * long llamadas a /pair
+ * long llamadas a /latest
+ * </pre>
+ *
+ * Los contadores se actualizan directamente en el mapa con sumas atómicas (VarHandle sobre
+ * el ByteBuffer), así dos procesos que registran a la vez no se pisan. Al cambiar de mes
+ * gana un solo proceso (compareAndSet sobre el mes) y descuenta lo que leyó; un incremento
+ * que se cuele en ese instante queda en el mes nuevo, nunca se pierde.
+ *
+ * Según lo que queda y el ritmo de consumo el presupuesto pasa por niveles; el servicio
+ * reacciona alargando TTLs y dejando de usar /pair (ver {@link Nivel}).
+ */
+public final class PresupuestoCuota {
+    private static final int MAGIA = 0x43554F54; // "CUOT"
+    private static final int VERSION = 1;
+    private static final int TAMANIO = 4 * 4 + 3 * 8;
+    private static final int POS_MES = 8;
+    private static final int POS_USADAS = 16;
+    private static final int POS_PAIR = 24;
+    private static final int POS_LATEST = 32;
+    // mismo orden de bytes que ya usaban los archivos (el de ByteBuffer)
+    private static final VarHandle ENTERO = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LARGO = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * AHORRO: queda menos del 25 % o el ritmo actual agotaría la cuota antes de fin de mes.
+     * CRITICO: queda menos del 5 %; no se usa /pair. AGOTADO: no se llama a la API.
+     * El factor multiplica los TTL de la cache y del snapshot /latest.
+     */
+    public enum Nivel {
+        NORMAL(1), AHORRO(4), CRITICO(12), AGOTADO(720);
+
+        public final int factorTtl;
+
+        Nivel(int factorTtl) {
+            this.factorTtl = factorTtl;
+        }
+    }
+
+    /* Llamada rechazada porque la cuota del mes se agotó */
+    public static final class AgotadaException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public AgotadaException(long cuota) {
+            super("Cuota mensual de la API agotada (" + cuota + " llamadas); se usan las tasas en memoria");
+        }
+    }
+
+    private final long cuotaMensual;
+    private final ByteBuffer libro; // el archivo mapeado, o memoria propia si no se pudo abrir
+    private final List<Consumer<Nivel>> oyentes = new CopyOnWriteArrayList<>();
+    private volatile Nivel nivel = Nivel.NORMAL;
+
+    public PresupuestoCuota(Path archivo, long cuotaMensual) {
+        this.cuotaMensual = cuotaMensual;
+        ByteBuffer mapa = archivo == null ? null : mapear(archivo);
+        // las sumas atómicas piden posiciones alineadas a 8 bytes
+        this.libro = mapa != null ? mapa : ByteBuffer.allocateDirect(TAMANIO + 8).alignedSlice(8);
+        if (libro.getInt(0) != MAGIA || libro.getInt(4) != VERSION) {
+            libro.putInt(4, VERSION).putInt(POS_MES, 0)
+                 .putLong(POS_USADAS, 0).putLong(POS_PAIR, 0).putLong(POS_LATEST, 0);
+            ENTERO.setVolatile(libro, 0, MAGIA);
+        }
+        cambiarDeMesSiHaceFalta();
+        nivel = calcularNivel();
+        Metricas m = Metricas.global();
+        m.indicador("conversor_cuota_usadas", this::usadas);
+        m.indicador("conversor_cuota_restantes", this::restantes);
+        m.indicador("conversor_cuota_proyectada", this::proyectadaMes);
+        m.indicador("conversor_cuota_nivel", () -> nivel.ordinal());
+        m.ayuda("conversor_cuota_proyectada", "Llamadas a la API estimadas para el mes al ritmo actual")
+         .ayuda("conversor_cuota_nivel", "0 normal, 1 ahorro, 2 crítico, 3 agotado");
+    }
+
+    /* Cuota de -Dconversor.cuota.mensual (1500 por defecto, plan gratuito) en cache/cuota.bin */
+    public static PresupuestoCuota defecto() {
+        return new PresupuestoCuota(Path.of("cache", "cuota.bin"), Long.getLong("conversor.cuota.mensual", 1500));
+    }
+
+    /* Lanza AgotadaException si ya no quedan llamadas este mes */
+    public void permitir() throws AgotadaException {
+        if (nivel == Nivel.AGOTADO) {
+            cambiarDeMesSiHaceFalta();
+            actualizarNivel();
+            if (nivel == Nivel.AGOTADO) throw new AgotadaException(cuotaMensual);
+        }
+    }
+
+    /* Anota una llamada real a la API (cada reintento cuenta) */
+    public void registrar(boolean pair) {
+        cambiarDeMesSiHaceFalta();
+        LARGO.getAndAdd(libro, POS_USADAS, 1L);
+        LARGO.getAndAdd(libro, pair ? POS_PAIR : POS_LATEST, 1L);
+        actualizarNivel();
+    }
+
+    /* La API respondió quota-reached: el resto del mes se da por consumido */
+    public void marcarAgotada() {
+        long actual;
+        do {
+            actual = usadas();
+            if (actual >= cuotaMensual) break;
+        } while (!LARGO.compareAndSet(libro, POS_USADAS, actual, cuotaMensual));
+        actualizarNivel();
+    }
+
+    public void alCambiarNivel(Consumer<Nivel> oyente) {
+        oyentes.add(oyente);
+        oyente.accept(nivel);
+    }
+
+    public Nivel nivel() {
+        return nivel;
+    }
+
+    public long usadas() {
+        return (long) LARGO.getVolatile(libro, POS_USADAS);
+    }
+
+    public long restantes() {
+        return Math.max(0, cuotaMensual - usadas());
+    }
+
+    /* Llamadas que se habrán hecho a fin de mes si se sigue al ritmo actual */
+    public long proyectadaMes() {
+        LocalDateTime ahora = LocalDateTime.now(ZoneOffset.UTC);
+        YearMonth ym = YearMonth.from(ahora);
+        double transcurrido = Duration.between(ym.atDay(1).atStartOfDay(), ahora).toMillis();
+        double total = Duration.ofDays(ym.lengthOfMonth()).toMillis();
+        // durante la primera hora del mes la proyección no significa nada
+        if (transcurrido < 3_600_000) return usadas();
+        return Math.round(usadas() * total / transcurrido);
+    }
+
+    public String resumen() {
+        return String.format("Cuota %d/%d (pair %d, latest %d) | proyectada a fin de mes: %d | nivel: %s",
+                usadas(), cuotaMensual, (long) LARGO.getVolatile(libro, POS_PAIR),
+                (long) LARGO.getVolatile(libro, POS_LATEST), proyectadaMes(), nivel);
+    }
+
+    private void actualizarNivel() {
+        Nivel nuevo;
+        synchronized (this) {
+            nuevo = calcularNivel();
+            if (nuevo == nivel) return;
+            nivel = nuevo;
+        }
+        for (Consumer<Nivel> oyente : oyentes) {
+            try {
+                oyente.accept(nuevo);
+            } catch (RuntimeException e) {
+                System.err.println("Error en oyente de cuota: " + e.getMessage());
+            }
+        }
+    }
+
+    private Nivel calcularNivel() {
+        long usadas = usadas();
+        long restantes = cuotaMensual - usadas;
+        if (restantes <= 0) return Nivel.AGOTADO;
+        if (restantes < cuotaMensual * 0.05) return Nivel.CRITICO;
+        // la proyección solo pesa cuando ya se gastó algo de la cuota
+        if (restantes < cuotaMensual * 0.25 || (usadas >= cuotaMensual / 10 && proyectadaMes() > cuotaMensual)) {
+            return Nivel.AHORRO;
+        }
+        return Nivel.NORMAL;
+    }
+
+    /* Reinicia los contadores al empezar un mes nuevo; true si este proceso hizo el cambio */
+    private boolean cambiarDeMesSiHaceFalta() {
+        YearMonth ym = YearMonth.now(ZoneOffset.UTC);
+        int actual = ym.getYear() * 100 + ym.getMonthValue();
+        int mes = (int) ENTERO.getVolatile(libro, POS_MES);
+        if (mes == actual) return false;
+        long usadas = (long) LARGO.getVolatile(libro, POS_USADAS);
+        long pair = (long) LARGO.getVolatile(libro, POS_PAIR);
+        long latest = (long) LARGO.getVolatile(libro, POS_LATEST);
+        if (!ENTERO.compareAndSet(libro, POS_MES, mes, actual)) return false; // lo cambió otro proceso
+        // se descuenta lo leído en lugar de poner 0: lo sumado desde entonces ya es del mes nuevo
+        LARGO.getAndAdd(libro, POS_USADAS, -usadas);
+        LARGO.getAndAdd(libro, POS_PAIR, -pair);
+        LARGO.getAndAdd(libro, POS_LATEST, -latest);
+        return true;
+    }
+
+    private static ByteBuffer mapear(Path archivo) {
+        try {
+            if (archivo.getParent() != null) Files.createDirectories(archivo.getParent());
+            try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return ch.map(FileChannel.MapMode.READ_WRITE, 0, TAMANIO);
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir el libro de cuota, se lleva solo en memoria: " + e.getMessage());
+            return null;
+        }
+    }
+}
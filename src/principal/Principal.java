@@ -1,7 +1,35 @@
 package principal;
 
+import java.util.Arrays;
+
 public class Principal {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // modos sin interfaz: "convertir <origen> <destino> <monto>", "lotes <entrada> <salida>", "historial ...",
+        // "servidor [puerto]", "cuota", "simulador <dir> [puerto] [latenciaMs]"
+        if (args.length > 0 && (args[0].equalsIgnoreCase("convertir") || args[0].equalsIgnoreCase("convert"))) {
+            ConversionRapida.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("lotes")) {
+            ConversionPorLotes.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("historial")) {
+            HistorialTasas.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("servidor")) {
+            ServidorConversion.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("simulador")) {
+            ProveedorLocal.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("cuota")) {
+            System.out.println(PresupuestoCuota.defecto().resumen());
+            return;
+        }
         Conversor conversor = new Conversor();
         conversor.iniciar();
     }
@@ -0,0 +1,225 @@
+package principal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Consulta varios proveedores en paralelo.
+ * PRIMERO: gana la primera respuesta correcta (recorta la cola de latencia; los demás
+ * terminan en segundo plano). MEDIANA: espera a todos y toma la mediana de las respuestas
+ * correctas, moneda por moneda en /latest. Solo falla si fallan todos.
+ *
+ * Una matriz /latest más vieja que maxEdad (p. ej. un archivo local de hace horas) no
+ * compite: se usa solo si ningún otro proveedor trae una fresca, y entonces la más nueva.
+ * Si ganara, el motor la vería vencida y volvería a pedir /latest en cada consulta.
+ */
+public final class ProveedorCompuesto implements ProveedorTasas {
+    public enum Modo { PRIMERO, MEDIANA }
+
+    private final Modo modo;
+    private final List<ProveedorTasas> proveedores;
+    private final long maxEdadNanos;
+    private final LongAdder[] ganadas; // por proveedor: respuestas usadas (PRIMERO) o recibidas (MEDIANA)
+
+    /* Las matrices más viejas que el TTL blando del servicio no compiten */
+    public ProveedorCompuesto(Modo modo, List<ProveedorTasas> proveedores) {
+        this(modo, proveedores, ServicioTasas.TTL_BLANDO_SEGUNDOS);
+    }
+
+    public ProveedorCompuesto(Modo modo, List<ProveedorTasas> proveedores, long maxEdadSegundos) {
+        if (proveedores.isEmpty()) throw new IllegalArgumentException("Sin proveedores");
+        this.modo = modo;
+        this.maxEdadNanos = maxEdadSegundos * 1_000_000_000L;
+        this.proveedores = List.copyOf(proveedores);
+        this.ganadas = new LongAdder[this.proveedores.size()];
+        for (int i = 0; i < ganadas.length; i++) {
+            ganadas[i] = Metricas.global().contador("conversor_proveedor_respuestas_total{proveedor=\""
+                    + this.proveedores.get(i).getNombre() + "\"}");
+        }
+        Metricas.global().ayuda("conversor_proveedor_respuestas_total",
+                "Respuestas de cada proveedor usadas por el compuesto");
+    }
+
+    @Override
+    public String getNombre() {
+        return modo.name().toLowerCase() + proveedores.stream().map(ProveedorTasas::getNombre).toList();
+    }
+
+    /* Cuota del primer proveedor que la lleve: el servicio se degrada según ella */
+    @Override
+    public PresupuestoCuota getPresupuesto() {
+        for (ProveedorTasas p : proveedores) {
+            if (p.getPresupuesto() != null) return p.getPresupuesto();
+        }
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<MatrizTasas> fetchLatestMatrixAsync(String base) {
+        Function<ProveedorTasas, CompletableFuture<MatrizTasas>> llamada = p -> p.fetchLatestMatrixAsync(base);
+        if (modo == Modo.PRIMERO) return primero(llamada, this::fresca, ProveedorCompuesto::masNueva);
+        return todas(llamada).thenApply(m -> medianaMatrices(base, frescas(m)));
+    }
+
+    @Override
+    public CompletableFuture<Double> fetchPairRateAsync(String base, String target) {
+        Function<ProveedorTasas, CompletableFuture<Double>> llamada = p -> p.fetchPairRateAsync(base, target);
+        return modo == Modo.PRIMERO ? primero(llamada, t -> true, (a, b) -> a)
+                : todas(llamada).thenApply(ProveedorCompuesto::medianaTasas);
+    }
+
+    public List<ProveedorTasas> getProveedores() {
+        return proveedores;
+    }
+
+    // ====================== Combinación ======================
+
+    /**
+     * Gana la primera respuesta aceptable; las que no lo son quedan de respaldo (se conserva
+     * la mejor según 'mejor') y se usan si al terminar todos no hubo ninguna aceptable.
+     */
+    private <T> CompletableFuture<T> primero(Function<ProveedorTasas, CompletableFuture<T>> llamada,
+                                             Predicate<T> aceptable, BinaryOperator<T> mejor) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        AtomicInteger pendientes = new AtomicInteger(proveedores.size());
+        List<Throwable> errores = new ArrayList<>();
+        AtomicReference<T> respaldo = new AtomicReference<>();
+        int[] indiceRespaldo = {-1};
+        for (int i = 0; i < proveedores.size(); i++) {
+            int indice = i;
+            iniciar(llamada, proveedores.get(i)).whenComplete((valor, error) -> {
+                if (error == null && aceptable.test(valor)) {
+                    if (resultado.complete(valor)) ganadas[indice].increment();
+                } else if (error == null) {
+                    synchronized (respaldo) {
+                        T previo = respaldo.get();
+                        if (previo == null || mejor.apply(valor, previo) == valor) {
+                            respaldo.set(valor);
+                            indiceRespaldo[0] = indice;
+                        }
+                    }
+                } else {
+                    synchronized (errores) {
+                        errores.add(causa(error));
+                    }
+                }
+                if (pendientes.decrementAndGet() > 0 || resultado.isDone()) return;
+                synchronized (respaldo) {
+                    if (respaldo.get() == null) {
+                        resultado.completeExceptionally(todosFallaron(errores));
+                    } else if (resultado.complete(respaldo.get())) {
+                        ganadas[indiceRespaldo[0]].increment();
+                    }
+                }
+            });
+        }
+        return resultado;
+    }
+
+    /* Espera a todos; la lista trae solo las respuestas correctas (al menos una) */
+    private <T> CompletableFuture<List<T>> todas(Function<ProveedorTasas, CompletableFuture<T>> llamada) {
+        List<CompletableFuture<T>> futuros = new ArrayList<>(proveedores.size());
+        for (ProveedorTasas p : proveedores) futuros.add(iniciar(llamada, p));
+        return CompletableFuture.allOf(futuros.stream()
+                        .map(f -> f.exceptionally(e -> null)).toArray(CompletableFuture[]::new))
+                .thenApply(x -> {
+                    List<T> correctas = new ArrayList<>(futuros.size());
+                    List<Throwable> errores = new ArrayList<>();
+                    for (int i = 0; i < futuros.size(); i++) {
+                        CompletableFuture<T> f = futuros.get(i);
+                        if (f.isCompletedExceptionally()) {
+                            errores.add(causa(f.handle((v, e) -> e).join()));
+                        } else {
+                            correctas.add(f.join());
+                            ganadas[i].increment();
+                        }
+                    }
+                    if (correctas.isEmpty()) throw new CompletionException(todosFallaron(errores));
+                    return correctas;
+                });
+    }
+
+    /* Un proveedor que lanza al crear el future cuenta como uno que falló */
+    private static <T> CompletableFuture<T> iniciar(Function<ProveedorTasas, CompletableFuture<T>> llamada,
+                                                    ProveedorTasas p) {
+        try {
+            return llamada.apply(p);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private boolean fresca(MatrizTasas m) {
+        return m.edadNanos() < maxEdadNanos;
+    }
+
+    private static MatrizTasas masNueva(MatrizTasas a, MatrizTasas b) {
+        return a.getObtenidaEpochMillis() >= b.getObtenidaEpochMillis() ? a : b;
+    }
+
+    /* Solo las frescas, si hay alguna: una vieja arrastraría la hora de la mediana */
+    private List<MatrizTasas> frescas(List<MatrizTasas> matrices) {
+        List<MatrizTasas> frescas = new ArrayList<>(matrices.size());
+        for (MatrizTasas m : matrices) if (fresca(m)) frescas.add(m);
+        if (!frescas.isEmpty()) return frescas;
+        return List.of(matrices.stream().reduce(ProveedorCompuesto::masNueva).orElseThrow());
+    }
+
+    static double medianaTasas(List<Double> tasas) {
+        double[] v = new double[tasas.size()];
+        for (int i = 0; i < v.length; i++) v[i] = tasas.get(i);
+        return mediana(v, v.length);
+    }
+
+    /* Mediana moneda por moneda; la hora es la del snapshot más viejo */
+    static MatrizTasas medianaMatrices(String base, List<MatrizTasas> matrices) {
+        if (matrices.size() == 1) return matrices.get(0);
+        Map<String, double[]> porCodigo = new HashMap<>();
+        Map<String, Integer> cuantas = new HashMap<>();
+        long obtenida = Long.MAX_VALUE;
+        for (MatrizTasas m : matrices) {
+            obtenida = Math.min(obtenida, m.getObtenidaEpochMillis());
+            for (int i = 0; i < m.tamanio(); i++) {
+                String codigo = m.codigo(i);
+                int n = cuantas.merge(codigo, 1, Integer::sum);
+                porCodigo.computeIfAbsent(codigo, c -> new double[matrices.size()])[n - 1] = m.tasaDesdeBase(i);
+            }
+        }
+        int[] claves = new int[porCodigo.size()];
+        double[] valores = new double[porCodigo.size()];
+        int n = 0;
+        for (Map.Entry<String, double[]> e : porCodigo.entrySet()) {
+            claves[n] = Utilidades.empaquetarCodigo(e.getKey());
+            valores[n] = mediana(e.getValue(), cuantas.get(e.getKey()));
+            n++;
+        }
+        return MatrizTasas.desde(base, claves, valores, n, obtenida);
+    }
+
+    private static double mediana(double[] v, int n) {
+        Arrays.sort(v, 0, n);
+        return n % 2 == 1 ? v[n / 2] : (v[n / 2 - 1] + v[n / 2]) / 2;
+    }
+
+    private static IOException todosFallaron(List<Throwable> errores) {
+        IOException e = new IOException("Fallaron todos los proveedores: " + errores.get(0).getMessage(), errores.get(0));
+        for (int i = 1; i < errores.size(); i++) e.addSuppressed(errores.get(i));
+        return e;
+    }
+
+    private static Throwable causa(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
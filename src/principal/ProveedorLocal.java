@@ -0,0 +1,194 @@
+package principal;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Proveedor sin red: lee respuestas de /latest guardadas como archivos {BASE}.json en un
+ * directorio (el mismo formato que devuelve la API). Si no hay archivo para una base, la
+ * matriz se deriva de cualquier otro archivo que la contenga. /pair sale de la matriz.
+ *
+ * Sirve para trabajar sin conexión y para pruebas de carga: con latenciaMillis imita el
+ * tiempo de respuesta de la API, y servirComoApi lo expone como un servidor HTTP con las
+ * mismas rutas que ExchangeRate-API para probar también el cliente.
+ */
+public final class ProveedorLocal implements ProveedorTasas {
+    private final Path directorio;
+    private final long latenciaMillis;
+    // archivo ya leído, con su fecha de modificación para releerlo si cambia
+    private final Map<Path, Leida> leidas = new ConcurrentHashMap<>();
+
+    private record Leida(long modificado, MatrizTasas matriz) { }
+
+    public ProveedorLocal(Path directorio) {
+        this(directorio, 0);
+    }
+
+    public ProveedorLocal(Path directorio, long latenciaMillis) {
+        this.directorio = directorio;
+        this.latenciaMillis = latenciaMillis;
+    }
+
+    @Override
+    public String getNombre() {
+        return "local";
+    }
+
+    @Override
+    public CompletableFuture<MatrizTasas> fetchLatestMatrixAsync(String base) {
+        CompletableFuture<MatrizTasas> resultado;
+        try {
+            resultado = CompletableFuture.completedFuture(matriz(base));
+        } catch (IOException e) {
+            resultado = CompletableFuture.failedFuture(e);
+        }
+        return demorar(resultado);
+    }
+
+    @Override
+    public CompletableFuture<Double> fetchPairRateAsync(String base, String target) {
+        return fetchLatestMatrixAsync(base).thenApply(m -> {
+            double tasa = m.tasa(base, target);
+            if (Double.isNaN(tasa)) {
+                throw new IllegalArgumentException("Par no disponible en " + directorio + ": " + base + "->" + target);
+            }
+            return tasa;
+        });
+    }
+
+    /* Matriz con base 'base' desde {base}.json o derivada de otro archivo que la contenga */
+    MatrizTasas matriz(String base) throws IOException {
+        Path propio = directorio.resolve(base.toUpperCase() + ".json");
+        if (Files.isRegularFile(propio)) return leer(propio);
+        if (!Files.isDirectory(directorio)) throw new IOException("No existe el directorio de tasas " + directorio);
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            for (Path archivo : (Iterable<Path>) archivos.filter(p -> p.toString().endsWith(".json"))::iterator) {
+                MatrizTasas m = leer(archivo);
+                if (m.contiene(base)) return rebasar(m, base);
+            }
+        }
+        throw new IOException("Sin tasas locales para " + base + " en " + directorio);
+    }
+
+    private MatrizTasas leer(Path archivo) throws IOException {
+        long modificado = Files.getLastModifiedTime(archivo).toMillis();
+        Leida previa = leidas.get(archivo);
+        if (previa != null && previa.modificado == modificado) return previa.matriz;
+
+        LectorTasasJson json;
+        try (InputStream in = Files.newInputStream(archivo)) {
+            json = LectorTasasJson.leer(in);
+        }
+        if (json.esError() || json.cantidad == 0) {
+            throw new IOException("Archivo sin conversion_rates: " + archivo);
+        }
+        String base = json.baseCode != null ? json.baseCode
+                : archivo.getFileName().toString().replace(".json", "").toUpperCase();
+        // la fecha del archivo hace de hora de obtención: un archivo viejo se ve viejo
+        MatrizTasas m = MatrizTasas.desde(base, json.claves, json.tasas, json.cantidad, modificado);
+        leidas.put(archivo, new Leida(modificado, m));
+        return m;
+    }
+
+    /* Misma matriz expresada con otra base: tasa[i] / tasa[base] */
+    private static MatrizTasas rebasar(MatrizTasas m, String base) {
+        int iBase = m.indice(base);
+        double divisor = m.tasaDesdeBase(iBase);
+        int[] claves = new int[m.tamanio()];
+        double[] valores = new double[m.tamanio()];
+        for (int i = 0; i < m.tamanio(); i++) {
+            claves[i] = Utilidades.empaquetarCodigo(m.codigo(i));
+            valores[i] = i == iBase ? 1.0 : m.tasaDesdeBase(i) / divisor;
+        }
+        return MatrizTasas.desde(base, claves, valores, claves.length, m.getObtenidaEpochMillis());
+    }
+
+    private <T> CompletableFuture<T> demorar(CompletableFuture<T> futuro) {
+        if (latenciaMillis <= 0) return futuro;
+        return CompletableFuture.runAsync(() -> { },
+                        CompletableFuture.delayedExecutor(latenciaMillis, TimeUnit.MILLISECONDS))
+                .thenCompose(x -> futuro);
+    }
+
+    // ====================== Servidor que imita a la API ======================
+
+    /**
+     * Expone este proveedor en http://localhost:{puerto}/v6 con las rutas de la API
+     * (/{key}/latest/{base} y /{key}/pair/{base}/{target}); la key se ignora.
+     * Puerto 0 elige uno libre.
+     */
+    public HttpServer servirComoApi(int puerto) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", puerto), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v6/", this::responder);
+        server.start();
+        return server;
+    }
+
+    private void responder(HttpExchange ex) throws IOException {
+        try (ex) {
+            // /v6/{key}/latest/{base} ó /v6/{key}/pair/{base}/{target}
+            String[] partes = ex.getRequestURI().getPath().split("/");
+            String cuerpo;
+            int status = 200;
+            try {
+                if (partes.length == 5 && partes[3].equals("latest")) {
+                    cuerpo = jsonLatest(fetchLatestMatrixAsync(partes[4]).join());
+                } else if (partes.length == 6 && partes[3].equals("pair")) {
+                    double tasa = fetchPairRateAsync(partes[4], partes[5]).join();
+                    cuerpo = "{\"result\":\"success\",\"base_code\":\"" + partes[4].toUpperCase()
+                            + "\",\"target_code\":\"" + partes[5].toUpperCase() + "\",\"conversion_rate\":" + tasa + "}";
+                } else {
+                    status = 404;
+                    cuerpo = "{\"result\":\"error\",\"error-type\":\"malformed-request\"}";
+                }
+            } catch (RuntimeException e) {
+                status = 404;
+                cuerpo = "{\"result\":\"error\",\"error-type\":\"unsupported-code\"}";
+            }
+            byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json");
+            ex.sendResponseHeaders(status, bytes.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+
+    private static String jsonLatest(MatrizTasas m) {
+        StringBuilder sb = new StringBuilder(32 * m.tamanio());
+        sb.append("{\"result\":\"success\",\"time_last_update_unix\":").append(m.getObtenidaEpochMillis() / 1000)
+          .append(",\"base_code\":\"").append(m.getBase()).append("\",\"conversion_rates\":{");
+        for (int i = 0; i < m.tamanio(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(m.codigo(i)).append("\":").append(m.tasaDesdeBase(i));
+        }
+        return sb.append("}}").toString();
+    }
+
+    /** Uso: simulador <directorio> [puerto] [latenciaMs] */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: simulador <directorio con {BASE}.json> [puerto] [latenciaMs]");
+            return;
+        }
+        int puerto = args.length > 1 ? Integer.parseInt(args[1]) : 8090;
+        long latencia = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        HttpServer server = new ProveedorLocal(Path.of(args[0]), latencia).servirComoApi(puerto);
+        System.out.println("API simulada en http://localhost:" + server.getAddress().getPort() + "/v6");
+    }
+}
@@ -0,0 +1,38 @@
+package principal;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Origen de tasas (RateProvider): la API real, archivos locales o una combinación de varios.
+ * El servicio y el motor solo ven esta interfaz; sin proveedor (null) trabajan únicamente
+ * con la cache y el snapshot persistido.
+ */
+public interface ProveedorTasas {
+
+    /* Nombre corto para métricas y mensajes */
+    String getNombre();
+
+    /* Todas las tasas de base como MatrizTasas (ó excepción) */
+    CompletableFuture<MatrizTasas> fetchLatestMatrixAsync(String base);
+
+    /* Tasa base -> target (ó excepción si el proveedor no conoce el par) */
+    CompletableFuture<Double> fetchPairRateAsync(String base, String target);
+
+    /* Libro de la cuota mensual si el proveedor la consume; null si no */
+    default PresupuestoCuota getPresupuesto() {
+        return null;
+    }
+
+    /* Versión bloqueante de fetchLatestMatrixAsync; vacío si falla */
+    default Optional<MatrizTasas> fetchLatestMatrix(String base) {
+        try {
+            return Optional.of(fetchLatestMatrixAsync(base).join());
+        } catch (CompletionException e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Error al consultar /latest: " + causa.getMessage());
+            return Optional.empty();
+        }
+    }
+}
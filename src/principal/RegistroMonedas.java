@@ -0,0 +1,320 @@
+package principal;
+
+import java.util.Arrays;
+
+/**
+ * Registro de monedas: cada código ISO 4217 conocido tiene un ordinal denso (0..cantidad-1)
+ * con sus decimales y su nombre. La búsqueda es una tabla indexada por el código empaquetado
+ * en 15 bits (ver Utilidades.empaquetarCodigo), sin hash ni asignaciones: acepta minúsculas
+ * y espacios alrededor y devuelve siempre la misma instancia de String por código.
+ *
+ * Un código fuera del registro se rechaza antes de llamar a la API. Los que trae un snapshot
+ * /latest (la API agrega monedas de vez en cuando) se aprenden con aprender().
+ */
+public final class RegistroMonedas {
+
+    // código, decimales (ISO 4217; 2 donde no aplica) y nombre
+    private static final String DATOS = """
+            AED 2 Dírham de los Emiratos Árabes Unidos
+            AFN 2 Afgani afgano
+            ALL 2 Lek albanés
+            AMD 2 Dram armenio
+            ANG 2 Florín antillano neerlandés
+            AOA 2 Kwanza angoleño
+            ARS 2 Peso argentino
+            AUD 2 Dólar australiano
+            AWG 2 Florín arubeño
+            AZN 2 Manat azerbaiyano
+            BAM 2 Marco convertible de Bosnia y Herzegovina
+            BBD 2 Dólar de Barbados
+            BDT 2 Taka bangladesí
+            BGN 2 Lev búlgaro
+            BHD 3 Dinar bareiní
+            BIF 0 Franco burundés
+            BMD 2 Dólar bermudeño
+            BND 2 Dólar de Brunéi
+            BOB 2 Boliviano
+            BOV 2 Mvdol boliviano
+            BRL 2 Real brasileño
+            BSD 2 Dólar bahameño
+            BTN 2 Ngultrum butanés
+            BWP 2 Pula de Botsuana
+            BYN 2 Rublo bielorruso
+            BZD 2 Dólar beliceño
+            CAD 2 Dólar canadiense
+            CDF 2 Franco congoleño
+            CHE 2 Euro WIR
+            CHF 2 Franco suizo
+            CHW 2 Franco WIR
+            CLF 4 Unidad de fomento chilena
+            CLP 0 Peso chileno
+            CNY 2 Yuan chino
+            COP 2 Peso colombiano
+            COU 2 Unidad de valor real colombiana
+            CRC 2 Colón costarricense
+            CUP 2 Peso cubano
+            CVE 2 Escudo caboverdiano
+            CZK 2 Corona checa
+            DJF 0 Franco yibutiano
+            DKK 2 Corona danesa
+            DOP 2 Peso dominicano
+            DZD 2 Dinar argelino
+            EGP 2 Libra egipcia
+            ERN 2 Nakfa eritreo
+            ETB 2 Birr etíope
+            EUR 2 Euro
+            FJD 2 Dólar fiyiano
+            FKP 2 Libra malvinense
+            FOK 2 Corona feroesa
+            GBP 2 Libra esterlina
+            GEL 2 Lari georgiano
+            GGP 2 Libra de Guernsey
+            GHS 2 Cedi ghanés
+            GIP 2 Libra gibraltareña
+            GMD 2 Dalasi gambiano
+            GNF 0 Franco guineano
+            GTQ 2 Quetzal guatemalteco
+            GYD 2 Dólar guyanés
+            HKD 2 Dólar de Hong Kong
+            HNL 2 Lempira hondureño
+            HRK 2 Kuna croata
+            HTG 2 Gourde haitiano
+            HUF 2 Forinto húngaro
+            IDR 2 Rupia indonesia
+            ILS 2 Nuevo séquel israelí
+            IMP 2 Libra manesa
+            INR 2 Rupia india
+            IQD 3 Dinar iraquí
+            IRR 2 Rial iraní
+            ISK 0 Corona islandesa
+            JEP 2 Libra de Jersey
+            JMD 2 Dólar jamaicano
+            JOD 3 Dinar jordano
+            JPY 0 Yen japonés
+            KES 2 Chelín keniano
+            KGS 2 Som kirguís
+            KHR 2 Riel camboyano
+            KID 2 Dólar de Kiribati
+            KMF 0 Franco comorense
+            KPW 2 Won norcoreano
+            KRW 0 Won surcoreano
+            KWD 3 Dinar kuwaití
+            KYD 2 Dólar de las Islas Caimán
+            KZT 2 Tenge kazajo
+            LAK 2 Kip laosiano
+            LBP 2 Libra libanesa
+            LKR 2 Rupia de Sri Lanka
+            LRD 2 Dólar liberiano
+            LSL 2 Loti lesotense
+            LYD 3 Dinar libio
+            MAD 2 Dírham marroquí
+            MDL 2 Leu moldavo
+            MGA 2 Ariary malgache
+            MKD 2 Denar macedonio
+            MMK 2 Kyat birmano
+            MNT 2 Tugrik mongol
+            MOP 2 Pataca de Macao
+            MRU 2 Uguiya mauritana
+            MUR 2 Rupia mauriciana
+            MVR 2 Rufiyaa maldiva
+            MWK 2 Kwacha malauí
+            MXN 2 Peso mexicano
+            MXV 2 Unidad de inversión mexicana
+            MYR 2 Ringgit malayo
+            MZN 2 Metical mozambiqueño
+            NAD 2 Dólar namibio
+            NGN 2 Naira nigeriana
+            NIO 2 Córdoba nicaragüense
+            NOK 2 Corona noruega
+            NPR 2 Rupia nepalí
+            NZD 2 Dólar neozelandés
+            OMR 3 Rial omaní
+            PAB 2 Balboa panameño
+            PEN 2 Sol peruano
+            PGK 2 Kina de Papúa Nueva Guinea
+            PHP 2 Peso filipino
+            PKR 2 Rupia pakistaní
+            PLN 2 Esloti polaco
+            PYG 0 Guaraní paraguayo
+            QAR 2 Riyal catarí
+            RON 2 Leu rumano
+            RSD 2 Dinar serbio
+            RUB 2 Rublo ruso
+            RWF 0 Franco ruandés
+            SAR 2 Riyal saudí
+            SBD 2 Dólar de las Islas Salomón
+            SCR 2 Rupia seychellense
+            SDG 2 Libra sudanesa
+            SEK 2 Corona sueca
+            SGD 2 Dólar de Singapur
+            SHP 2 Libra de Santa Elena
+            SLE 2 Leone sierraleonés
+            SLL 2 Leone sierraleonés (antiguo)
+            SOS 2 Chelín somalí
+            SRD 2 Dólar surinamés
+            SSP 2 Libra sursudanesa
+            STN 2 Dobra santotomense
+            SVC 2 Colón salvadoreño
+            SYP 2 Libra siria
+            SZL 2 Lilangeni suazi
+            THB 2 Baht tailandés
+            TJS 2 Somoni tayiko
+            TMT 2 Manat turcomano
+            TND 3 Dinar tunecino
+            TOP 2 Paanga tongano
+            TRY 2 Lira turca
+            TTD 2 Dólar de Trinidad y Tobago
+            TVD 2 Dólar tuvaluano
+            TWD 2 Nuevo dólar taiwanés
+            TZS 2 Chelín tanzano
+            UAH 2 Grivna ucraniana
+            UGX 0 Chelín ugandés
+            USD 2 Dólar estadounidense
+            USN 2 Dólar estadounidense (día siguiente)
+            UYI 0 Peso uruguayo en unidades indexadas
+            UYU 2 Peso uruguayo
+            UYW 4 Unidad previsional uruguaya
+            UZS 2 Som uzbeko
+            VED 2 Bolívar digital venezolano
+            VES 2 Bolívar soberano venezolano
+            VND 0 Dong vietnamita
+            VUV 0 Vatu vanuatuense
+            WST 2 Tala samoano
+            XAF 0 Franco CFA de África Central
+            XAG 2 Plata (onza troy)
+            XAU 2 Oro (onza troy)
+            XCD 2 Dólar del Caribe Oriental
+            XCG 2 Florín del Caribe
+            XDR 2 Derechos especiales de giro
+            XOF 0 Franco CFA de África Occidental
+            XPD 2 Paladio (onza troy)
+            XPF 0 Franco CFP
+            XPT 2 Platino (onza troy)
+            YER 2 Rial yemení
+            ZAR 2 Rand sudafricano
+            ZMW 2 Kwacha zambiano
+            ZWG 2 Oro de Zimbabue
+            ZWL 2 Dólar zimbabuense
+            """;
+
+    private static final int DECIMALES_DEFECTO = 2;
+
+    /* ordinales: código empaquetado -> ordinal + 1 (0 = desconocido); el resto, por ordinal */
+    private record Tabla(short[] ordinales, String[] codigos, byte[] decimales, String[] nombres) { }
+
+    // se reemplaza entera al aprender un código: las lecturas no toman locks
+    private static volatile Tabla tabla = cargar();
+
+    private RegistroMonedas() {
+    }
+
+    /* Ordinal del código ("usd", " EUR ") o -1 si no está en el registro */
+    public static int ordinal(CharSequence codigo) {
+        return codigo == null ? -1 : ordinal(codigo, 0, codigo.length());
+    }
+
+    /* Igual que ordinal(CharSequence) sobre texto[inicio, fin), sin recortar ni copiar */
+    public static int ordinal(CharSequence texto, int inicio, int fin) {
+        while (inicio < fin && Character.isWhitespace(texto.charAt(inicio))) inicio++;
+        while (fin > inicio && Character.isWhitespace(texto.charAt(fin - 1))) fin--;
+        if (fin - inicio != 3) return -1;
+        int clave = 0;
+        for (int i = inicio; i < fin; i++) {
+            char c = texto.charAt(i);
+            if ((c < 'A' || c > 'Z') && (c < 'a' || c > 'z')) return -1;
+            clave = (clave << 5) | (c & 0x1F);
+        }
+        return tabla.ordinales[clave] - 1;
+    }
+
+    /* Ordinal de un código ya empaquetado; -1 si no está */
+    public static int ordinalDeClave(int clave) {
+        return clave < 0 || clave >= 1 << 15 ? -1 : tabla.ordinales[clave] - 1;
+    }
+
+    /* Código en mayúsculas (siempre la misma instancia) o null si no es una moneda conocida */
+    public static String normalizar(CharSequence codigo) {
+        int o = ordinal(codigo);
+        return o < 0 ? null : tabla.codigos[o];
+    }
+
+    public static String normalizar(CharSequence texto, int inicio, int fin) {
+        int o = ordinal(texto, inicio, fin);
+        return o < 0 ? null : tabla.codigos[o];
+    }
+
+    public static boolean conocida(CharSequence codigo) {
+        return ordinal(codigo) >= 0;
+    }
+
+    public static String codigo(int ordinal) {
+        return tabla.codigos[ordinal];
+    }
+
+    public static int decimales(int ordinal) {
+        return tabla.decimales[ordinal];
+    }
+
+    /* Decimales según ISO 4217; 2 para códigos fuera del registro */
+    public static int decimales(CharSequence codigo) {
+        int o = ordinal(codigo);
+        return o < 0 ? DECIMALES_DEFECTO : tabla.decimales[o];
+    }
+
+    /* Nombre para mostrar; el código mismo si no hay uno registrado */
+    public static String nombre(int ordinal) {
+        Tabla t = tabla;
+        return t.nombres[ordinal] != null ? t.nombres[ordinal] : t.codigos[ordinal];
+    }
+
+    public static int cantidad() {
+        return tabla.codigos.length;
+    }
+
+    /**
+     * Registra las monedas de un snapshot que todavía no estén (con 2 decimales y sin nombre).
+     * Es el oyente de MotorTasas.alRefrescar; sin códigos nuevos no copia nada.
+     */
+    public static void aprender(MatrizTasas m) {
+        if (m == null) return;
+        Tabla t = tabla;
+        boolean nuevos = false;
+        for (int i = 0; i < m.tamanio() && !nuevos; i++) nuevos = t.ordinales[m.codigoEmpaquetado(i)] == 0;
+        if (!nuevos) return;
+        synchronized (RegistroMonedas.class) {
+            t = tabla;
+            short[] ordinales = t.ordinales.clone();
+            String[] codigos = t.codigos;
+            byte[] decimales = t.decimales;
+            String[] nombres = t.nombres;
+            for (int i = 0; i < m.tamanio(); i++) {
+                int clave = m.codigoEmpaquetado(i);
+                if (ordinales[clave] != 0) continue;
+                int n = codigos.length;
+                codigos = Arrays.copyOf(codigos, n + 1);
+                decimales = Arrays.copyOf(decimales, n + 1);
+                nombres = Arrays.copyOf(nombres, n + 1);
+                codigos[n] = Utilidades.desempaquetarCodigo(clave);
+                decimales[n] = DECIMALES_DEFECTO;
+                ordinales[clave] = (short) (n + 1);
+            }
+            tabla = new Tabla(ordinales, codigos, decimales, nombres);
+        }
+    }
+
+    private static Tabla cargar() {
+        String[] lineas = DATOS.split("\n");
+        short[] ordinales = new short[1 << 15];
+        String[] codigos = new String[lineas.length];
+        byte[] decimales = new byte[lineas.length];
+        String[] nombres = new String[lineas.length];
+        for (int n = 0; n < lineas.length; n++) {
+            String linea = lineas[n];
+            codigos[n] = linea.substring(0, 3);
+            decimales[n] = (byte) (linea.charAt(4) - '0');
+            nombres[n] = linea.substring(6);
+            ordinales[Utilidades.empaquetarCodigo(codigos[n])] = (short) (n + 1);
+        }
+        return new Tabla(ordinales, codigos, decimales, nombres);
+    }
+}
@@ -0,0 +1,453 @@
+package principal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Rutas de conversión de varios saltos sobre un grafo de monedas, para pares que ni el
+ * snapshot /latest ni la API cotizan directamente (p. ej. una moneda que solo aparece en
+ * una cotización /pair). Las aristas son:
+ * - todas las parejas de monedas del snapshot /latest (su tasa cruzada cuenta como un salto);
+ * - cada cotización /pair recibida, usable en los dos sentidos (1/tasa al revés).
+ *
+ * La búsqueda es un Dijkstra lexicográfico sobre arreglos primitivos (unos 170 nodos,
+ * microsegundos): MENOS_SALTOS minimiza saltos y desempata por la arista más vieja;
+ * MAS_RECIENTE minimiza la edad de la arista más vieja y desempata por saltos. Los estados
+ * son (moneda, saltos): con MAS_RECIENTE un camino más nuevo pero más largo no tapa a uno
+ * más corto que todavía puede seguir sin pasar de MAX_SALTOS.
+ *
+ * Las rutas entre las monedas de interés se precalculan. Al refrescarse las tasas solo se
+ * recalcula la tasa a lo largo de cada ruta guardada; la búsqueda se repite cuando cambia
+ * el grafo (una moneda o una cotización nueva) o, con MAS_RECIENTE, cuando cambian edades.
+ */
+public final class RutasTasas {
+    public enum Criterio { MENOS_SALTOS, MAS_RECIENTE }
+
+    public static final int MAX_SALTOS = 4;
+    private static final int SIN_NODO = -1;
+    private static final int ARISTA_MATRIZ = -1;
+    private static final int ESTADOS = MAX_SALTOS + 1; // estados por nodo, uno por cantidad de saltos
+
+    /* Camino encontrado; tasa = producto de las tasas de cada salto */
+    public record Ruta(List<String> monedas, double tasa, long masViejaNanos) {
+        public int saltos() {
+            return monedas.size() - 1;
+        }
+
+        /* Edad de la tasa más vieja del camino */
+        public long edadNanos() {
+            return System.nanoTime() - masViejaNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.join(" -> ", monedas);
+        }
+    }
+
+    private final Criterio criterio;
+    private final long maxEdadNanos;
+    private final LongSupplier relojNanos; // System::nanoTime salvo en pruebas
+    private volatile int factorTtl = 1;
+
+    // nodos: código empaquetado (15 bits) <-> índice denso
+    private final int[] nodoPorCodigo = new int[1 << 15];
+    private int[] codigoDeNodo = new int[256];
+    private int nodos;
+
+    // snapshot /latest: ordinal en la matriz por nodo (-1 si la moneda no está)
+    private MatrizTasas matriz;
+    private int[] ordinalEnMatriz = new int[256];
+
+    // cotizaciones /pair: aristas en arreglos paralelos + adyacencia por nodo
+    private final Map<Integer, Integer> aristaPorPar = new HashMap<>();
+    private int[] aristaDesde = new int[64];
+    private int[] aristaHasta = new int[64];
+    private double[] aristaTasa = new double[64];
+    private long[] aristaObtenida = new long[64]; // relojNanos
+    private int aristas;
+    private int[][] adyacentes = new int[256][];
+    private int[] grado = new int[256];
+
+    // arreglos de trabajo de la búsqueda (bajo el monitor); estado = nodo * ESTADOS + saltos
+    private long[] edadEstado = new long[256 * ESTADOS];
+    private int[] previo = new int[256 * ESTADOS];
+    private int[] aristaPrevia = new int[256 * ESTADOS];
+    private int[] saltosCerrado = new int[256]; // menos saltos con que se cerró el nodo (ESTADOS = abierto)
+    private int[] mejorEstado = new int[256];   // primer estado cerrado del nodo: el de menor costo
+    private int[] colaEstado = new int[256];
+    private long[] colaPrimario = new long[256];
+    private long[] colaSecundario = new long[256];
+    private int enCola;
+
+    // rutas precalculadas entre monedas de interés: caminos (nodos + aristas) y su Ruta vigente
+    private int[] interes = new int[0];
+    private int[][] caminoNodos = new int[0][];
+    private int[][] caminoAristas = new int[0][];
+    private volatile Tabla tabla = new Tabla(null, 0, new Ruta[0]);
+    private boolean grafoCambiado;
+
+    /* Lo que leen las consultas sin tomar el monitor: posición por código empaquetado (-1 = no
+       es de interés) y rutas k x k */
+    private record Tabla(int[] posiciones, int k, Ruta[] rutas) { }
+
+    public RutasTasas(Criterio criterio, long maxEdadSegundos) {
+        this(criterio, maxEdadSegundos, System::nanoTime);
+    }
+
+    /* Con otro reloj (en nanos, el mismo de System.nanoTime en Ruta), para probar edades sin esperar */
+    RutasTasas(Criterio criterio, long maxEdadSegundos, LongSupplier relojNanos) {
+        this.criterio = criterio;
+        this.relojNanos = relojNanos;
+        this.maxEdadNanos = maxEdadSegundos * 1_000_000_000L;
+        Arrays.fill(nodoPorCodigo, SIN_NODO);
+    }
+
+    // ====================== Actualización del grafo ======================
+
+    /* Oyente de MotorTasas.alRefrescar */
+    public synchronized void actualizarMatriz(MatrizTasas nueva) {
+        if (nueva == null || nueva == matriz) return;
+        boolean mismasMonedas = matriz != null && mismasMonedas(matriz, nueva);
+        matriz = nueva;
+        if (!mismasMonedas) {
+            Arrays.fill(ordinalEnMatriz, 0, nodos, -1);
+            for (int i = 0; i < nueva.tamanio(); i++) {
+                ordinalEnMatriz[nodo(nueva.codigoEmpaquetado(i))] = i;
+            }
+            grafoCambiado = true;
+        }
+        actualizarPrecalculadas();
+    }
+
+    /* Cotización directa base -> destino (p. ej. de /pair) */
+    public synchronized void registrarPar(String base, String destino, double tasa) {
+        int cb = Utilidades.empaquetarCodigo(base);
+        int cd = Utilidades.empaquetarCodigo(destino);
+        if (cb < 0 || cd < 0 || cb == cd || !(tasa > 0) || Double.isInfinite(tasa)) return;
+        int a = nodo(cb);
+        int b = nodo(cd);
+        Integer existente = aristaPorPar.get((cb << 15) | cd);
+        if (existente == null) existente = aristaPorPar.get((cd << 15) | cb);
+        int e;
+        if (existente != null) {
+            e = existente;
+            // guardada en el otro sentido: se invierte
+            aristaTasa[e] = aristaDesde[e] == a ? tasa : 1 / tasa;
+        } else {
+            e = nuevaArista(a, b, tasa);
+            aristaPorPar.put((cb << 15) | cd, e);
+            grafoCambiado = true;
+        }
+        aristaObtenida[e] = relojNanos.getAsLong();
+        actualizarPrecalculadas();
+    }
+
+    /* Multiplica la edad máxima aceptada de las cotizaciones (igual que los TTL de la cache) */
+    public void extenderTtl(int factor) {
+        factorTtl = Math.max(1, factor);
+    }
+
+    /**
+     * Monedas entre las que se precalculan todas las rutas; las consultas de esos pares
+     * solo leen la tabla.
+     */
+    public synchronized void precalcular(List<String> monedas) {
+        List<Integer> nodosInteres = new ArrayList<>();
+        int[] posiciones = new int[1 << 15];
+        Arrays.fill(posiciones, -1);
+        for (String m : monedas) {
+            int c = Utilidades.empaquetarCodigo(m);
+            if (c < 0 || posiciones[c] >= 0) continue;
+            posiciones[c] = nodosInteres.size();
+            nodosInteres.add(nodo(c));
+        }
+        interes = nodosInteres.stream().mapToInt(Integer::intValue).toArray();
+        int k = interes.length;
+        caminoNodos = new int[k * k][];
+        caminoAristas = new int[k * k][];
+        tabla = new Tabla(posiciones, k, new Ruta[k * k]);
+        grafoCambiado = true;
+        actualizarPrecalculadas();
+    }
+
+    // ====================== Consultas ======================
+
+    /* Mejor ruta base -> destino, o null si no hay ninguna de hasta MAX_SALTOS saltos vigentes */
+    public Ruta ruta(String base, String destino) {
+        int cb = Utilidades.empaquetarCodigo(base);
+        int cd = Utilidades.empaquetarCodigo(destino);
+        if (cb < 0 || cd < 0) return null;
+        Tabla t = tabla;
+        if (t.k > 0 && t.posiciones[cb] >= 0 && t.posiciones[cd] >= 0) {
+            Ruta r = t.rutas[t.posiciones[cb] * t.k + t.posiciones[cd]];
+            if (r != null && relojNanos.getAsLong() - r.masViejaNanos() <= edadMaxima()) return r;
+        }
+        synchronized (this) {
+            int a = nodoPorCodigo[cb];
+            int b = nodoPorCodigo[cd];
+            if (a == SIN_NODO || b == SIN_NODO || a == b) return null;
+            buscar(a);
+            return rutaHasta(a, b);
+        }
+    }
+
+    /* Tasa por la mejor ruta; NaN si no hay */
+    public double tasa(String base, String destino) {
+        Ruta r = ruta(base, destino);
+        return r == null ? Double.NaN : r.tasa();
+    }
+
+    public synchronized int cotizaciones() {
+        return aristas;
+    }
+
+    // ====================== Búsqueda ======================
+
+    private long edadMaxima() {
+        return maxEdadNanos * factorTtl;
+    }
+
+    /* Dijkstra lexicográfico desde origen */
+    private void buscar(int origen) {
+        long ahora = relojNanos.getAsLong();
+        long limite = edadMaxima();
+        long edadMatriz = matriz == null ? Long.MAX_VALUE : matriz.edadNanos();
+        boolean matrizVigente = matriz != null && edadMatriz <= limite;
+        Arrays.fill(edadEstado, 0, nodos * ESTADOS, Long.MAX_VALUE);
+        Arrays.fill(saltosCerrado, 0, nodos, ESTADOS);
+        int inicio = origen * ESTADOS;
+        edadEstado[inicio] = 0;
+        previo[inicio] = SIN_NODO;
+        // la matriz es un clique con la misma edad en todas sus aristas: desde otro nodo suyo que
+        // se cierra después solo se puede mejorar algún vecino si se llegó con menos saltos
+        int saltosClique = ESTADOS;
+
+        enCola = 0;
+        encolar(inicio);
+        while (enCola > 0) {
+            int estado = desencolar();
+            int u = estado / ESTADOS;
+            int saltos = estado % ESTADOS;
+            // entrada vieja o dominada: el nodo ya se cerró con un costo no peor y no más saltos
+            if (saltos >= saltosCerrado[u]) continue;
+            if (saltosCerrado[u] == ESTADOS) mejorEstado[u] = estado;
+            saltosCerrado[u] = saltos;
+            if (saltos >= MAX_SALTOS) continue;
+
+            if (matrizVigente && saltos < saltosClique && ordinalEnMatriz[u] >= 0) {
+                saltosClique = saltos;
+                for (int v = 0; v < nodos; v++) {
+                    if (ordinalEnMatriz[v] >= 0 && v != u) relajar(estado, v, ARISTA_MATRIZ, edadMatriz);
+                }
+            }
+            for (int k = 0; k < grado[u]; k++) {
+                int e = adyacentes[u][k];
+                long edad = ahora - aristaObtenida[e];
+                if (edad > limite) continue;
+                relajar(estado, aristaDesde[e] == u ? aristaHasta[e] : aristaDesde[e], e, edad);
+            }
+        }
+    }
+
+    private void relajar(int desde, int v, int arista, long edad) {
+        int saltos = desde % ESTADOS + 1;
+        if (saltos >= saltosCerrado[v]) return;
+        int estado = v * ESTADOS + saltos;
+        long edadMax = Math.max(edadEstado[desde], edad);
+        if (edadMax < edadEstado[estado]) {
+            edadEstado[estado] = edadMax;
+            previo[estado] = desde;
+            aristaPrevia[estado] = arista;
+            encolar(estado);
+        }
+    }
+
+    // cola de prioridad binaria con el costo guardado en cada entrada (un estado puede estar
+    // varias veces; las entradas viejas se saltan al salir)
+
+    private void encolar(int estado) {
+        if (enCola == colaEstado.length) {
+            colaEstado = Arrays.copyOf(colaEstado, enCola * 2);
+            colaPrimario = Arrays.copyOf(colaPrimario, enCola * 2);
+            colaSecundario = Arrays.copyOf(colaSecundario, enCola * 2);
+        }
+        long saltos = estado % ESTADOS;
+        long p = criterio == Criterio.MENOS_SALTOS ? saltos : edadEstado[estado];
+        long s = criterio == Criterio.MENOS_SALTOS ? edadEstado[estado] : saltos;
+        int i = enCola++;
+        while (i > 0) {
+            int padre = (i - 1) >>> 1;
+            if (!menor(p, s, colaPrimario[padre], colaSecundario[padre])) break;
+            mover(padre, i);
+            i = padre;
+        }
+        colaEstado[i] = estado;
+        colaPrimario[i] = p;
+        colaSecundario[i] = s;
+    }
+
+    private int desencolar() {
+        int primero = colaEstado[0];
+        int ultimo = --enCola;
+        long p = colaPrimario[ultimo];
+        long s = colaSecundario[ultimo];
+        int i = 0;
+        while (true) {
+            int hijo = 2 * i + 1;
+            if (hijo >= enCola) break;
+            if (hijo + 1 < enCola && menor(colaPrimario[hijo + 1], colaSecundario[hijo + 1],
+                    colaPrimario[hijo], colaSecundario[hijo])) hijo++;
+            if (!menor(colaPrimario[hijo], colaSecundario[hijo], p, s)) break;
+            mover(hijo, i);
+            i = hijo;
+        }
+        if (enCola > 0) {
+            colaEstado[i] = colaEstado[ultimo];
+            colaPrimario[i] = p;
+            colaSecundario[i] = s;
+        }
+        return primero;
+    }
+
+    private void mover(int desde, int hasta) {
+        colaEstado[hasta] = colaEstado[desde];
+        colaPrimario[hasta] = colaPrimario[desde];
+        colaSecundario[hasta] = colaSecundario[desde];
+    }
+
+    private static boolean menor(long p1, long s1, long p2, long s2) {
+        return p1 < p2 || (p1 == p2 && s1 < s2);
+    }
+
+    /* Reconstruye la ruta de la última búsqueda; null si destino no fue alcanzado */
+    private Ruta rutaHasta(int origen, int destino) {
+        int[][] camino = caminoHasta(origen, destino);
+        return camino == null ? null : evaluar(camino[0], camino[1]);
+    }
+
+    /* {nodos, aristas} desde origen hasta destino según la última búsqueda */
+    private int[][] caminoHasta(int origen, int destino) {
+        if (saltosCerrado[destino] == ESTADOS || destino == origen) return null;
+        int estado = mejorEstado[destino];
+        int largo = estado % ESTADOS;
+        int[] camino = new int[largo + 1];
+        int[] usadas = new int[largo];
+        for (int i = largo; i > 0; i--) {
+            camino[i] = estado / ESTADOS;
+            usadas[i - 1] = aristaPrevia[estado];
+            estado = previo[estado];
+        }
+        camino[0] = origen;
+        return new int[][] {camino, usadas};
+    }
+
+    /* Tasa y edad actuales a lo largo de un camino guardado; null si un salto ya no existe */
+    private Ruta evaluar(int[] camino, int[] usadas) {
+        long ahora = relojNanos.getAsLong();
+        double tasa = 1.0;
+        long masVieja = ahora;
+        List<String> monedas = new ArrayList<>(camino.length);
+        monedas.add(Utilidades.desempaquetarCodigo(codigoDeNodo[camino[0]]));
+        for (int i = 0; i < usadas.length; i++) {
+            int a = camino[i];
+            int b = camino[i + 1];
+            int e = usadas[i];
+            if (e == ARISTA_MATRIZ) {
+                if (matriz == null || ordinalEnMatriz[a] < 0 || ordinalEnMatriz[b] < 0) return null;
+                tasa *= matriz.tasa(ordinalEnMatriz[a], ordinalEnMatriz[b]);
+                masVieja = Math.min(masVieja, ahora - matriz.edadNanos());
+            } else {
+                tasa *= aristaDesde[e] == a ? aristaTasa[e] : 1 / aristaTasa[e];
+                masVieja = Math.min(masVieja, aristaObtenida[e]);
+            }
+            monedas.add(Utilidades.desempaquetarCodigo(codigoDeNodo[b]));
+        }
+        return new Ruta(List.copyOf(monedas), tasa, masVieja);
+    }
+
+    /* Tras cada cambio: nuevas búsquedas si cambió el grafo, si no solo tasas nuevas */
+    private void actualizarPrecalculadas() {
+        int k = interes.length;
+        if (k == 0) return;
+        Ruta[] nuevas = new Ruta[k * k];
+        boolean buscar = grafoCambiado || criterio == Criterio.MAS_RECIENTE;
+        for (int i = 0; i < k; i++) {
+            if (buscar) buscar(interes[i]);
+            for (int j = 0; j < k; j++) {
+                if (i == j) continue;
+                int p = i * k + j;
+                if (buscar) {
+                    int[][] camino = caminoHasta(interes[i], interes[j]);
+                    caminoNodos[p] = camino == null ? null : camino[0];
+                    caminoAristas[p] = camino == null ? null : camino[1];
+                }
+                nuevas[p] = caminoNodos[p] == null ? null : evaluar(caminoNodos[p], caminoAristas[p]);
+            }
+        }
+        grafoCambiado = false;
+        tabla = new Tabla(tabla.posiciones, k, nuevas);
+    }
+
+    // ====================== Nodos y aristas ======================
+
+    private int nodo(int codigo) {
+        int n = nodoPorCodigo[codigo];
+        if (n != SIN_NODO) return n;
+        n = nodos++;
+        if (n == codigoDeNodo.length) crecerNodos();
+        nodoPorCodigo[codigo] = n;
+        codigoDeNodo[n] = codigo;
+        ordinalEnMatriz[n] = matriz == null ? -1 : matriz.indice(codigo);
+        grado[n] = 0;
+        adyacentes[n] = new int[4];
+        return n;
+    }
+
+    private void crecerNodos() {
+        int cap = codigoDeNodo.length * 2;
+        codigoDeNodo = Arrays.copyOf(codigoDeNodo, cap);
+        ordinalEnMatriz = Arrays.copyOf(ordinalEnMatriz, cap);
+        adyacentes = Arrays.copyOf(adyacentes, cap);
+        grado = Arrays.copyOf(grado, cap);
+        edadEstado = new long[cap * ESTADOS];
+        previo = new int[cap * ESTADOS];
+        aristaPrevia = new int[cap * ESTADOS];
+        saltosCerrado = new int[cap];
+        mejorEstado = new int[cap];
+    }
+
+    private int nuevaArista(int a, int b, double tasa) {
+        int e = aristas++;
+        if (e == aristaDesde.length) {
+            int cap = e * 2;
+            aristaDesde = Arrays.copyOf(aristaDesde, cap);
+            aristaHasta = Arrays.copyOf(aristaHasta, cap);
+            aristaTasa = Arrays.copyOf(aristaTasa, cap);
+            aristaObtenida = Arrays.copyOf(aristaObtenida, cap);
+        }
+        aristaDesde[e] = a;
+        aristaHasta[e] = b;
+        aristaTasa[e] = tasa;
+        agregarAdyacente(a, e);
+        agregarAdyacente(b, e);
+        return e;
+    }
+
+    private void agregarAdyacente(int n, int e) {
+        if (grado[n] == adyacentes[n].length) adyacentes[n] = Arrays.copyOf(adyacentes[n], grado[n] * 2);
+        adyacentes[n][grado[n]++] = e;
+    }
+
+    private static boolean mismasMonedas(MatrizTasas a, MatrizTasas b) {
+        if (a.tamanio() != b.tamanio()) return false;
+        for (int i = 0; i < a.tamanio(); i++) {
+            if (a.codigoEmpaquetado(i) != b.codigoEmpaquetado(i)) return false;
+        }
+        return true;
+    }
+}
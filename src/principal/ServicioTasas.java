@@ -0,0 +1,335 @@
+package principal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolución de tasas sin interfaz de consola: cache -> matriz /latest -> ruta de varios
+ * saltos sobre las cotizaciones conocidas -> /pair.
+ * La usan el menú interactivo y los modos sin interfaz (lotes, servidor).
+ *
+ * Si el cliente lleva la cuota mensual, el servicio se degrada cuando escasea: alarga los
+ * TTL de la cache y del snapshot, deja de revalidar por /pair y, en nivel crítico, solo
+ * sirve tasas derivadas de /latest.
+ */
+public class ServicioTasas {
+    // Pasado el TTL blando la tasa se sirve igual y se refresca en segundo plano
+    public static final long TTL_BLANDO_SEGUNDOS = 3000;
+    public static final long TTL_DURO_SEGUNDOS = 3600;
+
+    private final ProveedorTasas proveedor; // null = solo cache y snapshot en disco
+    private final SimpleCache cache;
+    private final MotorTasas motor;
+    private final HistorialTasas historial;
+    private final PresupuestoCuota presupuesto; // null = sin control de cuota
+    private final NodoCluster cluster;          // null = proceso solo
+    private final SuscripcionesTasas suscripciones = new SuscripcionesTasas();
+    private final RutasTasas rutas = new RutasTasas(
+            Utilidades.enumDePropiedad("conversor.rutas.criterio", RutasTasas.Criterio.MENOS_SALTOS), TTL_DURO_SEGUNDOS);
+    private final AtomicBoolean vigilandoSuscripciones = new AtomicBoolean();
+    private final SingleFlight<Integer, Double> vuelosPares = new SingleFlight<>();
+    private final ScheduledExecutorService refrescoAnticipado;
+    private final Histograma latenciaTasa = Metricas.global().histograma("conversor_obtener_tasa_nanos");
+
+    public ServicioTasas(ProveedorTasas proveedor) {
+        // un snapshot /latest por hora, persistido en disco para arrancar en caliente,
+        // y cada snapshot nuevo queda en la serie histórica diaria
+        this(proveedor, AlmacenSnapshots.paraBase(MotorTasas.BASE_REFERENCIA),
+                HistorialTasas.paraBase(MotorTasas.BASE_REFERENCIA));
+    }
+
+    /* almacen e historial pueden ser null (sin persistencia, p. ej. en benchmarks) */
+    public ServicioTasas(ProveedorTasas proveedor, AlmacenSnapshots almacen, HistorialTasas historial) {
+        this.proveedor = proveedor;
+        this.cache = new SimpleCache(TTL_BLANDO_SEGUNDOS, TTL_DURO_SEGUNDOS, SimpleCache.MAX_ENTRADAS_DEFECTO).iniciar(); // cache 1 hora
+        this.motor = new MotorTasas(proveedor, MotorTasas.BASE_REFERENCIA, TTL_BLANDO_SEGUNDOS, TTL_DURO_SEGUNDOS, almacen);
+        this.historial = historial;
+        // monedas nuevas de la API pasan a ser válidas en cuanto aparecen en un snapshot
+        motor.alRefrescar(RegistroMonedas::aprender);
+        RegistroMonedas.aprender(motor.matrizSinRefrescar());
+        if (historial != null) motor.alRefrescar(historial::registrarSilencioso);
+        motor.alRefrescar(suscripciones::publicar);
+        motor.alRefrescar(rutas::actualizarMatriz);
+        // snapshot de disco como punto de partida
+        suscripciones.publicar(motor.matrizSinRefrescar());
+        rutas.actualizarMatriz(motor.matrizSinRefrescar());
+        this.presupuesto = proveedor == null ? null : proveedor.getPresupuesto();
+        if (presupuesto != null) {
+            presupuesto.alCambiarNivel(nivel -> {
+                cache.extenderTtl(nivel.factorTtl);
+                motor.extenderTtl(nivel.factorTtl);
+                rutas.extenderTtl(nivel.factorTtl);
+            });
+        }
+        // con -Dconversor.cluster=true solo el líder llama a /latest; los demás reciben su snapshot
+        this.cluster = NodoCluster.desdeConfiguracion(motor);
+        registrarIndicadores();
+        this.refrescoAnticipado = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "refresco-anticipado");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Crea el servicio con los proveedores de la configuración: la API si hay key y los
+     * archivos de -Dconversor.proveedor.local=dir si se indican. Con los dos se consultan
+     * en paralelo según -Dconversor.proveedor.modo (primero | mediana). Sin ninguno solo
+     * quedan la cache y el snapshot en disco, igual que el conversor interactivo.
+     */
+    public static ServicioTasas desdeConfiguracion() {
+        return new ServicioTasas(proveedorDesdeConfiguracion());
+    }
+
+    /* null si no hay API key ni proveedor local */
+    public static ProveedorTasas proveedorDesdeConfiguracion() {
+        List<ProveedorTasas> proveedores = new ArrayList<>(2);
+        String local = System.getProperty("conversor.proveedor.local");
+        if (local != null && !local.isBlank()) {
+            proveedores.add(new ProveedorLocal(Path.of(local), Long.getLong("conversor.proveedor.local.latenciaMs", 0)));
+        }
+        String key = ExchangeRateApiClient.loadApiKeyOrNull();
+        if (key != null && !key.isBlank()) {
+            proveedores.add(new ExchangeRateApiClient(key));
+        }
+        if (proveedores.isEmpty()) {
+            System.err.println("⚠️  API Key no encontrada. Configure EXR_API_KEY (env) o config/config.properties");
+            return null;
+        }
+        if (proveedores.size() == 1) return proveedores.get(0);
+        ProveedorCompuesto.Modo modo = Utilidades.enumDePropiedad("conversor.proveedor.modo", ProveedorCompuesto.Modo.PRIMERO);
+        return new ProveedorCompuesto(modo, proveedores);
+    }
+
+    /**
+     * Tasa base -> destino: cache, luego la matriz de /latest, luego una ruta de varios saltos
+     * entre cotizaciones ya conocidas y solo como último recurso /pair.
+     *
+     * @throws IllegalStateException si hace falta la API y no hay proveedor
+     * @throws IOException           si la API falla o no conoce el par
+     */
+    public double obtenerTasa(String base, String destino) throws IOException {
+        long inicio = System.nanoTime();
+        try {
+            double cacheada = tasaEnCache(base, destino);
+            if (!Double.isNaN(cacheada)) return cacheada;
+            return resolverSinCache(base, destino);
+        } finally {
+            latenciaTasa.registrarDesde(inicio);
+        }
+    }
+
+    /**
+     * Solo la cache; NaN si no está. Una tasa vieja se sirve igual y se revalida en segundo plano.
+     */
+    public double tasaEnCache(String base, String destino) {
+        double cacheada = cache.lookup(base, destino);
+        if (!Double.isNaN(cacheada) && cache.necesitaRefresco(base, destino)) {
+            refrescarParAsync(base, destino);
+        }
+        return cacheada;
+    }
+
+    /* Matriz /latest, rutas y luego /pair, guardando el resultado en cache */
+    public double resolverSinCache(String base, String destino) throws IOException {
+        // un código que no es moneda (p. ej. un error de tipeo) no llega a gastar una llamada
+        if (!RegistroMonedas.conocida(base) || !RegistroMonedas.conocida(destino)) {
+            throw new IOException("Código de moneda desconocido: " + (RegistroMonedas.conocida(base) ? destino : base));
+        }
+        // derivar del snapshot /latest (sin I/O si está vigente)
+        double cruzada = motor.tasa(base, destino);
+        if (!Double.isNaN(cruzada)) {
+            cache.put(base, destino, cruzada);
+            return cruzada;
+        }
+        // par fuera del snapshot: combinar cotizaciones /pair ya recibidas, sin llamar a la API
+        RutasTasas.Ruta ruta = rutas.ruta(base, destino);
+        if (ruta != null) {
+            cache.put(base, destino, ruta.tasa());
+            return ruta.tasa();
+        }
+
+        if (proveedor == null) {
+            throw new IllegalStateException("Proveedor de tasas no configurado (API key o conversor.proveedor.local).");
+        }
+        if (nivelCuota().compareTo(PresupuestoCuota.Nivel.CRITICO) >= 0) {
+            throw new IOException("Cuota de la API casi agotada: " + base + "->" + destino
+                    + " no se puede derivar de /latest");
+        }
+
+        try {
+            return obtenerParCoalescido(base, destino).join();
+        } catch (CompletionException e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            if (causa instanceof UncheckedIOException u) causa = u.getCause();
+            if (causa instanceof IOException io) throw io;
+            throw new IOException(causa.getMessage(), causa);
+        }
+    }
+
+    /* Snapshot /latest vigente (puede refrescarlo); null si nunca se pudo obtener */
+    public MatrizTasas matrizActual() {
+        return motor.matrizActual();
+    }
+
+    public ProveedorTasas getProveedor() {
+        return proveedor;
+    }
+
+    public MotorTasas getMotor() {
+        return motor;
+    }
+
+    public HistorialTasas getHistorial() {
+        return historial;
+    }
+
+    public SimpleCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Suscripciones a cambios de tasas. Al pedirlas por primera vez se empieza a revisar
+     * el snapshot cada minuto: solo se descarga uno nuevo al vencer su TTL blando (el
+     * extendido si la cuota escasea), así que no agrega llamadas a la API.
+     */
+    public SuscripcionesTasas getSuscripciones() {
+        if (proveedor != null && vigilandoSuscripciones.compareAndSet(false, true)) {
+            refrescoAnticipado.scheduleWithFixedDelay(() -> motor.matrizFresca().exceptionally(e -> null),
+                    60, 60, TimeUnit.SECONDS);
+        }
+        return suscripciones;
+    }
+
+    public RutasTasas getRutas() {
+        return rutas;
+    }
+
+    /* Nodo del cluster, o null si el proceso trabaja solo */
+    public NodoCluster getCluster() {
+        return cluster;
+    }
+
+    public SingleFlight<Integer, Double> getVuelosPares() {
+        return vuelosPares;
+    }
+
+    public PresupuestoCuota getPresupuesto() {
+        return presupuesto;
+    }
+
+    private PresupuestoCuota.Nivel nivelCuota() {
+        return presupuesto == null ? PresupuestoCuota.Nivel.NORMAL : presupuesto.nivel();
+    }
+
+    /**
+     * Pide /pair una sola vez aunque varios hilos fallen la cache a la vez:
+     * todos comparten el mismo future y el resultado se guarda en cache una vez.
+     */
+    private CompletableFuture<Double> obtenerParCoalescido(String base, String destino) {
+        int clave = SimpleCache.clave(base, destino);
+        if (clave < 0) {
+            return proveedor.fetchPairRateAsync(base, destino);
+        }
+        return vuelosPares.ejecutar(clave, () -> proveedor.fetchPairRateAsync(base, destino)
+                .thenApply(rate -> {
+                    cache.put(base, destino, rate);
+                    rutas.registrarPar(base, destino, rate);
+                    return rate;
+                }));
+    }
+
+    /**
+     * Revalida una entrada de la cache sin bloquear al llamador: desde un snapshot
+     * /latest fresco si ambas monedas están en él, si no desde /pair.
+     */
+    private CompletableFuture<Void> refrescarParAsync(String base, String destino) {
+        MatrizTasas m = motor.matrizSinRefrescar();
+        CompletableFuture<Void> refresco;
+        if (m != null && m.contiene(base) && m.contiene(destino)) {
+            refresco = motor.matrizFresca().thenAccept(fresca -> {
+                double tasa = fresca.tasa(base, destino);
+                if (!Double.isNaN(tasa)) cache.put(base, destino, tasa);
+            });
+        } else if (proveedor != null && nivelCuota() == PresupuestoCuota.Nivel.NORMAL) {
+            refresco = obtenerParCoalescido(base, destino).thenAccept(rate -> { });
+        } else {
+            return CompletableFuture.completedFuture(null);
+        }
+        return refresco.exceptionally(ex -> null); // si falla, la entrada vieja sigue sirviendo hasta el TTL duro
+    }
+
+    private void registrarIndicadores() {
+        Metricas.global()
+                .ayuda("conversor_cache_aciertos_total", "Lecturas de la cache con tasa vigente")
+                .ayuda("conversor_cache_viejas_total", "Aciertos servidos pasado el TTL blando")
+                .ayuda("conversor_http_latencia_nanos", "Latencia de las llamadas a la API por endpoint")
+                .ayuda("conversor_obtener_tasa_nanos", "Tiempo total para resolver una tasa");
+        Metricas.global().indicador("conversor_cache_entradas", cache::size);
+        Metricas.global().indicador("conversor_singleflight_deduplicadas{recurso=\"pair\"}", vuelosPares::deduplicadas);
+        Metricas.global().indicador("conversor_singleflight_deduplicadas{recurso=\"latest\"}", () -> motor.getVuelos().deduplicadas());
+        Metricas.global().indicador("conversor_matriz_edad_segundos", () -> {
+            MatrizTasas m = motor.matrizSinRefrescar();
+            return m == null ? -1 : m.edadNanos() / 1_000_000_000L;
+        });
+    }
+
+    // ====================== Refresco anticipado ======================
+
+    /**
+     * Refresca los pares más usados antes de que venza su TTL blando.
+     * Los pares calientes que no están en /latest se piden a /pair; entre las monedas
+     * calientes solo se re-derivan de la matriz, sin llamadas a /pair.
+     */
+    public void programarRefrescoAnticipado(List<String[]> paresCalientes, List<String> monedasCalientes) {
+        if (proveedor == null) return;
+        refrescoAnticipado.scheduleAtFixedRate(() -> refrescarCalientes(paresCalientes, monedasCalientes),
+                TTL_BLANDO_SEGUNDOS, TTL_BLANDO_SEGUNDOS, TimeUnit.SECONDS);
+    }
+
+    private void refrescarCalientes(List<String[]> paresCalientes, List<String> monedasCalientes) {
+        // con cuota escasa no se refresca por adelantado: el snapshot se renueva al vencer su TTL extendido
+        if (nivelCuota() != PresupuestoCuota.Nivel.NORMAL) return;
+        try {
+            MatrizTasas m = motor.refrescarAsync().join();
+            for (String[] par : paresCalientes) {
+                double tasa = m.tasa(par[0], par[1]);
+                if (!Double.isNaN(tasa)) {
+                    cache.put(par[0], par[1], tasa);
+                } else {
+                    refrescarParAsync(par[0], par[1]);
+                }
+            }
+            for (String base : monedasCalientes) {
+                for (String destino : monedasCalientes) {
+                    double tasa = base.equals(destino) ? Double.NaN : m.tasa(base, destino);
+                    if (!Double.isNaN(tasa)) cache.put(base, destino, tasa);
+                }
+            }
+        } catch (Exception e) {
+            // se reintenta en el siguiente ciclo; mientras tanto se sirven las tasas viejas
+        }
+    }
+
+    /* Detiene los hilos en segundo plano (refresco y barrido de cache) */
+    public void cerrar() {
+        refrescoAnticipado.shutdownNow();
+        if (cluster != null) cluster.close();
+        cache.cerrar();
+        if (historial == null) return;
+        try {
+            historial.close();
+        } catch (IOException ignored) {
+            // al cerrar no hay nada más que hacer
+        }
+    }
+}
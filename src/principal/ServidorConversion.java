@@ -0,0 +1,355 @@
+package principal;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Servidor HTTP local de conversión (com.sun.net.httpserver) con un hilo virtual por
+ * petición: las llamadas bloqueantes a la API estacionan el hilo virtual en lugar de
+ * ocupar un hilo de plataforma.
+ *
+ * GET  /convert?from=USD&to=EUR&amount=100
+ * GET  /rates/{base}
+ * POST /convert/batch   [{"amount":100,"from":"USD","to":"EUR"}, ...]
+ * GET  /metrics         métricas en formato de texto de Prometheus
+ * GET  /subscribe?base=USD[&to=EUR,CRC][&umbral=0.001]
+ *                       Server-Sent Events: un evento por tasa que cambie más que el umbral
+ */
+public class ServidorConversion {
+    public static final int PUERTO_DEFECTO = 8080;
+
+    private final ServicioTasas servicio;
+    private final HttpServer server;
+    private final ExecutorService hilos;
+    private final LongAdder conversiones = Metricas.global().contador("conversor_conversiones_total{modo=\"servidor\"}");
+    private final Histograma latencia = Metricas.global().histograma("conversor_servidor_latencia_nanos");
+    private final LongAdder fusionados = Metricas.global().contador("conversor_sse_fusionados_total");
+
+    public ServidorConversion(ServicioTasas servicio, int puerto) throws IOException {
+        this.servicio = servicio;
+        this.server = HttpServer.create(new InetSocketAddress(puerto), 0);
+        this.hilos = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(hilos);
+        server.createContext("/convert", this::manejarConvert);
+        server.createContext("/rates/", this::manejarRates);
+        server.createContext("/metrics", this::manejarMetricas);
+        server.createContext("/subscribe", this::manejarSuscripcion);
+    }
+
+    /** Uso: servidor [puerto] */
+    public static void main(String[] args) throws IOException {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : PUERTO_DEFECTO;
+        ServidorConversion servidor = new ServidorConversion(ServicioTasas.desdeConfiguracion(), puerto);
+        servidor.iniciar();
+        System.out.println("Servidor de conversión escuchando en http://localhost:" + servidor.getPuerto());
+    }
+
+    public void iniciar() {
+        server.start();
+    }
+
+    public void detener() {
+        server.stop(0);
+        hilos.shutdown();
+        servicio.cerrar();
+    }
+
+    public int getPuerto() {
+        return server.getAddress().getPort();
+    }
+
+    // ====================== Handlers ======================
+
+    private void manejarConvert(HttpExchange ex) throws IOException {
+        long inicio = System.nanoTime();
+        try (ex) {
+            String ruta = ex.getRequestURI().getPath();
+            if (ruta.equals("/convert/batch")) {
+                if (!ex.getRequestMethod().equalsIgnoreCase("POST")) {
+                    responder(ex, 405, error("Use POST"));
+                    return;
+                }
+                manejarLote(ex);
+                return;
+            }
+            if (!ruta.equals("/convert") || !ex.getRequestMethod().equalsIgnoreCase("GET")) {
+                responder(ex, 404, error("Ruta no encontrada"));
+                return;
+            }
+
+            Map<String, String> q = parametros(ex.getRequestURI().getRawQuery());
+            String from = normalizar(q.get("from"));
+            String to = normalizar(q.get("to"));
+            String amount = q.getOrDefault("amount", "");
+            if (from == null || to == null) {
+                responder(ex, 400, error(q.get("from") == null || q.get("to") == null
+                        ? "from y to son obligatorios" : "Código de moneda desconocido"));
+                return;
+            }
+
+            StringBuilder sb = new StringBuilder(128);
+            int status = convertir(from, to, amount, sb);
+            responder(ex, status, sb.toString());
+        } finally {
+            latencia.registrarDesde(inicio);
+        }
+    }
+
+    private void manejarLote(HttpExchange ex) throws IOException {
+        JsonArray filas;
+        try (InputStreamReader reader = new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8)) {
+            filas = JsonParser.parseReader(reader).getAsJsonArray();
+        } catch (RuntimeException e) {
+            responder(ex, 400, error("Se esperaba un arreglo JSON"));
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder(filas.size() * 96 + 2);
+        sb.append('[');
+        for (int i = 0; i < filas.size(); i++) {
+            if (i > 0) sb.append(',');
+            try {
+                JsonObject fila = filas.get(i).getAsJsonObject();
+                convertir(normalizar(texto(fila.get("from"))), normalizar(texto(fila.get("to"))),
+                        fila.get("amount").getAsString(), sb);
+            } catch (RuntimeException e) {
+                sb.append(error("Fila inválida"));
+            }
+        }
+        sb.append(']');
+        responder(ex, 200, sb.toString());
+    }
+
+    private void manejarMetricas(HttpExchange ex) throws IOException {
+        try (ex) {
+            byte[] body = Metricas.global().prometheus().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+
+    /**
+     * Mantiene la conexión abierta y envía un evento por cada cambio de tasa (el primero con
+     * el valor actual). Cada 30 s sin cambios manda un comentario para detectar al cliente
+     * que se fue; al fallar la escritura se cancelan sus suscripciones.
+     *
+     * Si el cliente lee más lento de lo que cambian las tasas no se pierden avisos: por par
+     * queda solo el último cambio sin enviar, con el 'previous' que el cliente vio por última
+     * vez (los reemplazos se cuentan en conversor_sse_fusionados_total).
+     */
+    private void manejarSuscripcion(HttpExchange ex) throws IOException {
+        try (ex) {
+            Map<String, String> q = parametros(ex.getRequestURI().getRawQuery());
+            String base = normalizar(q.get("base"));
+            if (base == null) {
+                responder(ex, 400, error("base es obligatoria"));
+                return;
+            }
+            double umbral;
+            try {
+                umbral = Double.parseDouble(q.getOrDefault("umbral", "0"));
+            } catch (NumberFormatException e) {
+                responder(ex, 400, error("umbral inválido"));
+                return;
+            }
+            List<String> destinos = new ArrayList<>();
+            for (String to : q.getOrDefault("to", "").split(",")) {
+                if (to.isBlank()) continue;
+                String destino = normalizar(to);
+                if (destino == null) {
+                    responder(ex, 400, error("Código de moneda inválido: " + to));
+                    return;
+                }
+                destinos.add(destino);
+            }
+
+            // la base es la misma para toda la conexión: el destino identifica el par
+            Map<String, SuscripcionesTasas.CambioTasa> pendientes = new LinkedHashMap<>();
+            Consumer<SuscripcionesTasas.CambioTasa> anotar = cambio -> {
+                synchronized (pendientes) {
+                    SuscripcionesTasas.CambioTasa previo = pendientes.get(cambio.destino());
+                    if (previo != null) {
+                        fusionados.increment();
+                        cambio = new SuscripcionesTasas.CambioTasa(cambio.base(), cambio.destino(),
+                                previo.anterior(), cambio.actual(), cambio.obtenidaEpochMillis());
+                    }
+                    pendientes.put(cambio.destino(), cambio);
+                    pendientes.notifyAll();
+                }
+            };
+            SuscripcionesTasas suscripciones = servicio.getSuscripciones();
+            List<SuscripcionesTasas.Suscripcion> activas = new ArrayList<>();
+            try {
+                if (destinos.isEmpty()) {
+                    activas.add(suscripciones.alCambiarBase(base, umbral, anotar));
+                } else {
+                    for (String destino : destinos) activas.add(suscripciones.alCambiar(base, destino, umbral, anotar));
+                }
+                ex.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+                ex.getResponseHeaders().set("Cache-Control", "no-cache");
+                ex.sendResponseHeaders(200, 0);
+                OutputStream os = ex.getResponseBody();
+                StringBuilder sb = new StringBuilder(128);
+                List<SuscripcionesTasas.CambioTasa> lote = new ArrayList<>();
+                while (true) {
+                    lote.clear();
+                    synchronized (pendientes) {
+                        if (pendientes.isEmpty()) pendientes.wait(30_000);
+                        lote.addAll(pendientes.values());
+                        pendientes.clear();
+                    }
+                    sb.setLength(0);
+                    if (lote.isEmpty()) sb.append(": ping\n\n");
+                    for (SuscripcionesTasas.CambioTasa cambio : lote) {
+                        sb.append("data: {\"from\":\"").append(cambio.base())
+                          .append("\",\"to\":\"").append(cambio.destino())
+                          .append("\",\"rate\":").append(cambio.actual())
+                          .append(",\"previous\":").append(Double.isNaN(cambio.anterior()) ? "null" : cambio.anterior())
+                          .append(",\"time\":").append(cambio.obtenidaEpochMillis()).append("}\n\n");
+                    }
+                    os.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+                    os.flush();
+                }
+            } catch (IOException e) {
+                // el cliente cerró la conexión
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                activas.forEach(SuscripcionesTasas.Suscripcion::close);
+            }
+        }
+    }
+
+    private void manejarRates(HttpExchange ex) throws IOException {
+        try (ex) {
+            String base = normalizar(ex.getRequestURI().getPath().substring("/rates/".length()));
+            if (base == null) {
+                responder(ex, 400, error("Código de moneda inválido"));
+                return;
+            }
+            MatrizTasas m = servicio.matrizActual();
+            if (m == null) {
+                responder(ex, 503, error("Tasas no disponibles"));
+                return;
+            }
+            int iBase = m.indice(base);
+            if (iBase < 0) {
+                responder(ex, 404, error("Moneda no disponible: " + base));
+                return;
+            }
+
+            StringBuilder sb = new StringBuilder(m.tamanio() * 20 + 32);
+            sb.append("{\"base\":\"").append(base).append("\",\"rates\":{");
+            for (int i = 0; i < m.tamanio(); i++) {
+                if (i > 0) sb.append(',');
+                sb.append('"').append(m.codigo(i)).append("\":").append(m.tasa(iBase, i));
+            }
+            sb.append("}}");
+            responder(ex, 200, sb.toString());
+        }
+    }
+
+    /**
+     * Escribe en sb el resultado de una conversión como objeto JSON y devuelve el status HTTP.
+     * Monto y resultado son exactos con los decimales de cada moneda (ver Moneda).
+     */
+    private int convertir(String from, String to, String amountTexto, StringBuilder sb) {
+        if (from == null || to == null) {
+            sb.append(error("Código de moneda inválido"));
+            return 400;
+        }
+        int decFrom = Moneda.decimales(from);
+        int decTo = Moneda.decimales(to);
+        long amount;
+        try {
+            amount = Moneda.parsearUnidades(amountTexto, decFrom, Moneda.REDONDEO_DEFECTO);
+        } catch (NumberFormatException | ArithmeticException e) {
+            sb.append(error("amount inválido"));
+            return 400;
+        }
+        double rate;
+        try {
+            rate = servicio.obtenerTasa(from, to);
+        } catch (IllegalStateException e) {
+            sb.append(error(e.getMessage()));
+            return 503;
+        } catch (IOException e) {
+            sb.append(error("No se pudo obtener la tasa: " + e.getMessage()));
+            return 502;
+        }
+        long result;
+        try {
+            result = TasaFija.de(rate).convertir(amount, decFrom, decTo, Moneda.REDONDEO_DEFECTO);
+        } catch (ArithmeticException e) {
+            sb.append(error("amount fuera de rango"));
+            return 400;
+        }
+        sb.append("{\"from\":\"").append(from)
+          .append("\",\"to\":\"").append(to)
+          .append("\",\"amount\":");
+        Moneda.anexar(sb, amount, decFrom).append(",\"rate\":").append(rate).append(",\"result\":");
+        Moneda.anexar(sb, result, decTo).append('}');
+        conversiones.increment();
+        return 200;
+    }
+
+    // ====================== Utilidades HTTP ======================
+
+    private static void responder(HttpExchange ex, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /* El mensaje puede traer el código que mandó el cliente: se escapa como cualquier cadena JSON */
+    private static String error(String mensaje) {
+        return ConversionPorLotes.anexarJson(new StringBuilder("{\"error\":"), mensaje).append('}').toString();
+    }
+
+    private static Map<String, String> parametros(String query) {
+        Map<String, String> q = new HashMap<>();
+        if (query == null || query.isEmpty()) return q;
+        for (String par : query.split("&")) {
+            int eq = par.indexOf('=');
+            if (eq <= 0) continue;
+            q.put(URLDecoder.decode(par.substring(0, eq), StandardCharsets.UTF_8),
+                  URLDecoder.decode(par.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return q;
+    }
+
+    private static String texto(JsonElement e) {
+        return e == null || e.isJsonNull() ? null : e.getAsString();
+    }
+
+    /* Código ISO en mayúsculas o null si no es una moneda del registro */
+    private static String normalizar(String codigo) {
+        return RegistroMonedas.normalizar(codigo);
+    }
+}
@@ -1,38 +1,355 @@
 package principal;
 
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
+/**
+ * Cache de tasas sin asignaciones en el camino caliente.
+ * La clave es el par de códigos ISO empaquetado en un int y los valores viven en
+ * arreglos paralelos de una tabla de direccionamiento abierto (sondeo lineal).
+ * El tamaño está acotado: al llenarse se expulsa la entrada menos usada entre una
+ * muestra (LRU aproximado) y un barrido en segundo plano elimina las expiradas.
+ * Las caches grandes se parten en hasta 16 segmentos con candado propio. El tope es
+ * global (con inserciones simultáneas en varios segmentos puede pasarse por unas pocas
+ * entradas hasta la próxima inserción); la víctima se elige dentro del segmento que inserta.
+ *
+ * Cada entrada tiene dos TTL: pasado el blando sigue sirviéndose pero se marca para
+ * refrescar (stale-while-revalidate); pasado el duro deja de existir.
+ */
 public class SimpleCache {
-    private static class Entry {
-        double value;
-        Instant expiresAt;
-        Entry(double value, Instant expiresAt) { this.value = value; this.expiresAt = expiresAt; }
-    }
+    public static final int MAX_ENTRADAS_DEFECTO = 4096;
+
+    private static final int VACIO = 0; // ninguna clave válida empaquetada vale 0
+    private static final int MUESTRA_LRU = 8;
+    private static final int MAX_SEGMENTOS = 16;
+    private static final int MIN_POR_SEGMENTO = 64; // por debajo el LRU de cada segmento pierde sentido
+
+    private final long ttlBlandoNanos;
+    private final long ttlNanos;
+    private final LongSupplier relojNanos; // System::nanoTime salvo en pruebas
+    // prórroga sobre ambos TTL cuando hay que ahorrar llamadas (también para entradas ya guardadas)
+    private volatile long extraBlandoNanos;
+    private volatile long extraNanos;
+
+    // la tabla se reparte en segmentos con su propio candado: hilos con pares distintos no se esperan
+    private final Segmento[] segmentos;
+    private final int bitsSegmento;
+    private final int maxEntradas;
+    private final AtomicInteger tamanio = new AtomicInteger(); // entradas en todos los segmentos
 
-    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
-    private final long ttlSeconds;
+    private final long intervaloBarrido; // segundos
+    private ScheduledExecutorService barrido; // null hasta iniciar()
+
+    // métricas (compartidas por todas las instancias del proceso); se tocan fuera de los candados
+    private final LongAdder aciertos = Metricas.global().contador("conversor_cache_aciertos_total");
+    private final LongAdder fallos = Metricas.global().contador("conversor_cache_fallos_total");
+    private final LongAdder viejas = Metricas.global().contador("conversor_cache_viejas_total");
+    private final LongAdder expiradas = Metricas.global().contador("conversor_cache_expiradas_total");
+    private final LongAdder expulsiones = Metricas.global().contador("conversor_cache_expulsiones_total");
 
     public SimpleCache(long ttlSeconds) {
-        this.ttlSeconds = ttlSeconds;
+        this(ttlSeconds, MAX_ENTRADAS_DEFECTO);
+    }
+
+    public SimpleCache(long ttlSeconds, int maxEntradas) {
+        this(ttlSeconds, ttlSeconds, maxEntradas);
+    }
+
+    /**
+     * @param ttlBlandoSeconds tras este tiempo la entrada se sirve como vieja y se pide refresco
+     * @param ttlDuroSeconds   tras este tiempo la entrada deja de servirse
+     */
+    public SimpleCache(long ttlBlandoSeconds, long ttlDuroSeconds, int maxEntradas) {
+        this(ttlBlandoSeconds, ttlDuroSeconds, maxEntradas, System::nanoTime);
+    }
+
+    /* Con otro reloj (en nanos), para probar los TTL sin esperar */
+    SimpleCache(long ttlBlandoSeconds, long ttlDuroSeconds, int maxEntradas, LongSupplier relojNanos) {
+        if (maxEntradas < 1) throw new IllegalArgumentException("maxEntradas debe ser positivo");
+        if (ttlBlandoSeconds > ttlDuroSeconds) throw new IllegalArgumentException("El TTL blando no puede superar al duro");
+        this.ttlBlandoNanos = TimeUnit.SECONDS.toNanos(ttlBlandoSeconds);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlDuroSeconds);
+        this.relojNanos = relojNanos;
+
+        this.maxEntradas = maxEntradas;
+
+        int n = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTOS, maxEntradas / MIN_POR_SEGMENTO)));
+        this.bitsSegmento = Integer.numberOfTrailingZeros(n);
+        this.segmentos = new Segmento[n];
+        // con varios segmentos cada uno admite el doble de su parte: el hash nunca reparte exacto
+        int porSegmento = n == 1 ? maxEntradas : 2 * ((maxEntradas + n - 1) / n);
+        for (int i = 0; i < n; i++) segmentos[i] = new Segmento(porSegmento, tamanio);
+
+        this.intervaloBarrido = Math.max(1, Math.min(ttlDuroSeconds, 60));
     }
 
-    private String key(String base, String target) {
-        return base.toUpperCase() + "_" + target.toUpperCase();
+    /**
+     * Arranca el barrido en segundo plano de las expiradas. Va fuera del constructor para
+     * no publicar 'this' a otro hilo antes de terminar de construir. Sin barrido la cache
+     * funciona igual: las expiradas se quitan al leerlas o al expulsar.
+     */
+    public synchronized SimpleCache iniciar() {
+        if (barrido == null) {
+            barrido = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "simple-cache-barrido");
+                t.setDaemon(true);
+                return t;
+            });
+            barrido.scheduleWithFixedDelay(this::eliminarExpiradas, intervaloBarrido, intervaloBarrido, TimeUnit.SECONDS);
+        }
+        return this;
+    }
+
+    /* Empaqueta el par en 30 bits; -1 si alguno de los códigos no es ISO de 3 letras */
+    static int clave(String base, String target) {
+        int b = Utilidades.empaquetarCodigo(base);
+        int t = Utilidades.empaquetarCodigo(target);
+        if (b < 0 || t < 0) return -1;
+        return (b << 15) | t;
     }
 
     public void put(String base, String target, double rate) {
-        cache.put(key(base,target), new Entry(rate, Instant.now().plusSeconds(ttlSeconds)));
+        int clave = clave(base, target);
+        if (clave < 0) return; // códigos arbitrarios no se cachean
+        long ahora = relojNanos.getAsLong();
+        Segmento s = segmento(clave);
+        boolean expulso = false;
+        synchronized (s) {
+            int i = s.buscar(clave);
+            if (i < 0) {
+                if (s.tamanio >= s.maxEntradas || tamanio.get() >= maxEntradas) expulso = s.expulsarUna(ahora, extraNanos);
+                i = s.insertar(clave);
+            }
+            s.valores[i] = rate;
+            s.expiraNanos[i] = ahora + ttlNanos;
+            s.viejaNanos[i] = ahora + ttlBlandoNanos;
+            s.refrescando[i] = false;
+            s.ultimoAcceso[i] = ++s.reloj;
+        }
+        if (expulso) expulsiones.increment();
+    }
+
+    /**
+     * Igual que get pero sin crear un Double: retorna NaN si no hay entrada vigente.
+     */
+    public double lookup(String base, String target) {
+        int clave = clave(base, target);
+        if (clave < 0) {
+            fallos.increment();
+            return Double.NaN;
+        }
+        long ahora = relojNanos.getAsLong();
+        Segmento s = segmento(clave);
+        double valor = Double.NaN;
+        boolean expirada = false;
+        boolean vieja = false;
+        synchronized (s) {
+            int i = s.buscar(clave);
+            if (i >= 0) {
+                if (ahora - s.expiraNanos[i] > extraNanos) {
+                    s.eliminarSlot(i);
+                    expirada = true;
+                } else {
+                    vieja = ahora - s.viejaNanos[i] > extraBlandoNanos;
+                    s.ultimoAcceso[i] = ++s.reloj;
+                    valor = s.valores[i];
+                }
+            }
+        }
+        if (Double.isNaN(valor)) {
+            if (expirada) expiradas.increment();
+            fallos.increment();
+        } else {
+            if (vieja) viejas.increment();
+            aciertos.increment();
+        }
+        return valor;
+    }
+
+    /**
+     * Indica si la entrada vigente pasó su TTL blando y nadie ha pedido aún su refresco.
+     * Solo el primer llamador recibe true, así un único hilo lanza la revalidación.
+     */
+    public boolean necesitaRefresco(String base, String target) {
+        int clave = clave(base, target);
+        if (clave < 0) return false;
+        long ahora = relojNanos.getAsLong();
+        Segmento s = segmento(clave);
+        synchronized (s) {
+            int i = s.buscar(clave);
+            if (i < 0 || s.refrescando[i]) return false;
+            if (ahora - s.viejaNanos[i] <= extraBlandoNanos || ahora - s.expiraNanos[i] > extraNanos) return false;
+            s.refrescando[i] = true;
+            return true;
+        }
+    }
+
+    /**
+     * Multiplica los TTL por factor (1 = normales). Afecta también a las entradas ya
+     * guardadas: la prórroga se suma al comparar, no al insertar.
+     */
+    public void extenderTtl(int factor) {
+        extraBlandoNanos = (factor - 1) * ttlBlandoNanos;
+        extraNanos = (factor - 1) * ttlNanos;
     }
 
     public Double get(String base, String target) {
-        Entry e = cache.get(key(base,target));
-        if (e == null) return null;
-        if (Instant.now().isAfter(e.expiresAt)) {
-            cache.remove(key(base,target));
-            return null;
+        double v = lookup(base, target);
+        return Double.isNaN(v) ? null : v;
+    }
+
+    public int size() {
+        return tamanio.get();
+    }
+
+    /* Detiene el barrido en segundo plano */
+    public synchronized void cerrar() {
+        if (barrido != null) barrido.shutdownNow();
+    }
+
+    /* Barrido periódico de entradas expiradas, un segmento a la vez */
+    void eliminarExpiradas() {
+        long ahora = relojNanos.getAsLong();
+        long extra = extraNanos;
+        int total = 0;
+        for (Segmento s : segmentos) {
+            synchronized (s) {
+                total += s.eliminarExpiradas(ahora, extra);
+            }
+        }
+        expiradas.add(total);
+    }
+
+    private static int mezclar(int clave) {
+        return clave * 0x9E3779B9;
+    }
+
+    /* Los bits altos del hash eligen el segmento; los bajos, el slot dentro de él */
+    private Segmento segmento(int clave) {
+        return segmentos[(int) ((mezclar(clave) & 0xFFFFFFFFL) >>> (32 - bitsSegmento))];
+    }
+
+    // ====================== Tabla de direccionamiento abierto ======================
+
+    /* Un segmento: arreglos paralelos con sondeo lineal; todo acceso va con su monitor tomado */
+    private static final class Segmento {
+        final int maxEntradas;
+        final AtomicInteger total; // el tamaño global, compartido por los segmentos
+        final int mascara;
+        final int[] claves;
+        final double[] valores;
+        final long[] expiraNanos;
+        final long[] viejaNanos;     // instante en que vence el TTL blando
+        final boolean[] refrescando; // ya se entregó el refresco de esta entrada
+        final long[] ultimoAcceso;
+        int tamanio; // de este segmento
+        long reloj;  // contador lógico de accesos para el LRU
+        int cursor;  // punto de inicio de la próxima muestra de expulsión
+
+        Segmento(int maxEntradas, AtomicInteger total) {
+            this.maxEntradas = maxEntradas;
+            this.total = total;
+            // capacidad potencia de 2 con factor de carga <= 0.5
+            int capacidad = Integer.highestOneBit(Math.max(2, maxEntradas) * 2 - 1) << 1;
+            this.mascara = capacidad - 1;
+            this.claves = new int[capacidad];
+            this.valores = new double[capacidad];
+            this.expiraNanos = new long[capacidad];
+            this.viejaNanos = new long[capacidad];
+            this.refrescando = new boolean[capacidad];
+            this.ultimoAcceso = new long[capacidad];
+        }
+
+        int slotIdeal(int clave) {
+            int h = mezclar(clave);
+            return (h ^ (h >>> 16)) & mascara;
+        }
+
+        int buscar(int clave) {
+            for (int i = slotIdeal(clave); ; i = (i + 1) & mascara) {
+                int c = claves[i];
+                if (c == clave) return i;
+                if (c == VACIO) return -1;
+            }
+        }
+
+        int insertar(int clave) {
+            int i = slotIdeal(clave);
+            while (claves[i] != VACIO) i = (i + 1) & mascara;
+            claves[i] = clave;
+            tamanio++;
+            total.incrementAndGet();
+            return i;
+        }
+
+        /* Borrado con desplazamiento hacia atrás: no deja lápidas en la tabla */
+        void eliminarSlot(int i) {
+            int j = i;
+            while (true) {
+                j = (j + 1) & mascara;
+                int c = claves[j];
+                if (c == VACIO) break;
+                int ideal = slotIdeal(c);
+                // la entrada en j puede quedarse si su slot ideal está cíclicamente en (i, j]
+                boolean quedarse = i <= j ? (i < ideal && ideal <= j) : (i < ideal || ideal <= j);
+                if (quedarse) continue;
+                claves[i] = c;
+                valores[i] = valores[j];
+                expiraNanos[i] = expiraNanos[j];
+                viejaNanos[i] = viejaNanos[j];
+                refrescando[i] = refrescando[j];
+                ultimoAcceso[i] = ultimoAcceso[j];
+                i = j;
+            }
+            claves[i] = VACIO;
+            tamanio--;
+            total.decrementAndGet();
+        }
+
+        /*
+         * Expulsa una entrada: la primera expirada de la muestra o, si no hay, la de acceso más
+         * antiguo. Expirada con la prórroga incluida, como en lookup: con la cuota escasa una
+         * entrada pasada de su TTL normal todavía se sirve y no se expulsa antes que la LRU.
+         */
+        boolean expulsarUna(long ahora, long extra) {
+            int victima = -1;
+            long masAntiguo = Long.MAX_VALUE;
+            int vistos = 0;
+            for (int n = 0; n <= mascara && vistos < MUESTRA_LRU; n++) {
+                int i = cursor;
+                cursor = (cursor + 1) & mascara;
+                if (claves[i] == VACIO) continue;
+                vistos++;
+                if (ahora - expiraNanos[i] > extra) {
+                    victima = i;
+                    break;
+                }
+                if (ultimoAcceso[i] < masAntiguo) {
+                    masAntiguo = ultimoAcceso[i];
+                    victima = i;
+                }
+            }
+            if (victima < 0) return false;
+            eliminarSlot(victima);
+            return true;
+        }
+
+        /* Elimina las expiradas y retorna cuántas */
+        int eliminarExpiradas(long ahora, long extra) {
+            int n = 0;
+            for (int i = 0; i <= mascara; ) {
+                if (claves[i] != VACIO && ahora - expiraNanos[i] > extra) {
+                    eliminarSlot(i); // el slot i puede recibir otra entrada: se revisa de nuevo
+                    n++;
+                } else {
+                    i++;
+                }
+            }
+            return n;
         }
-        return e.value;
     }
 }
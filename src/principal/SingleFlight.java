@@ -0,0 +1,62 @@
+package principal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalescencia de peticiones ("single-flight"): mientras una operación para una clave
+ * está en curso, los demás llamadores con la misma clave se unen a ella en lugar de lanzar
+ * otra llamada a la API. Cada llamador recibe su propia copia del future: un cancel(),
+ * complete() u orTimeout() de uno no completa el resultado de los demás.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> enVuelo = new ConcurrentHashMap<>();
+    private final LongAdder ejecutadas = new LongAdder();
+    private final LongAdder deduplicadas = new LongAdder();
+
+    /**
+     * Ejecuta la operación si no hay otra en vuelo para la clave; si la hay, devuelve la existente.
+     * La clave se libera antes de completar el future, así que los llamadores posteriores
+     * al resultado disparan una operación nueva.
+     */
+    public CompletableFuture<V> ejecutar(K clave, Supplier<CompletableFuture<V>> operacion) {
+        CompletableFuture<V> propio = new CompletableFuture<>();
+        CompletableFuture<V> existente = enVuelo.putIfAbsent(clave, propio);
+        if (existente != null) {
+            deduplicadas.increment();
+            return existente.copy();
+        }
+
+        ejecutadas.increment();
+        try {
+            operacion.get().whenComplete((valor, error) -> {
+                enVuelo.remove(clave, propio);
+                if (error != null) {
+                    propio.completeExceptionally(error);
+                } else {
+                    propio.complete(valor);
+                }
+            });
+        } catch (RuntimeException e) {
+            enVuelo.remove(clave, propio);
+            propio.completeExceptionally(e);
+        }
+        return propio.copy();
+    }
+
+    /* Operaciones realmente lanzadas */
+    public long ejecutadas() {
+        return ejecutadas.sum();
+    }
+
+    /* Llamadores que se unieron a una operación ya en vuelo */
+    public long deduplicadas() {
+        return deduplicadas.sum();
+    }
+
+    public int enVuelo() {
+        return enVuelo.size();
+    }
+}
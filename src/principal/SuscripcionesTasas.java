@@ -0,0 +1,299 @@
+package principal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Suscripciones a cambios de tasas: en lugar de consultar en cada ciclo, el interesado
+ * recibe un aviso solo cuando un snapshot /latest nuevo mueve su par (o cualquier par de
+ * su base) más allá del umbral relativo, comparado con el último valor que se le avisó.
+ *
+ * Por cada snapshot se calcula una vez qué monedas cambiaron (MatrizTasas.cambiadas,
+ * sobre los arreglos primitivos) y solo se evalúan los intereses de esas monedas.
+ * El primer aviso de cada suscripción lleva el valor inicial (anterior = NaN).
+ *
+ * Los avisos se entregan en el hilo del refresco, en orden; un oyente lento retrasa a los
+ * demás, así que el trabajo pesado va en otro hilo (o usando publicador()).
+ */
+public final class SuscripcionesTasas {
+
+    /* Tasa nueva de un par; 'anterior' es la última avisada (NaN en el primer aviso) */
+    public record CambioTasa(String base, String destino, double anterior, double actual, long obtenidaEpochMillis) {
+        public double variacion() {
+            return actual / anterior - 1;
+        }
+    }
+
+    /* Se cancela con close(); no lanza */
+    public interface Suscripcion extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // las listas se reemplazan en lugar de modificarse: un oyente puede suscribir o cancelar
+    // mientras publicar() las recorre
+    private final Map<Integer, List<Interes>> porMoneda = new HashMap<>(); // pares, por cada moneda del par
+    private List<InteresBase> porBase = List.of();                         // bases: miran todas las monedas
+    private final LongAdder avisos = Metricas.global().contador("conversor_suscripciones_avisos_total");
+    private MatrizTasas actual;
+    private int[] cambiadas = new int[0];
+    private int ronda;
+    private int activas;
+
+    public SuscripcionesTasas() {
+        Metricas.global().indicador("conversor_suscripciones_activas", this::activas);
+        Metricas.global().ayuda("conversor_suscripciones_avisos_total", "Cambios de tasa entregados a suscriptores");
+    }
+
+    /**
+     * Avisa los cambios de base -> destino que superen el umbral relativo
+     * (0.001 = 0,1 %; 0 = cualquier cambio).
+     */
+    public synchronized Suscripcion alCambiar(String base, String destino, double umbral, Consumer<CambioTasa> oyente) {
+        InteresPar interes = new InteresPar(base, destino, umbral, oyente);
+        agregar(interes.claveBase, interes);
+        agregar(interes.claveDestino, interes);
+        return registrar(interes);
+    }
+
+    /* Avisa los cambios de todas las monedas respecto de base que superen el umbral */
+    public synchronized Suscripcion alCambiarBase(String base, double umbral, Consumer<CambioTasa> oyente) {
+        InteresBase interes = new InteresBase(base, umbral, oyente);
+        List<InteresBase> nuevas = new ArrayList<>(porBase);
+        nuevas.add(interes);
+        porBase = nuevas;
+        return registrar(interes);
+    }
+
+    /**
+     * Los mismos avisos como Flow.Publisher (destino null = toda la base). Cada suscriptor
+     * tiene su propio buffer; si no consume a tiempo se descartan avisos intermedios, lo que
+     * no pierde información porque cada aviso trae la tasa vigente.
+     */
+    public Flow.Publisher<CambioTasa> publicador(String base, String destino, double umbral) {
+        return suscriptor -> {
+            SubmissionPublisher<CambioTasa> salida = new SubmissionPublisher<>();
+            AtomicReference<Suscripcion> interes = new AtomicReference<>();
+            salida.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription s) {
+                    suscriptor.onSubscribe(new Flow.Subscription() {
+                        @Override
+                        public void request(long n) {
+                            s.request(n);
+                        }
+
+                        @Override
+                        public void cancel() {
+                            s.cancel();
+                            Suscripcion i = interes.get();
+                            if (i != null) i.close();
+                            salida.close();
+                        }
+                    });
+                }
+
+                @Override
+                public void onNext(CambioTasa cambio) {
+                    suscriptor.onNext(cambio);
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    suscriptor.onError(e);
+                }
+
+                @Override
+                public void onComplete() {
+                    suscriptor.onComplete();
+                }
+            });
+            Consumer<CambioTasa> ofrecer = cambio -> salida.offer(cambio, null);
+            interes.set(destino == null ? alCambiarBase(base, umbral, ofrecer) : alCambiar(base, destino, umbral, ofrecer));
+            if (salida.isClosed()) interes.get().close(); // cancelado antes de registrarse
+        };
+    }
+
+    /* Oyente de MotorTasas.alRefrescar: compara con el snapshot anterior y avisa */
+    public synchronized void publicar(MatrizTasas nueva) {
+        if (nueva == null || nueva == actual) return;
+        if (cambiadas.length < nueva.tamanio()) cambiadas = new int[nueva.tamanio()];
+        int n = nueva.cambiadas(actual, cambiadas);
+        actual = nueva;
+        if (n == 0) return;
+        ronda++;
+        for (int k = 0; k < n; k++) {
+            List<Interes> interesados = porMoneda.get(nueva.codigoEmpaquetado(cambiadas[k]));
+            if (interesados == null) continue;
+            for (Interes interes : interesados) {
+                // un par con ambas monedas cambiadas se evalúa una sola vez
+                if (interes.ronda == ronda || interes.cancelado) continue;
+                interes.ronda = ronda;
+                interes.evaluar(nueva, cambiadas, n);
+            }
+        }
+        for (InteresBase interes : porBase) {
+            if (!interes.cancelado) interes.evaluar(nueva, cambiadas, n);
+        }
+    }
+
+    public synchronized int activas() {
+        return activas;
+    }
+
+    private Suscripcion registrar(Interes interes) {
+        activas++;
+        if (actual != null) interes.evaluar(actual, null, -1); // valor inicial
+        return () -> cancelar(interes);
+    }
+
+    private synchronized void cancelar(Interes interes) {
+        if (interes.cancelado) return;
+        interes.cancelado = true;
+        activas--;
+        if (interes instanceof InteresPar par) {
+            quitar(par.claveBase, par);
+            quitar(par.claveDestino, par);
+        } else {
+            List<InteresBase> nuevas = new ArrayList<>(porBase);
+            nuevas.remove(interes);
+            porBase = nuevas;
+        }
+    }
+
+    private void agregar(int clave, Interes interes) {
+        List<Interes> nueva = new ArrayList<>(porMoneda.getOrDefault(clave, List.of()));
+        nueva.add(interes);
+        porMoneda.put(clave, nueva);
+    }
+
+    private void quitar(int clave, Interes interes) {
+        List<Interes> lista = porMoneda.get(clave);
+        if (lista == null) return;
+        List<Interes> nueva = new ArrayList<>(lista);
+        nueva.remove(interes);
+        if (nueva.isEmpty()) porMoneda.remove(clave);
+        else porMoneda.put(clave, nueva);
+    }
+
+    // ====================== Intereses ======================
+
+    private abstract class Interes {
+        final double umbral;
+        final Consumer<CambioTasa> oyente;
+        int ronda;
+        boolean cancelado;
+
+        Interes(double umbral, Consumer<CambioTasa> oyente) {
+            this.umbral = umbral;
+            this.oyente = oyente;
+        }
+
+        /* cambiadas/n: ordinales que cambiaron en m; n = -1 para evaluar todo */
+        abstract void evaluar(MatrizTasas m, int[] cambiadas, int n);
+
+        /* Avisa si 'actual' se alejó del último avisado más que el umbral; true si avisó */
+        boolean avisarSiSupera(String base, String destino, double anterior, double actual, MatrizTasas m) {
+            if (Double.isNaN(actual) || actual == anterior) return false;
+            if (!Double.isNaN(anterior) && Math.abs(actual / anterior - 1) < umbral) return false;
+            try {
+                oyente.accept(new CambioTasa(base, destino, anterior, actual, m.getObtenidaEpochMillis()));
+                avisos.increment();
+            } catch (RuntimeException e) {
+                System.err.println("Error en suscriptor de tasas: " + e.getMessage());
+            }
+            return true;
+        }
+    }
+
+    private final class InteresPar extends Interes {
+        final String base;
+        final String destino;
+        final int claveBase;
+        final int claveDestino;
+        double ultimo = Double.NaN;
+
+        InteresPar(String base, String destino, double umbral, Consumer<CambioTasa> oyente) {
+            super(umbral, oyente);
+            this.base = base.toUpperCase();
+            this.destino = destino.toUpperCase();
+            this.claveBase = clave(base);
+            this.claveDestino = clave(destino);
+        }
+
+        @Override
+        void evaluar(MatrizTasas m, int[] cambiadas, int n) {
+            int b = m.indice(claveBase);
+            int d = m.indice(claveDestino);
+            if (b < 0 || d < 0) return;
+            double tasa = m.tasa(b, d);
+            if (avisarSiSupera(base, destino, ultimo, tasa, m)) ultimo = tasa;
+        }
+    }
+
+    private final class InteresBase extends Interes {
+        final String base;
+        final int claveBase;
+        // último valor avisado por moneda, alineado con 'claves' (los códigos de la última matriz vista)
+        int[] claves = new int[0];
+        double[] ultimos = new double[0];
+
+        InteresBase(String base, double umbral, Consumer<CambioTasa> oyente) {
+            super(umbral, oyente);
+            this.base = base.toUpperCase();
+            this.claveBase = clave(base);
+        }
+
+        @Override
+        void evaluar(MatrizTasas m, int[] cambiadas, int n) {
+            int b = m.indice(claveBase);
+            if (b < 0) return;
+            alinear(m);
+            // si se movió la propia base cambian todas sus tasas cruzadas
+            if (n < 0 || Arrays.binarySearch(cambiadas, 0, n, b) >= 0) {
+                for (int i = 0; i < m.tamanio(); i++) evaluar(m, b, i);
+            } else {
+                for (int k = 0; k < n; k++) evaluar(m, b, cambiadas[k]);
+            }
+        }
+
+        private void evaluar(MatrizTasas m, int b, int i) {
+            if (i == b) return;
+            double tasa = m.tasa(b, i);
+            if (avisarSiSupera(base, m.codigo(i), ultimos[i], tasa, m)) ultimos[i] = tasa;
+        }
+
+        /* Reordena los últimos avisados si el snapshot trae otro conjunto de monedas */
+        private void alinear(MatrizTasas m) {
+            int tam = m.tamanio();
+            if (tam == claves.length) {
+                boolean iguales = true;
+                for (int i = 0; i < tam && iguales; i++) iguales = m.codigoEmpaquetado(i) == claves[i];
+                if (iguales) return;
+            }
+            int[] nuevasClaves = new int[tam];
+            double[] nuevosUltimos = new double[tam];
+            for (int i = 0; i < tam; i++) {
+                nuevasClaves[i] = m.codigoEmpaquetado(i);
+                int j = Arrays.binarySearch(claves, nuevasClaves[i]);
+                nuevosUltimos[i] = j >= 0 ? ultimos[j] : Double.NaN;
+            }
+            claves = nuevasClaves;
+            ultimos = nuevosUltimos;
+        }
+    }
+
+    private static int clave(String codigo) {
+        int clave = Utilidades.empaquetarCodigo(codigo);
+        if (clave < 0) throw new IllegalArgumentException("Código de moneda inválido: " + codigo);
+        return clave;
+    }
+}
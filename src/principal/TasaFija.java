@@ -0,0 +1,216 @@
+package principal;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Tasa de cambio como decimal exacto: mantisa * 10^-escala (p. ej. 0.9187 = 9187 / 10^4;
+ * la escala es negativa solo para tasas enormes terminadas en ceros).
+ *
+ * Las conversiones trabajan sobre unidades menores en long, sin asignar memoria y con el
+ * modo de redondeo pedido. Las tasas cruzadas traen hasta 17 dígitos, así que el producto
+ * unidades * mantisa suele pasar de 64 bits: entonces se calcula en 128 (multiplyHigh) y
+ * se divide con aritmética de long. BigDecimal queda solo para cuando el resultado mismo
+ * no cabe en un long o la escala es negativa. El resultado es el mismo en todos los caminos.
+ */
+public final class TasaFija {
+    // mantisas de hasta 17 dígitos: el double más corto que reproduce la tasa nunca tiene más
+    private static final MathContext PRECISION = new MathContext(17, RoundingMode.HALF_EVEN);
+    static final long[] POTENCIAS_10 = new long[19];
+    private static final long DESBORDE = Long.MIN_VALUE; // multiplicarDividir: el cociente no cabe
+    // tasas ya convertidas, por los bits del double: hasta el próximo snapshot cada /convert y
+    // cada fila de un lote repiten las mismas pocas tasas, y así no pasan por BigDecimal
+    private static final int BITS_MEMO = 10;
+    private static final TasaFija[] MEMO = new TasaFija[1 << BITS_MEMO];
+
+    static {
+        POTENCIAS_10[0] = 1;
+        for (int i = 1; i < POTENCIAS_10.length; i++) POTENCIAS_10[i] = POTENCIAS_10[i - 1] * 10;
+    }
+
+    private final long mantisa;
+    private final int escala;
+    private final long bitsOrigen; // doubleToRawLongBits del double de origen; 0 si vino de un BigDecimal
+
+    private TasaFija(long mantisa, int escala, long bitsOrigen) {
+        this.mantisa = mantisa;
+        this.escala = escala;
+        this.bitsOrigen = bitsOrigen;
+    }
+
+    /**
+     * Tasa a partir del double que entrega la API. Se toma la representación decimal más
+     * corta del double, que para las tasas publicadas (≤ 15 dígitos) es exactamente el texto
+     * de la respuesta. Una tasa ya vista sale de una tabla sin asignar memoria (la carrera
+     * entre hilos es benigna: los campos son final y a lo sumo se convierte dos veces).
+     */
+    public static TasaFija de(double tasa) {
+        long bits = Double.doubleToRawLongBits(tasa);
+        int i = (int) ((bits * 0x9E3779B97F4A7C15L) >>> (64 - BITS_MEMO));
+        TasaFija memo = MEMO[i];
+        if (memo != null && memo.bitsOrigen == bits) return memo;
+        if (!(tasa > 0) || Double.isInfinite(tasa)) {
+            throw new IllegalArgumentException("Tasa inválida: " + tasa);
+        }
+        BigDecimal t = redondear(BigDecimal.valueOf(tasa));
+        memo = new TasaFija(t.unscaledValue().longValueExact(), t.scale(), bits);
+        MEMO[i] = memo;
+        return memo;
+    }
+
+    public static TasaFija de(BigDecimal tasa) {
+        if (tasa.signum() <= 0) throw new IllegalArgumentException("Tasa inválida: " + tasa);
+        BigDecimal t = redondear(tasa);
+        return new TasaFija(t.unscaledValue().longValueExact(), t.scale(), 0);
+    }
+
+    private static BigDecimal redondear(BigDecimal tasa) {
+        return tasa.round(PRECISION).stripTrailingZeros();
+    }
+
+    public long getMantisa() {
+        return mantisa;
+    }
+
+    public int getEscala() {
+        return escala;
+    }
+
+    public double aDouble() {
+        return escala >= 0 && escala < POTENCIAS_10.length ? mantisa / (double) POTENCIAS_10[escala] : aBigDecimal().doubleValue();
+    }
+
+    public BigDecimal aBigDecimal() {
+        return BigDecimal.valueOf(mantisa, escala);
+    }
+
+    /* Escribe la tasa como decimal plano en sb sin crear objetos intermedios */
+    public StringBuilder anexar(StringBuilder sb) {
+        return escala >= 0 && escala < POTENCIAS_10.length ? Moneda.anexar(sb, mantisa, escala) : sb.append(this);
+    }
+
+    /**
+     * Convierte unidades menores de la moneda base (decOrigen decimales) a unidades menores
+     * de la moneda destino (decDestino decimales): unidades * tasa.
+     */
+    public long convertir(long unidades, int decOrigen, int decDestino, RoundingMode modo) {
+        int k = escala + decOrigen - decDestino;
+        long hi = Math.multiplyHigh(unidades, mantisa);
+        long producto = unidades * mantisa;
+        if (hi == (producto >> 63)) {
+            if (k == 0) return producto;
+            if (k > 0 && k < POTENCIAS_10.length) return dividir(producto, POTENCIAS_10[k], modo);
+            if (k < 0 && -k < POTENCIAS_10.length) {
+                long f = POTENCIAS_10[-k];
+                if (Math.multiplyHigh(producto, f) == ((producto * f) >> 63)) return producto * f;
+            }
+        } else if (k > 0 && k < POTENCIAS_10.length) {
+            long r = multiplicarDividir(unidades, mantisa, POTENCIAS_10[k], modo);
+            if (r != DESBORDE) return r;
+        }
+        return BigDecimal.valueOf(unidades).multiply(BigDecimal.valueOf(mantisa))
+                .movePointLeft(k).setScale(0, modo).longValueExact();
+    }
+
+    /**
+     * Conversión inversa sin calcular 1/tasa: unidades menores de la moneda destino
+     * (decDestino) a unidades menores de la base (decBase), dividiendo entre la tasa.
+     */
+    public long convertirInverso(long unidades, int decDestino, int decBase, RoundingMode modo) {
+        int e = escala + decBase - decDestino;
+        if (e >= 0 && e < POTENCIAS_10.length) {
+            long f = POTENCIAS_10[e];
+            long numerador = unidades * f;
+            if (Math.multiplyHigh(unidades, f) == (numerador >> 63)) return dividir(numerador, mantisa, modo);
+            long r = multiplicarDividir(unidades, f, mantisa, modo);
+            if (r != DESBORDE) return r;
+        } else if (e < 0 && -e < POTENCIAS_10.length) {
+            long f = POTENCIAS_10[-e];
+            long divisor = mantisa * f;
+            if (Math.multiplyHigh(mantisa, f) == 0 && divisor > 0) return dividir(unidades, divisor, modo);
+        }
+        return BigDecimal.valueOf(unidades).movePointRight(e)
+                .divide(BigDecimal.valueOf(mantisa), 0, modo).longValueExact();
+    }
+
+    /* Cociente p/d (d > 0) redondeado según modo, solo con aritmética de long */
+    static long dividir(long p, long d, RoundingMode modo) {
+        long q = p / d;
+        long r = p % d;
+        if (r == 0) return q;
+        return redondear(q, Math.abs(r), d, p < 0 ? -1 : 1, modo);
+    }
+
+    /**
+     * a * b / d (b ≥ 0, d > 0) redondeado según modo, con el producto en 128 bits.
+     * Retorna DESBORDE si el cociente podría no caber en un long.
+     */
+    static long multiplicarDividir(long a, long b, long d, RoundingMode modo) {
+        long signo = a < 0 ? -1 : 1;
+        long ua = Math.abs(a); // Long.MIN_VALUE queda como 2^63 sin signo, que es lo correcto
+        long hi = Math.unsignedMultiplyHigh(ua, b);
+        long lo = ua * b;
+        if (Long.compareUnsigned(hi, d >>> 1) >= 0) return DESBORDE;
+
+        // división 128/64 en dos dígitos de 32 bits (Hacker's Delight, divlu); hi < d garantiza que no se desborda
+        long base = 1L << 32;
+        int s = Long.numberOfLeadingZeros(d);
+        long v = d << s;
+        long vn1 = v >>> 32;
+        long vn0 = v & 0xFFFFFFFFL;
+        long un32 = s == 0 ? hi : (hi << s) | (lo >>> (64 - s));
+        long un10 = lo << s;
+        long un1 = un10 >>> 32;
+        long un0 = un10 & 0xFFFFFFFFL;
+
+        long q1 = Long.divideUnsigned(un32, vn1);
+        long rhat = un32 - q1 * vn1;
+        while (q1 >= base || Long.compareUnsigned(q1 * vn0, (rhat << 32) | un1) > 0) {
+            q1--;
+            rhat += vn1;
+            if (rhat >= base) break;
+        }
+        long un21 = (un32 << 32) + un1 - q1 * v;
+        long q0 = Long.divideUnsigned(un21, vn1);
+        rhat = un21 - q0 * vn1;
+        while (q0 >= base || Long.compareUnsigned(q0 * vn0, (rhat << 32) | un0) > 0) {
+            q0--;
+            rhat += vn1;
+            if (rhat >= base) break;
+        }
+        long resto = ((un21 << 32) + un0 - q0 * v) >>> s;
+        long q = signo * ((q1 << 32) + q0);
+        return resto == 0 ? q : redondear(q, resto, d, signo, modo);
+    }
+
+    /* Ajusta el cociente truncado q según el resto (0 < resto < d) y el signo del dividendo */
+    private static long redondear(long q, long resto, long d, long signo, RoundingMode modo) {
+        int mitad = Long.compare(resto, d - resto); // resto contra d/2 sin desbordar
+        return switch (modo) {
+            case DOWN -> q;
+            case UP -> q + signo;
+            case FLOOR -> signo < 0 ? q - 1 : q;
+            case CEILING -> signo > 0 ? q + 1 : q;
+            case HALF_UP -> mitad >= 0 ? q + signo : q;
+            case HALF_DOWN -> mitad > 0 ? q + signo : q;
+            case HALF_EVEN -> mitad > 0 || (mitad == 0 && (q & 1) != 0) ? q + signo : q;
+            case UNNECESSARY -> throw new ArithmeticException("Se requiere redondeo");
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TasaFija t && t.mantisa == mantisa && t.escala == escala;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(mantisa) * 31 + escala;
+    }
+
+    @Override
+    public String toString() {
+        return aBigDecimal().toPlainString();
+    }
+}
@@ -1,12 +1,51 @@
 package principal;
 
-import java.text.DecimalFormat;
+import java.util.Locale;
 
 public class Utilidades {
 
-    /* Método para redondear o formatear montos */
+    /* Método para redondear o formatear montos (locale por defecto, ver Formateador) */
     public static String formatear(double valor) {
-        DecimalFormat df = new DecimalFormat("#,##0.00");
-        return df.format(valor);
+        return Formateador.para(Locale.getDefault()).formatear(valor);
+    }
+
+    /*
+     * Empaqueta un código ISO de 3 letras en un int (5 bits por letra).
+     * Acepta mayúsculas o minúsculas; retorna -1 si el código no es válido.
+     */
+    public static int empaquetarCodigo(CharSequence codigo) {
+        if (codigo == null || codigo.length() != 3) return -1;
+        int clave = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = codigo.charAt(i);
+            if ((c < 'A' || c > 'Z') && (c < 'a' || c > 'z')) return -1;
+            clave = (clave << 5) | (c & 0x1F);
+        }
+        return clave;
+    }
+
+    /* Inverso de empaquetarCodigo: devuelve el código en mayúsculas */
+    public static String desempaquetarCodigo(int clave) {
+        char[] c = new char[3];
+        c[0] = (char) ('@' + ((clave >>> 10) & 0x1F));
+        c[1] = (char) ('@' + ((clave >>> 5) & 0x1F));
+        c[2] = (char) ('@' + (clave & 0x1F));
+        return new String(c);
+    }
+
+    /*
+     * Valor de un enum tomado de una propiedad del sistema (sin distinguir mayúsculas).
+     * Un valor desconocido no detiene el programa: se avisa por stderr y se usa el defecto.
+     */
+    public static <E extends Enum<E>> E enumDePropiedad(String propiedad, E defecto) {
+        String valor = System.getProperty(propiedad);
+        if (valor == null || valor.isBlank()) return defecto;
+        try {
+            return Enum.valueOf(defecto.getDeclaringClass(), valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Valor inválido para " + propiedad + ": '" + valor + "', se usa "
+                    + defecto.name().toLowerCase(Locale.ROOT));
+            return defecto;
+        }
     }
 }
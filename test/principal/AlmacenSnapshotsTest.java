@@ -0,0 +1,100 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AlmacenSnapshotsTest {
+
+    @TempDir
+    Path dir;
+
+    private static final int CABECERA = 24;
+
+    private static MatrizTasas matriz() {
+        return MatrizTasas.desde("USD", Map.of("USD", 1.0, "EUR", 0.92, "JPY", 151.3));
+    }
+
+    private static ByteBuffer codificado(MatrizTasas m) {
+        ByteBuffer datos = ByteBuffer.allocate(AlmacenSnapshots.tamanio(m));
+        AlmacenSnapshots.codificar(m, datos);
+        return datos.flip();
+    }
+
+    @Test
+    void idaYVuelta() {
+        MatrizTasas m = matriz();
+        MatrizTasas leida = AlmacenSnapshots.decodificar(codificado(m));
+        assertNotNull(leida);
+        assertEquals("USD", leida.getBase());
+        assertEquals(3, leida.tamanio());
+        assertEquals(151.3 / 0.92, leida.tasa("EUR", "JPY"), 1e-9);
+        assertEquals(m.getObtenidaEpochMillis(), leida.getObtenidaEpochMillis());
+    }
+
+    @Test
+    void guardarYLeerDelArchivo() throws Exception {
+        AlmacenSnapshots almacen = new AlmacenSnapshots(dir.resolve("snapshot-USD.bin"));
+        assertNull(almacen.leer());
+        assertEquals(-1, almacen.obtenidaEpochMillis());
+        MatrizTasas m = matriz();
+        almacen.guardar(m);
+        assertEquals(m.getObtenidaEpochMillis(), almacen.obtenidaEpochMillis());
+        assertEquals(0.92, almacen.leer().tasa("USD", "EUR"));
+    }
+
+    @Test
+    void rechazaTasasNoPositivasONoFinitas() {
+        MatrizTasas m = matriz();
+        int n = m.tamanio();
+        for (double mala : new double[]{0.0, -1.0, Double.NaN, Double.POSITIVE_INFINITY, -0.0}) {
+            for (int i = 0; i < n; i++) {
+                ByteBuffer datos = codificado(m);
+                datos.putDouble(CABECERA + n * 4 + i * 8, mala);
+                assertNull(AlmacenSnapshots.decodificar(datos), "tasa " + mala + " en " + i);
+            }
+        }
+    }
+
+    @Test
+    void rechazaCodigosYCabecerasInvalidos() {
+        MatrizTasas m = matriz();
+        ByteBuffer datos = codificado(m);
+        datos.putInt(CABECERA, 0); // código vacío
+        assertNull(AlmacenSnapshots.decodificar(datos));
+
+        datos = codificado(m);
+        datos.putInt(CABECERA + 4, 27 << 10 | 1 << 5 | 1); // letra fuera de A-Z
+        assertNull(AlmacenSnapshots.decodificar(datos));
+
+        datos = codificado(m);
+        datos.putInt(16, -5); // base
+        assertNull(AlmacenSnapshots.decodificar(datos));
+
+        datos = codificado(m);
+        datos.putInt(20, m.tamanio() + 1); // n no coincide con el largo
+        assertNull(AlmacenSnapshots.decodificar(datos));
+
+        datos = codificado(m);
+        datos.putInt(0, 0); // magia
+        assertNull(AlmacenSnapshots.decodificar(datos));
+
+        assertNull(AlmacenSnapshots.decodificar(ByteBuffer.allocate(10)));
+    }
+
+    @Test
+    void unArchivoCorruptoNoSeUsa() throws Exception {
+        Path archivo = dir.resolve("snapshot-USD.bin");
+        ByteBuffer datos = codificado(matriz());
+        datos.putDouble(CABECERA + 3 * 4, Double.NaN);
+        Files.write(archivo, datos.array());
+        assertNull(new AlmacenSnapshots(archivo).leer());
+    }
+}
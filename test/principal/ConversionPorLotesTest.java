@@ -0,0 +1,108 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConversionPorLotesTest {
+
+    /* /latest/USD fijo: USD 1, EUR 0.92 */
+    private static final ProveedorTasas FIJO = new ProveedorTasas() {
+        @Override
+        public String getNombre() {
+            return "fijo";
+        }
+
+        @Override
+        public CompletableFuture<MatrizTasas> fetchLatestMatrixAsync(String base) {
+            int[] claves = {Utilidades.empaquetarCodigo("USD"), Utilidades.empaquetarCodigo("EUR")};
+            return CompletableFuture.completedFuture(MatrizTasas.desde("USD", claves, new double[]{1.0, 0.92}, 2));
+        }
+
+        @Override
+        public CompletableFuture<Double> fetchPairRateAsync(String base, String target) {
+            return fetchLatestMatrixAsync(base).thenApply(m -> m.tasa(base, target));
+        }
+    };
+
+    private ServicioTasas servicio;
+    private final LongAdder conversiones = Metricas.global().contador("conversor_conversiones_total{modo=\"lotes\"}");
+
+    @BeforeEach
+    void abrir() {
+        servicio = new ServicioTasas(FIJO, null, null);
+    }
+
+    @AfterEach
+    void cerrar() {
+        servicio.cerrar();
+    }
+
+    private List<String> procesar(ConversionPorLotes lotes, String entrada, boolean ndjson) throws Exception {
+        StringWriter salida = new StringWriter();
+        try (BufferedReader in = new BufferedReader(new StringReader(entrada));
+             BufferedWriter out = new BufferedWriter(salida)) {
+            lotes.procesar(in, out, ndjson);
+        }
+        return salida.toString().lines().toList();
+    }
+
+    @Test
+    void csvCitaLosCodigosDesconocidosYCuentaSoloLasConvertidas() throws Exception {
+        ConversionPorLotes lotes = new ConversionPorLotes(servicio, 2);
+        long antes = conversiones.sum();
+        List<String> salida = procesar(lotes, """
+                amount,from,to
+                100,USD,EUR
+                5,US"D,EUR
+                abc,USD,EUR
+                1.5,usd,eur
+                """, false);
+
+        assertEquals(List.of(
+                "amount,from,to,rate,result",
+                "100.00,USD,EUR,0.92,92.00",
+                ",\"US\"\"D\",EUR,ERROR,",
+                ",USD,EUR,ERROR,",
+                "1.50,USD,EUR,0.92,1.38"), salida);
+        assertEquals(4, lotes.getFilas());
+        assertEquals(2, lotes.getErrores());
+        assertEquals(2, conversiones.sum() - antes);
+        assertEquals(new BigDecimal("93.38"), lotes.getTotales().get("EUR"));
+    }
+
+    @Test
+    void ndjsonEscapaLosCodigosDesconocidos() throws Exception {
+        ConversionPorLotes lotes = new ConversionPorLotes(servicio);
+        List<String> salida = procesar(lotes, """
+                {"amount":"10","from":"USD","to":"EUR"}
+                {"amount":"1","from":"a\\"b\\\\c\\n","to":"EUR"}
+                """, true);
+
+        assertEquals("{\"amount\":10.00,\"from\":\"USD\",\"to\":\"EUR\",\"rate\":0.92,\"result\":9.20}", salida.get(0));
+        // toda línea de salida es JSON válido y devuelve el código tal como vino
+        JsonObject error = JsonParser.parseString(salida.get(1)).getAsJsonObject();
+        assertEquals("a\"b\\c", error.get("from").getAsString());
+        assertEquals("sin tasa o fila inválida", error.get("error").getAsString());
+    }
+
+    @Test
+    void escapes() {
+        assertEquals("\"a\\u0001\\t\"", ConversionPorLotes.anexarJson(new StringBuilder(), "a\u0001\t").toString());
+        assertEquals("\"\"", ConversionPorLotes.anexarJson(new StringBuilder(), null).toString());
+        assertEquals("\"a,b\"", ConversionPorLotes.anexarCsv(new StringBuilder(), "a,b").toString());
+        assertEquals("abc", ConversionPorLotes.anexarCsv(new StringBuilder(), "abc").toString());
+    }
+}
@@ -0,0 +1,115 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CortaCircuitosTest {
+
+    private static CortaCircuitos abierto(long pausaMillis) {
+        CortaCircuitos c = new CortaCircuitos("prueba", 2, pausaMillis);
+        c.fallo(CortaCircuitos.SIN_PRUEBA);
+        c.fallo(CortaCircuitos.SIN_PRUEBA);
+        return c;
+    }
+
+    @Test
+    void seAbreTrasElUmbralDeFallos() throws Exception {
+        CortaCircuitos c = new CortaCircuitos("prueba", 2, 60_000);
+        assertEquals(CortaCircuitos.SIN_PRUEBA, c.permitir());
+        c.fallo(CortaCircuitos.SIN_PRUEBA);
+        assertEquals(CortaCircuitos.Estado.CERRADO, c.estado());
+        c.fallo(CortaCircuitos.SIN_PRUEBA);
+        assertEquals(CortaCircuitos.Estado.ABIERTO, c.estado());
+        assertThrows(CortaCircuitos.AbiertoException.class, c::permitir);
+    }
+
+    @Test
+    void semiabiertoDejaPasarUnaSolaPrueba() throws Exception {
+        CortaCircuitos c = abierto(0);
+        assertEquals(CortaCircuitos.Estado.SEMIABIERTO, c.estado());
+        long prueba = c.permitir();
+        assertNotEquals(CortaCircuitos.SIN_PRUEBA, prueba);
+        assertThrows(CortaCircuitos.AbiertoException.class, c::permitir);
+        c.exito(prueba);
+        assertEquals(CortaCircuitos.Estado.CERRADO, c.estado());
+        assertEquals(CortaCircuitos.SIN_PRUEBA, c.permitir());
+    }
+
+    @Test
+    void pruebaFallidaReabre() throws Exception {
+        CortaCircuitos c = abierto(0);
+        c.fallo(c.permitir());
+        assertNotEquals(CortaCircuitos.SIN_PRUEBA, c.permitir()); // pausa 0: enseguida otra prueba
+
+        CortaCircuitos lento = abierto(60_000);
+        assertEquals(CortaCircuitos.Estado.ABIERTO, lento.estado());
+        assertThrows(CortaCircuitos.AbiertoException.class, lento::permitir);
+    }
+
+    @Test
+    void unaPruebaQueNoLlegoAlServicioSeSuelta() throws Exception {
+        CortaCircuitos c = abierto(0);
+        // p. ej. SinCupoException: ni éxito ni fallo, pero no puede quedar tomada para siempre
+        c.soltarPrueba(c.permitir());
+        c.exito(c.permitir());
+        assertEquals(CortaCircuitos.Estado.CERRADO, c.estado());
+    }
+
+    @Test
+    void unFalloTardioNoTocaLaPruebaEnCurso() throws Exception {
+        CortaCircuitos c = abierto(0);
+        long prueba = c.permitir();
+        // falla una llamada admitida antes de que se abriera: no reabre ni libera la prueba
+        c.fallo(CortaCircuitos.SIN_PRUEBA);
+        c.exito(CortaCircuitos.SIN_PRUEBA);
+        assertEquals(CortaCircuitos.Estado.SEMIABIERTO, c.estado());
+        assertThrows(CortaCircuitos.AbiertoException.class, c::permitir);
+        // una ficha vieja tampoco
+        c.fallo(prueba - 1);
+        c.soltarPrueba(prueba + 1);
+        assertThrows(CortaCircuitos.AbiertoException.class, c::permitir);
+        c.exito(prueba);
+        assertEquals(CortaCircuitos.Estado.CERRADO, c.estado());
+    }
+
+    /* Proveedor caído que cuenta las llamadas */
+    private static final class Caido implements ProveedorTasas {
+        final AtomicInteger llamadas = new AtomicInteger();
+
+        @Override
+        public String getNombre() {
+            return "caido";
+        }
+
+        @Override
+        public CompletableFuture<MatrizTasas> fetchLatestMatrixAsync(String base) {
+            llamadas.incrementAndGet();
+            return CompletableFuture.failedFuture(new IOException("503"));
+        }
+
+        @Override
+        public CompletableFuture<Double> fetchPairRateAsync(String base, String target) {
+            return CompletableFuture.failedFuture(new IOException("503"));
+        }
+    }
+
+    @Test
+    void conLaApiCaidaElMotorSirveElSnapshotViejoSinReintentarCadaVez() {
+        Caido caido = new Caido();
+        MotorTasas motor = new MotorTasas(caido, 60, 120);
+        int[] claves = {Utilidades.empaquetarCodigo("USD"), Utilidades.empaquetarCodigo("EUR")};
+        MatrizTasas vieja = MatrizTasas.desde("USD", claves, new double[]{1.0, 0.92}, 2,
+                System.currentTimeMillis() - 3_600_000L);
+        motor.adoptar(vieja);
+
+        for (int i = 0; i < 20; i++) assertSame(vieja, motor.matrizActual());
+        assertEquals(1, caido.llamadas.get());
+    }
+}
@@ -0,0 +1,52 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class FormateadorTest {
+
+    private static DecimalFormat decimalFormat(Locale locale, int decimales, boolean agrupar) {
+        DecimalFormat df = (DecimalFormat) NumberFormat.getNumberInstance(locale);
+        df.setGroupingUsed(agrupar);
+        df.setMinimumFractionDigits(decimales);
+        df.setMaximumFractionDigits(decimales);
+        return df;
+    }
+
+    @Test
+    void negativosQueRedondeanACeroConservanElSigno() {
+        Formateador f = Formateador.consola();
+        assertEquals("-0.00", f.formatear(-0.001));
+        assertEquals("-0.00", f.formatear(-0.0));
+        assertEquals("0.00", f.formatear(0.001));
+        assertEquals("-0.000000", f.formatearTasa(-1e-9));
+        assertEquals("-1,234.50", f.formatear(-1234.5));
+    }
+
+    @Test
+    void coincideConDecimalFormat() {
+        SplittableRandom r = new SplittableRandom(7);
+        for (Locale locale : new Locale[]{Locale.US, Locale.GERMANY, Locale.FRANCE, Locale.forLanguageTag("es-CR")}) {
+            Formateador f = Formateador.para(locale);
+            DecimalFormat monto = decimalFormat(locale, 2, true);
+            DecimalFormat tasa = decimalFormat(locale, Formateador.DECIMALES_TASA, false);
+            for (int i = 0; i < 20_000; i++) {
+                // mezcla de magnitudes, mitades exactas (x.xx5) y valores diminutos de ambos signos;
+                // por encima de ~2^53 DecimalFormat no sigue ni el decimal más corto ni el exacto
+                double v = switch (i % 4) {
+                    case 0 -> r.nextDouble(-1e9, 1e9);
+                    case 1 -> Math.round(r.nextDouble(-1e6, 1e6) * 1000) / 1000.0 + 0.0005;
+                    case 2 -> r.nextDouble(-0.01, 0.01);
+                    default -> r.nextDouble(-1e13, 1e13);
+                };
+                assertEquals(monto.format(v), f.formatear(v), () -> "monto " + v + " " + locale);
+                assertEquals(tasa.format(v), f.formatearTasa(v), () -> "tasa " + v + " " + locale);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistorialTasasTest {
+
+    @TempDir
+    Path dir;
+
+    private static MatrizTasas delDia(LocalDate dia, double eur) {
+        long epochMillis = dia.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        int[] claves = {Utilidades.empaquetarCodigo("USD"), Utilidades.empaquetarCodigo("EUR")};
+        return MatrizTasas.desde("USD", claves, new double[]{1.0, eur}, 2, epochMillis);
+    }
+
+    @Test
+    void dosInstanciasAnexanSinPisarseLasFilas() throws Exception {
+        LocalDate lunes = LocalDate.of(2024, 3, 4);
+        // ambas abren el almacén vacío antes de que la otra escriba, como dos procesos
+        try (HistorialTasas a = new HistorialTasas(dir, "USD"); HistorialTasas b = new HistorialTasas(dir, "USD")) {
+            assertEquals(0, a.getFilas());
+            assertEquals(0, b.getFilas());
+            a.registrar(delDia(lunes, 0.91));
+            b.registrar(delDia(lunes.plusDays(1), 0.92));
+            a.registrar(delDia(lunes.plusDays(2), 0.93));
+            assertEquals(3, a.getFilas());
+        }
+        try (HistorialTasas h = new HistorialTasas(dir, "USD")) {
+            assertEquals(3, h.getFilas());
+            assertEquals(0.91, h.rateAt("USD", "EUR", lunes));
+            assertEquals(0.92, h.rateAt("USD", "EUR", lunes.plusDays(1)));
+            assertEquals(0.93, h.rateAt("USD", "EUR", lunes.plusDays(5)));
+            assertEquals(3, h.series("USD", "EUR", lunes, lunes.plusDays(2)).tamanio());
+        }
+    }
+}
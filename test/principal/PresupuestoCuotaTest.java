@@ -0,0 +1,89 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PresupuestoCuotaTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void dosLibrosSobreElMismoArchivoNoPierdenLlamadas() throws Exception {
+        Path archivo = dir.resolve("cuota.bin");
+        // dos instancias = dos procesos que comparten el archivo
+        PresupuestoCuota a = new PresupuestoCuota(archivo, 1_000_000);
+        PresupuestoCuota b = new PresupuestoCuota(archivo, 1_000_000);
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < 8; h++) {
+            PresupuestoCuota libro = h % 2 == 0 ? a : b;
+            boolean pair = h < 4;
+            hilos.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 5_000; i++) libro.registrar(pair);
+            }));
+        }
+        for (Thread t : hilos) t.join();
+
+        assertEquals(40_000, a.usadas());
+        assertEquals(40_000, b.usadas());
+        assertEquals(40_000, new PresupuestoCuota(archivo, 1_000_000).usadas());
+        assertEquals(1_000_000 - 40_000, a.restantes());
+    }
+
+    @Test
+    void quotaReachedAgotaElMesParaTodos() throws Exception {
+        Path archivo = dir.resolve("cuota.bin");
+        PresupuestoCuota a = new PresupuestoCuota(archivo, 100);
+        PresupuestoCuota b = new PresupuestoCuota(archivo, 100);
+        a.registrar(true);
+        a.permitir();
+        a.marcarAgotada();
+
+        assertEquals(PresupuestoCuota.Nivel.AGOTADO, a.nivel());
+        assertThrows(PresupuestoCuota.AgotadaException.class, a::permitir);
+        b.registrar(false); // b se entera en su próxima anotación
+        assertEquals(PresupuestoCuota.Nivel.AGOTADO, b.nivel());
+        assertEquals(101, b.usadas());
+    }
+
+    @Test
+    void sinArchivoSeLlevaEnMemoria() {
+        PresupuestoCuota libro = new PresupuestoCuota(null, 100);
+        for (int i = 0; i < 96; i++) libro.registrar(i % 2 == 0);
+        assertEquals(96, libro.usadas());
+        assertEquals(PresupuestoCuota.Nivel.CRITICO, libro.nivel());
+        for (int i = 0; i < 4; i++) libro.registrar(true);
+        assertEquals(PresupuestoCuota.Nivel.AGOTADO, libro.nivel());
+    }
+
+    @Test
+    void unArchivoAjenoSeReinicia() throws IOException {
+        Path archivo = dir.resolve("cuota.bin");
+        Files.write(archivo, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20});
+        assertEquals(0, new PresupuestoCuota(archivo, 100).usadas());
+    }
+
+    @Test
+    void unaLlamadaSinCupoNoGastaCuota() {
+        PresupuestoCuota libro = new PresupuestoCuota(null, 100);
+        // ningún permiso de concurrencia: toda llamada termina en SinCupoException sin llegar a la red
+        ExchangeRateApiClient.Opciones opciones = new ExchangeRateApiClient.Opciones(Duration.ofMillis(50),
+                Duration.ofMillis(50), 0, 0, Duration.ofMillis(1), Duration.ofMillis(1), 5, Duration.ofSeconds(1), 0, 1);
+        ExchangeRateApiClient cliente = new ExchangeRateApiClient("k", "http://127.0.0.1:9/v6", opciones, libro);
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> cliente.fetchLatestMatrixAsync("USD").join());
+        assertEquals("Demasiadas llamadas simultáneas a la API", e.getCause().getMessage());
+        assertEquals(0, libro.usadas());
+    }
+}
@@ -0,0 +1,104 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ProveedorCompuestoTest {
+
+    private static final long HORA = 3_600_000L;
+
+    /* Proveedor que responde siempre la misma matriz, opcionalmente con retraso */
+    private record Fijo(String nombre, MatrizTasas matriz, long retrasoMillis) implements ProveedorTasas {
+        @Override
+        public String getNombre() {
+            return nombre;
+        }
+
+        @Override
+        public CompletableFuture<MatrizTasas> fetchLatestMatrixAsync(String base) {
+            if (matriz == null) return CompletableFuture.failedFuture(new IOException(nombre + " caído"));
+            return CompletableFuture.supplyAsync(() -> matriz,
+                    CompletableFuture.delayedExecutor(retrasoMillis, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public CompletableFuture<Double> fetchPairRateAsync(String base, String target) {
+            return fetchLatestMatrixAsync(base).thenApply(m -> m.tasa(base, target));
+        }
+    }
+
+    private static MatrizTasas matriz(double eur, long obtenidaEpochMillis) {
+        int[] claves = {Utilidades.empaquetarCodigo("USD"), Utilidades.empaquetarCodigo("EUR")};
+        return MatrizTasas.desde("USD", claves, new double[]{1.0, eur}, 2, obtenidaEpochMillis);
+    }
+
+    @Test
+    void unaMatrizViejaNoGanaAunqueLlegueAntes() {
+        MatrizTasas vieja = matriz(0.90, System.currentTimeMillis() - 3 * HORA);
+        MatrizTasas fresca = matriz(0.92, System.currentTimeMillis());
+        ProveedorCompuesto compuesto = new ProveedorCompuesto(ProveedorCompuesto.Modo.PRIMERO,
+                List.of(new Fijo("local", vieja, 0), new Fijo("api", fresca, 50)), 3000);
+
+        assertSame(fresca, compuesto.fetchLatestMatrixAsync("USD").join());
+    }
+
+    @Test
+    void sinRespuestasFrescasSeUsaLaMasNueva() {
+        MatrizTasas muyVieja = matriz(0.90, System.currentTimeMillis() - 5 * HORA);
+        MatrizTasas vieja = matriz(0.91, System.currentTimeMillis() - 2 * HORA);
+        ProveedorCompuesto compuesto = new ProveedorCompuesto(ProveedorCompuesto.Modo.PRIMERO,
+                List.of(new Fijo("a", muyVieja, 0), new Fijo("b", vieja, 20), new Fijo("c", null, 0)), 3000);
+
+        assertSame(vieja, compuesto.fetchLatestMatrixAsync("USD").join());
+    }
+
+    @Test
+    void fallaSoloSiFallanTodos() {
+        ProveedorCompuesto compuesto = new ProveedorCompuesto(ProveedorCompuesto.Modo.PRIMERO,
+                List.of(new Fijo("a", null, 0), new Fijo("b", null, 0)));
+
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> compuesto.fetchLatestMatrixAsync("USD").join());
+        assertEquals(IOException.class, e.getCause().getClass());
+    }
+
+    @Test
+    void laMedianaIgnoraLasViejasSiHayFrescas() {
+        long ahora = System.currentTimeMillis();
+        ProveedorCompuesto compuesto = new ProveedorCompuesto(ProveedorCompuesto.Modo.MEDIANA, List.of(
+                new Fijo("a", matriz(0.50, ahora - 4 * HORA), 0),
+                new Fijo("b", matriz(0.92, ahora), 0),
+                new Fijo("c", matriz(0.94, ahora - 1000), 0)), 3000);
+
+        MatrizTasas m = compuesto.fetchLatestMatrixAsync("USD").join();
+        assertEquals(0.93, m.tasa("USD", "EUR"), 1e-12);
+        assertFalse(m.edadNanos() >= 3000L * 1_000_000_000L);
+    }
+
+    @Test
+    void elMotorNoRepublicaUnSnapshotQueNoEsMasNuevo() {
+        long ahora = System.currentTimeMillis();
+        MatrizTasas vigente = matriz(0.92, ahora);
+        MatrizTasas anterior = matriz(0.91, ahora - 1000);
+        MotorTasas motor = new MotorTasas(new Fijo("api", anterior, 0), 60, 120);
+        AtomicInteger avisos = new AtomicInteger();
+        motor.alRefrescar(m -> avisos.incrementAndGet());
+
+        assertEquals(true, motor.adoptar(vigente));
+        assertFalse(motor.adoptar(vigente));
+        assertFalse(motor.adoptar(anterior));
+        assertSame(vigente, motor.refrescarAsync().join());
+        assertSame(vigente, motor.matrizSinRefrescar());
+        assertEquals(1, avisos.get());
+    }
+}
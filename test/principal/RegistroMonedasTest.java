@@ -0,0 +1,100 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class RegistroMonedasTest {
+
+    @Test
+    void normalizaMayusculasYEspacios() {
+        String usd = RegistroMonedas.normalizar("USD");
+        assertEquals("USD", usd);
+        assertSame(usd, RegistroMonedas.normalizar(" usd "));
+        assertSame(usd, RegistroMonedas.normalizar(new StringBuilder("uSd")));
+        assertSame(usd, RegistroMonedas.normalizar("100,usd,EUR", 4, 7));
+        assertEquals(RegistroMonedas.ordinal("EUR"), RegistroMonedas.ordinal("100,usd, eur ", 8, 13));
+        int o = RegistroMonedas.ordinal("jpy");
+        assertEquals("JPY", RegistroMonedas.codigo(o));
+        assertEquals(o, RegistroMonedas.ordinalDeClave(Utilidades.empaquetarCodigo("JPY")));
+    }
+
+    @Test
+    void rechazaLoQueNoEsUnaMonedaConocida() {
+        for (String malo : new String[]{null, "", "US", "USDX", "U$D", "US1", "ÚSD", "U D", "QQZ"}) {
+            assertEquals(-1, RegistroMonedas.ordinal(malo), malo);
+            assertNull(RegistroMonedas.normalizar(malo), malo);
+            assertFalse(RegistroMonedas.conocida(malo), malo);
+        }
+        assertEquals(-1, RegistroMonedas.ordinalDeClave(-1));
+        assertEquals(-1, RegistroMonedas.ordinalDeClave(1 << 15));
+    }
+
+    @Test
+    void decimalesSegunIso4217() {
+        assertEquals(2, RegistroMonedas.decimales("USD"));
+        assertEquals(0, RegistroMonedas.decimales("JPY"));
+        assertEquals(3, RegistroMonedas.decimales("KWD"));
+        assertEquals(4, RegistroMonedas.decimales("CLF"));
+        assertEquals(2, RegistroMonedas.decimales("QQY")); // fuera del registro
+        assertEquals("Yen japonés", RegistroMonedas.nombre(RegistroMonedas.ordinal("JPY")));
+    }
+
+    @Test
+    void aprendeLosCodigosNuevosDeUnSnapshot() {
+        int antes = RegistroMonedas.cantidad();
+        assertFalse(RegistroMonedas.conocida("QQX"));
+        RegistroMonedas.aprender(MatrizTasas.desde("USD", Map.of("USD", 1.0, "EUR", 0.92, "QQX", 3.5)));
+        assertEquals(antes + 1, RegistroMonedas.cantidad());
+        int o = RegistroMonedas.ordinal("qqx");
+        assertEquals(antes, o);
+        assertEquals("QQX", RegistroMonedas.normalizar("qqx"));
+        assertEquals(2, RegistroMonedas.decimales(o));
+        assertEquals("QQX", RegistroMonedas.nombre(o));
+        // los ordinales existentes no se mueven y un snapshot ya conocido no agrega nada
+        assertEquals("EUR", RegistroMonedas.codigo(RegistroMonedas.ordinal("EUR")));
+        RegistroMonedas.aprender(MatrizTasas.desde("USD", Map.of("USD", 1.0, "QQX", 3.6)));
+        assertEquals(antes + 1, RegistroMonedas.cantidad());
+    }
+
+    @Test
+    void servicioRechazaCodigosDesconocidosSinLlamarALaApi() {
+        AtomicInteger llamadas = new AtomicInteger();
+        ProveedorTasas contador = new ProveedorTasas() {
+            @Override
+            public String getNombre() {
+                return "contador";
+            }
+
+            @Override
+            public CompletableFuture<MatrizTasas> fetchLatestMatrixAsync(String base) {
+                llamadas.incrementAndGet();
+                return CompletableFuture.completedFuture(MatrizTasas.desde(base, Map.of(base, 1.0, "EUR", 0.92)));
+            }
+
+            @Override
+            public CompletableFuture<Double> fetchPairRateAsync(String base, String target) {
+                llamadas.incrementAndGet();
+                return CompletableFuture.completedFuture(1.0);
+            }
+        };
+        ServicioTasas servicio = new ServicioTasas(contador, null, null);
+        try {
+            IOException e = assertThrows(IOException.class, () -> servicio.obtenerTasa("USD", "QQW"));
+            assertTrue(e.getMessage().contains("QQW"), e.getMessage());
+            assertThrows(IOException.class, () -> servicio.obtenerTasa("XYZ1", "EUR"));
+            assertEquals(0, llamadas.get());
+        } finally {
+            servicio.cerrar();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class RutasTasasTest {
+
+    private static final long UNA_HORA = 3600;
+
+    private final AtomicLong reloj = new AtomicLong(); // nanos; lo avanza cada prueba
+
+    private RutasTasas rutas(RutasTasas.Criterio criterio, long maxEdadSegundos) {
+        return new RutasTasas(criterio, maxEdadSegundos, reloj::get);
+    }
+
+    /* Deja pasar un segundo: las cotizaciones siguientes son más nuevas */
+    private void esperar() {
+        reloj.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void cotizacionSeUsaEnLosDosSentidos() {
+        RutasTasas rutas = rutas(RutasTasas.Criterio.MENOS_SALTOS, UNA_HORA);
+        rutas.registrarPar("USD", "EUR", 0.9);
+        assertEquals(0.9, rutas.tasa("USD", "EUR"));
+        assertEquals(1 / 0.9, rutas.tasa("EUR", "USD"), 1e-15);
+        // la misma cotización al revés reemplaza a la guardada
+        rutas.registrarPar("EUR", "USD", 1.25);
+        assertEquals(1, rutas.cotizaciones());
+        assertEquals(0.8, rutas.tasa("USD", "EUR"), 1e-15);
+        assertNull(rutas.ruta("USD", "GBP"));
+    }
+
+    @Test
+    void noPasaDeMaxSaltos() {
+        RutasTasas rutas = rutas(RutasTasas.Criterio.MENOS_SALTOS, UNA_HORA);
+        String[] cadena = {"USD", "EUR", "GBP", "JPY", "CHF", "CAD"};
+        for (int i = 0; i + 1 < cadena.length; i++) rutas.registrarPar(cadena[i], cadena[i + 1], 2.0);
+        RutasTasas.Ruta r = rutas.ruta("USD", "CHF");
+        assertEquals(RutasTasas.MAX_SALTOS, r.saltos());
+        assertEquals(List.of("USD", "EUR", "GBP", "JPY", "CHF"), r.monedas());
+        assertEquals(16.0, r.tasa());
+        assertNull(rutas.ruta("USD", "CAD"));
+    }
+
+    @Test
+    void criterioDecideEntreCortaYReciente() {
+        RutasTasas saltos = rutas(RutasTasas.Criterio.MENOS_SALTOS, UNA_HORA);
+        RutasTasas reciente = rutas(RutasTasas.Criterio.MAS_RECIENTE, UNA_HORA);
+        for (RutasTasas r : List.of(saltos, reciente)) r.registrarPar("USD", "EUR", 0.9);
+        esperar();
+        for (RutasTasas r : List.of(saltos, reciente)) {
+            r.registrarPar("USD", "GBP", 0.8);
+            r.registrarPar("GBP", "EUR", 1.15);
+        }
+        assertEquals(List.of("USD", "EUR"), saltos.ruta("USD", "EUR").monedas());
+        assertEquals(List.of("USD", "GBP", "EUR"), reciente.ruta("USD", "EUR").monedas());
+        assertEquals(0.8 * 1.15, reciente.tasa("USD", "EUR"), 1e-15);
+    }
+
+    @Test
+    void masRecienteNoDescartaUnaRutaCortaQueSigueBajoElTope() {
+        RutasTasas rutas = rutas(RutasTasas.Criterio.MAS_RECIENTE, UNA_HORA);
+        rutas.registrarPar("USD", "CHF", 0.9);
+        esperar();
+        // a CHF también se llega por 4 saltos más nuevos, pero desde ahí no se puede seguir
+        rutas.registrarPar("USD", "EUR", 1.0);
+        rutas.registrarPar("EUR", "GBP", 1.0);
+        rutas.registrarPar("GBP", "JPY", 1.0);
+        rutas.registrarPar("JPY", "CHF", 1.0);
+        rutas.registrarPar("CHF", "CAD", 1.5);
+        assertEquals(List.of("USD", "EUR", "GBP", "JPY", "CHF"), rutas.ruta("USD", "CHF").monedas());
+        RutasTasas.Ruta r = rutas.ruta("USD", "CAD");
+        assertEquals(List.of("USD", "CHF", "CAD"), r.monedas());
+        assertEquals(0.9 * 1.5, r.tasa(), 1e-15);
+    }
+
+    @Test
+    void matrizEsUnSaltoEntreCualquierParDeSusMonedas() {
+        RutasTasas rutas = rutas(RutasTasas.Criterio.MENOS_SALTOS, UNA_HORA);
+        rutas.actualizarMatriz(MatrizTasas.desde("USD", Map.of("USD", 1.0, "EUR", 0.92, "JPY", 151.3)));
+        rutas.registrarPar("JPY", "XAU", 0.0001);
+        rutas.precalcular(List.of("EUR", "XAU"));
+        RutasTasas.Ruta r = rutas.ruta("EUR", "XAU");
+        assertEquals(List.of("EUR", "JPY", "XAU"), r.monedas());
+        assertEquals(151.3 / 0.92 * 0.0001, r.tasa(), 1e-15);
+
+        // la ruta precalculada toma las tasas del snapshot nuevo
+        rutas.actualizarMatriz(MatrizTasas.desde("USD", Map.of("USD", 1.0, "EUR", 0.9, "JPY", 150.0)));
+        assertEquals(150.0 / 0.9 * 0.0001, rutas.tasa("EUR", "XAU"), 1e-15);
+        assertEquals(1 / (150.0 / 0.9 * 0.0001), rutas.tasa("XAU", "EUR"), 1e-9);
+    }
+
+    @Test
+    void cotizacionesVencidasNoSeUsan() {
+        RutasTasas rutas = rutas(RutasTasas.Criterio.MENOS_SALTOS, 60);
+        rutas.registrarPar("USD", "EUR", 0.9);
+        rutas.precalcular(List.of("USD", "EUR"));
+        reloj.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertEquals(0.9, rutas.tasa("USD", "EUR"));
+        esperar();
+        assertNull(rutas.ruta("USD", "EUR"));
+        // con la cuota escasa se aceptan cotizaciones más viejas
+        rutas.extenderTtl(2);
+        assertEquals(0.9, rutas.tasa("USD", "EUR"));
+    }
+}
@@ -0,0 +1,173 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SimpleCacheTest {
+
+    private final List<SimpleCache> abiertas = new ArrayList<>();
+    private final AtomicLong reloj = new AtomicLong(); // nanos; lo avanza cada prueba
+
+    private SimpleCache cache(long blando, long duro, int maxEntradas) {
+        SimpleCache c = new SimpleCache(blando, duro, maxEntradas, reloj::get);
+        abiertas.add(c);
+        return c;
+    }
+
+    @AfterEach
+    void cerrar() {
+        abiertas.forEach(SimpleCache::cerrar);
+    }
+
+    /* Todos los pares A??/B?? distintos que caben en n */
+    private static List<String[]> pares(int n) {
+        List<String[]> pares = new ArrayList<>(n);
+        for (int i = 0; pares.size() < n; i++) {
+            String base = "A" + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26);
+            String target = "B" + (char) ('A' + i / 676 % 26) + (char) ('A' + i / 26 % 26);
+            pares.add(new String[]{base, target});
+        }
+        return pares;
+    }
+
+    /* Cada entrada contada en size() debe poder encontrarse: un borrado mal hecho corta la cadena de sondeo */
+    private static int encontrables(SimpleCache c, List<String[]> pares) {
+        int n = 0;
+        for (int i = 0; i < pares.size(); i++) {
+            double v = c.lookup(pares.get(i)[0], pares.get(i)[1]);
+            if (!Double.isNaN(v)) {
+                assertEquals(i, v);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Test
+    void guardaYLeePares() {
+        SimpleCache c = cache(60, 60, 16);
+        c.put("USD", "EUR", 0.92);
+        assertEquals(0.92, c.lookup("usd", "eur"));
+        assertEquals(0.92, c.get("USD", "EUR"));
+        assertNull(c.get("EUR", "USD"));
+        c.put("USD", "EUR", 0.93);
+        assertEquals(0.93, c.lookup("USD", "EUR"));
+        assertEquals(1, c.size());
+        c.put("US", "EUR", 1.0); // códigos no ISO no se cachean
+        assertEquals(1, c.size());
+    }
+
+    @Test
+    void laExpulsionRespetaElTopeYNoPierdeEntradas() {
+        for (int max : new int[]{1, 7, 64, 1000, 4096}) {
+            SimpleCache c = cache(60, 60, max);
+            List<String[]> pares = pares(max * 3);
+            for (int i = 0; i < pares.size(); i++) {
+                c.put(pares.get(i)[0], pares.get(i)[1], i);
+                assertTrue(c.size() <= max);
+                // la recién insertada nunca es la expulsada
+                assertEquals(i, c.lookup(pares.get(i)[0], pares.get(i)[1]));
+            }
+            assertEquals(c.size(), encontrables(c, pares), "max " + max);
+        }
+    }
+
+    @Test
+    void laExpulsionPrefiereLaMenosUsada() {
+        SimpleCache c = cache(60, 60, 8);
+        List<String[]> pares = pares(9);
+        for (int i = 0; i < 8; i++) c.put(pares.get(i)[0], pares.get(i)[1], i);
+        for (int i = 1; i < 8; i++) c.lookup(pares.get(i)[0], pares.get(i)[1]);
+        c.put(pares.get(8)[0], pares.get(8)[1], 8);
+        assertNull(c.get(pares.get(0)[0], pares.get(0)[1]));
+        assertEquals(8, c.size());
+    }
+
+    @Test
+    void conTtlExtendidoLaExpulsionSigueSiendoLru() {
+        SimpleCache c = cache(60, 60, 8);
+        c.extenderTtl(4);
+        List<String[]> pares = pares(9);
+        for (int i = 0; i < 8; i++) c.put(pares.get(i)[0], pares.get(i)[1], i);
+        // pasado el TTL normal pero no el extendido: todas siguen sirviéndose
+        reloj.addAndGet(TimeUnit.SECONDS.toNanos(90));
+        for (int i = 1; i < 8; i++) assertEquals(i, c.lookup(pares.get(i)[0], pares.get(i)[1]));
+        c.put(pares.get(8)[0], pares.get(8)[1], 8);
+        assertEquals(8, c.size());
+        assertNull(c.get(pares.get(0)[0], pares.get(0)[1]));
+        assertEquals(8, encontrables(c, pares));
+    }
+
+    @Test
+    void borrarExpiradasDesplazaHaciaAtrasSinRomperLasCadenas() {
+        SimpleCache duradera = cache(60, 60, 256);
+        SimpleCache efimera = cache(0, 0, 256);
+        List<String[]> pares = pares(256);
+        for (int i = 0; i < pares.size(); i++) {
+            duradera.put(pares.get(i)[0], pares.get(i)[1], i);
+            efimera.put(pares.get(i)[0], pares.get(i)[1], i);
+        }
+        reloj.addAndGet(1);
+        // TTL 0: cada lectura borra su entrada; las demás deben seguir encontrándose tras cada borrado
+        for (int i = 0; i < pares.size(); i += 2) {
+            assertTrue(Double.isNaN(efimera.lookup(pares.get(i)[0], pares.get(i)[1])));
+        }
+        assertEquals(128, efimera.size());
+        efimera.eliminarExpiradas();
+        assertEquals(0, efimera.size());
+        assertEquals(256, encontrables(duradera, pares));
+    }
+
+    @Test
+    void soloUnLlamadorRefrescaUnaEntradaVieja() {
+        SimpleCache c = cache(0, 60, 16);
+        c.put("USD", "EUR", 0.92);
+        assertFalse(c.necesitaRefresco("USD", "EUR"));
+        reloj.addAndGet(1);
+        assertEquals(0.92, c.lookup("USD", "EUR")); // vieja pero servible
+        assertTrue(c.necesitaRefresco("USD", "EUR"));
+        assertFalse(c.necesitaRefresco("USD", "EUR"));
+        c.put("USD", "EUR", 0.93);
+        reloj.addAndGet(1);
+        assertTrue(c.necesitaRefresco("USD", "EUR"));
+    }
+
+    @Test
+    void extenderTtlAlargaTambienLasEntradasGuardadas() {
+        SimpleCache c = cache(0, 1, 16);
+        c.put("USD", "EUR", 0.92);
+        c.extenderTtl(10);
+        reloj.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_100));
+        assertEquals(0.92, c.lookup("USD", "EUR"));
+        c.extenderTtl(1);
+        assertTrue(Double.isNaN(c.lookup("USD", "EUR")));
+    }
+
+    @Test
+    void hilosConcurrentesNoCorrompenLaTabla() throws InterruptedException {
+        SimpleCache c = cache(60, 60, 4096);
+        List<String[]> pares = pares(8192);
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < 8; h++) {
+            int desde = h * 1024;
+            hilos.add(Thread.ofPlatform().start(() -> {
+                for (int i = desde; i < desde + 1024; i++) {
+                    c.put(pares.get(i)[0], pares.get(i)[1], i);
+                    c.lookup(pares.get((i * 7) % 8192)[0], pares.get((i * 7) % 8192)[1]);
+                }
+            }));
+        }
+        for (Thread t : hilos) t.join();
+        assertTrue(c.size() <= 4096 + 8); // el tope admite una inserción de más por hilo concurrente
+        assertEquals(c.size(), encontrables(c, pares));
+    }
+}
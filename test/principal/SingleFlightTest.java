@@ -0,0 +1,43 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    @Test
+    void losLlamadoresSeUnenALaOperacionEnVuelo() {
+        SingleFlight<String, Integer> vuelos = new SingleFlight<>();
+        CompletableFuture<Integer> operacion = new CompletableFuture<>();
+        CompletableFuture<Integer> a = vuelos.ejecutar("USD", () -> operacion);
+        CompletableFuture<Integer> b = vuelos.ejecutar("USD", () -> CompletableFuture.completedFuture(-1));
+        assertEquals(1, vuelos.ejecutadas());
+        assertEquals(1, vuelos.deduplicadas());
+        operacion.complete(7);
+        assertEquals(7, a.join());
+        assertEquals(7, b.join());
+        assertEquals(0, vuelos.enVuelo());
+    }
+
+    @Test
+    void cancelarUnaCopiaNoAfectaALosDemas() {
+        SingleFlight<String, Integer> vuelos = new SingleFlight<>();
+        CompletableFuture<Integer> operacion = new CompletableFuture<>();
+        CompletableFuture<Integer> a = vuelos.ejecutar("USD", () -> operacion);
+        CompletableFuture<Integer> b = vuelos.ejecutar("USD", () -> operacion);
+        CompletableFuture<Integer> c = vuelos.ejecutar("USD", () -> operacion);
+        a.cancel(true);
+        b.complete(99);
+        assertFalse(c.isDone());
+        assertFalse(operacion.isDone());
+        assertEquals(1, vuelos.enVuelo());
+        operacion.complete(7);
+        assertTrue(a.isCancelled());
+        assertEquals(99, b.join());
+        assertEquals(7, c.join());
+    }
+}
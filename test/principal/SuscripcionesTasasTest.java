@@ -0,0 +1,110 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class SuscripcionesTasasTest {
+
+    private static MatrizTasas matriz(double eur, double jpy, double gbp) {
+        return MatrizTasas.desde("USD", Map.of("USD", 1.0, "EUR", eur, "JPY", jpy, "GBP", gbp));
+    }
+
+    @Test
+    void cambiadasSoloLasQueSeMovieron() {
+        MatrizTasas anterior = MatrizTasas.desde("USD", Map.of("USD", 1.0, "EUR", 0.92, "JPY", 151.3));
+        MatrizTasas nueva = MatrizTasas.desde("USD", Map.of("USD", 1.0, "EUR", 0.93, "JPY", 151.3, "GBP", 0.79));
+        int[] salida = new int[nueva.tamanio()];
+        int n = nueva.cambiadas(anterior, salida);
+        assertArrayEquals(new int[]{nueva.indice("EUR"), nueva.indice("GBP")}, ordenados(salida, n));
+        // sin anterior (o con otra base) cambian todas
+        assertEquals(nueva.tamanio(), nueva.cambiadas(null, salida));
+        assertEquals(0, nueva.cambiadas(nueva, salida));
+    }
+
+    @Test
+    void parAvisaValorInicialYLuegoSoloSiSuperaElUmbral() {
+        SuscripcionesTasas s = new SuscripcionesTasas();
+        s.publicar(matriz(0.92, 151.3, 0.79));
+        List<SuscripcionesTasas.CambioTasa> avisos = new ArrayList<>();
+        s.alCambiar("usd", "eur", 0.01, avisos::add);
+        assertEquals(1, avisos.size());
+        assertTrue(Double.isNaN(avisos.get(0).anterior()));
+        assertEquals(0.92, avisos.get(0).actual());
+
+        s.publicar(matriz(0.925, 151.3, 0.79)); // +0,5 %: no llega al umbral
+        s.publicar(matriz(0.92, 160.0, 0.80));  // solo otras monedas
+        assertEquals(1, avisos.size());
+
+        // la deriva se mide contra el último avisado (0.92), no contra el snapshot anterior
+        s.publicar(matriz(0.928, 151.3, 0.79));
+        s.publicar(matriz(0.9293, 151.3, 0.79));
+        assertEquals(2, avisos.size());
+        assertEquals("USD", avisos.get(1).base());
+        assertEquals("EUR", avisos.get(1).destino());
+        assertEquals(0.92, avisos.get(1).anterior());
+        assertEquals(0.9293, avisos.get(1).actual());
+    }
+
+    @Test
+    void parConAmbasMonedasCambiadasAvisaUnaVez() {
+        SuscripcionesTasas s = new SuscripcionesTasas();
+        List<SuscripcionesTasas.CambioTasa> avisos = new ArrayList<>();
+        s.alCambiar("EUR", "JPY", 0, avisos::add);
+        s.publicar(matriz(0.92, 151.3, 0.79));
+        s.publicar(matriz(0.90, 150.0, 0.79));
+        assertEquals(2, avisos.size());
+        assertEquals(150.0 / 0.90, avisos.get(1).actual(), 1e-12);
+    }
+
+    @Test
+    void baseAvisaLasMonedasQueCambiaron() {
+        SuscripcionesTasas s = new SuscripcionesTasas();
+        List<String> destinos = new ArrayList<>();
+        s.publicar(matriz(0.92, 151.3, 0.79));
+        s.alCambiarBase("EUR", 0, c -> destinos.add(c.destino()));
+        assertEquals(List.of("GBP", "JPY", "USD"), ordenada(destinos));
+
+        destinos.clear();
+        s.publicar(matriz(0.92, 152.0, 0.79));
+        assertEquals(List.of("JPY"), destinos);
+
+        // si se mueve la propia base cambian todas sus tasas cruzadas
+        destinos.clear();
+        s.publicar(matriz(0.93, 152.0, 0.79));
+        assertEquals(List.of("GBP", "JPY", "USD"), ordenada(destinos));
+    }
+
+    @Test
+    void cancelarDejaDeAvisar() {
+        SuscripcionesTasas s = new SuscripcionesTasas();
+        List<SuscripcionesTasas.CambioTasa> avisos = new ArrayList<>();
+        SuscripcionesTasas.Suscripcion par = s.alCambiar("USD", "EUR", 0, avisos::add);
+        SuscripcionesTasas.Suscripcion base = s.alCambiarBase("USD", 0, avisos::add);
+        assertEquals(2, s.activas());
+        par.close();
+        base.close();
+        par.close();
+        assertEquals(0, s.activas());
+        s.publicar(matriz(0.92, 151.3, 0.79));
+        assertEquals(List.of(), avisos);
+    }
+
+    private static int[] ordenados(int[] a, int n) {
+        int[] copia = Arrays.copyOf(a, n);
+        Arrays.sort(copia);
+        return copia;
+    }
+
+    private static List<String> ordenada(List<String> l) {
+        List<String> copia = new ArrayList<>(l);
+        copia.sort(null);
+        return copia;
+    }
+}
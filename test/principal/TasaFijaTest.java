@@ -0,0 +1,89 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class TasaFijaTest {
+
+    private static long referencia(long unidades, TasaFija t, int decOrigen, int decDestino, RoundingMode modo) {
+        return BigDecimal.valueOf(unidades).multiply(t.aBigDecimal())
+                .movePointLeft(decOrigen - decDestino).setScale(0, modo).longValueExact();
+    }
+
+    private static long referenciaInversa(long unidades, TasaFija t, int decDestino, int decBase, RoundingMode modo) {
+        return BigDecimal.valueOf(unidades).movePointRight(decBase - decDestino)
+                .divide(t.aBigDecimal(), 0, modo).longValueExact();
+    }
+
+    @Test
+    void tasasCruzadasNoPasanPorBigDecimal() {
+        // 100.50 unidades con tasas de 16-17 dígitos: el producto de 64 bits se desborda
+        double[] tasas = {0.8589310982910635, 162.75, 662.99, 1.0 / 0.8589310982910635};
+        for (double tasa : tasas) {
+            TasaFija t = TasaFija.de(tasa);
+            int k = t.getEscala();
+            assertNotEquals(Long.MIN_VALUE, TasaFija.multiplicarDividir(10050, t.getMantisa(), TasaFija.POTENCIAS_10[k],
+                    RoundingMode.HALF_EVEN), "tasa " + tasa);
+        }
+    }
+
+    @Test
+    void elProductoDe128BitsCoincideConBigDecimal() {
+        SplittableRandom r = new SplittableRandom(42);
+        RoundingMode[] modos = {RoundingMode.HALF_EVEN, RoundingMode.HALF_UP, RoundingMode.HALF_DOWN,
+                RoundingMode.UP, RoundingMode.DOWN, RoundingMode.FLOOR, RoundingMode.CEILING};
+        for (int i = 0; i < 200_000; i++) {
+            TasaFija t = TasaFija.de(r.nextDouble(1e-4, 1e5));
+            long unidades = r.nextLong(-1_000_000_000L, 1_000_000_000L);
+            int decOrigen = r.nextInt(4);
+            int decDestino = r.nextInt(4);
+            RoundingMode modo = modos[r.nextInt(modos.length)];
+            assertEquals(referencia(unidades, t, decOrigen, decDestino, modo),
+                    t.convertir(unidades, decOrigen, decDestino, modo), () -> unidades + " * " + t);
+            assertEquals(referenciaInversa(unidades, t, decDestino, decOrigen, modo),
+                    t.convertirInverso(unidades, decDestino, decOrigen, modo), () -> unidades + " / " + t);
+        }
+    }
+
+    @Test
+    void unaTasaRepetidaSaleDeLaTablaConElMismoValor() {
+        double tasa = 0.9187654321;
+        TasaFija t = TasaFija.de(tasa);
+        assertSame(t, TasaFija.de(tasa));
+        assertEquals(9187654321L, t.getMantisa());
+        assertEquals(10, t.getEscala());
+        // otro double que caiga en el mismo lugar de la tabla no devuelve la tasa anterior
+        for (int i = 1; i < 5000; i++) {
+            double otra = tasa + i * 1e-9;
+            assertEquals(BigDecimal.valueOf(otra).stripTrailingZeros(), TasaFija.de(otra).aBigDecimal());
+        }
+        assertThrows(IllegalArgumentException.class, () -> TasaFija.de(-tasa));
+        assertThrows(IllegalArgumentException.class, () -> TasaFija.de(Double.NaN));
+    }
+
+    @Test
+    void casosDeBorde() {
+        TasaFija t = TasaFija.de(0.8589310982910635);
+        assertEquals(8632, Moneda.parsear("GBP", "100.50").convertir(t, "EUR", RoundingMode.HALF_EVEN).getUnidades());
+        assertEquals(referencia(Long.MIN_VALUE / 2, t, 2, 2, RoundingMode.HALF_EVEN),
+                t.convertir(Long.MIN_VALUE / 2, 2, 2, RoundingMode.HALF_EVEN));
+        // el resultado no cabe en un long: lo reporta el camino BigDecimal
+        assertThrows(ArithmeticException.class,
+                () -> TasaFija.de(662.99).convertir(Long.MAX_VALUE / 10, 2, 2, RoundingMode.HALF_EVEN));
+    }
+
+    @Test
+    void parsearUnidadesFueraDeRangoEsNumberFormatException() {
+        assertThrows(NumberFormatException.class, () -> Moneda.parsearUnidades("999999999999999999", 2, RoundingMode.HALF_EVEN));
+        assertThrows(NumberFormatException.class, () -> Moneda.parsearUnidades("1e30", 2, RoundingMode.HALF_EVEN));
+        assertThrows(NumberFormatException.class, () -> Moneda.parsearUnidades("12a", 2, RoundingMode.HALF_EVEN));
+        assertEquals(-1005, Moneda.parsearUnidades(" -10.05 ", 2, RoundingMode.HALF_EVEN));
+    }
+}
@@ -0,0 +1,27 @@
+package principal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class UtilidadesTest {
+
+    private static final String PROPIEDAD = "conversor.prueba.criterio";
+
+    @AfterEach
+    void limpiar() {
+        System.clearProperty(PROPIEDAD);
+    }
+
+    @Test
+    void enumDePropiedadAceptaMinusculasYCaeAlDefecto() {
+        RutasTasas.Criterio defecto = RutasTasas.Criterio.MENOS_SALTOS;
+        assertEquals(defecto, Utilidades.enumDePropiedad(PROPIEDAD, defecto));
+        System.setProperty(PROPIEDAD, " mas_reciente ");
+        assertEquals(RutasTasas.Criterio.MAS_RECIENTE, Utilidades.enumDePropiedad(PROPIEDAD, defecto));
+        // un error de tipeo avisa por stderr pero no detiene el arranque
+        System.setProperty(PROPIEDAD, "mas_recente");
+        assertEquals(defecto, Utilidades.enumDePropiedad(PROPIEDAD, defecto));
+    }
+}